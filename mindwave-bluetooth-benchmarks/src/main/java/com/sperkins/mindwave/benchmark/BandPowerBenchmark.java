@@ -0,0 +1,67 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sperkins.mindwave.dsp.BandPowerAnalyzer;
+import com.sperkins.mindwave.dsp.BandPowerListener;
+import com.sperkins.mindwave.dsp.BandPowers;
+
+/**
+ * Average cost per raw sample of band-power analysis, FFTs included, for a number of headsets fed round-robin.
+ * One second of one headset is 512 samples, so a result of 100ns/op would be about 51µs of CPU per headset-second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BandPowerBenchmark {
+	private static final int SAMPLES = 8192;
+
+	@Param({ "1", "48" })
+	public int headsets;
+
+	@Param({ "256", "128" })
+	public int hopSize;
+
+	private BandPowerAnalyzer analyzer;
+	private final int[] samples = new int[SAMPLES];
+
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		analyzer = new BandPowerAnalyzer(512, 512, hopSize, new BandPowerListener() {
+			@Override
+			public void onBandPower(int headsetId, long timestamp, BandPowers powers) {
+				blackhole.consume(powers.getAlpha());
+			}
+		});
+		Random random = new Random(Corpora.SEED);
+		for(int i = 0; i < SAMPLES; i++) {
+			samples[i] = (int)(200 * Math.sin(2 * Math.PI * 10 * i / 512.0) + 50 * random.nextGaussian());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void analyze() {
+		for(int i = 0; i < SAMPLES; i++) {
+			analyzer.onRawSample(i % headsets, i, samples[i]);
+		}
+	}
+}
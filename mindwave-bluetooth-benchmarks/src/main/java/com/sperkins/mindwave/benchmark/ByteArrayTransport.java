@@ -0,0 +1,45 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.nio.ByteBuffer;
+
+import com.sperkins.mindwave.socket.HeadsetTransport;
+
+/**
+ * Serves a byte array in fixed-size chunks, like an RFCOMM stream delivering whatever has arrived.
+ */
+public class ByteArrayTransport implements HeadsetTransport {
+	private final byte[] bytes;
+	private final int chunkSize;
+	private int position;
+
+	public ByteArrayTransport(byte[] bytes, int chunkSize) {
+		this.bytes = bytes;
+		this.chunkSize = chunkSize;
+	}
+
+	public void rewind() {
+		position = 0;
+	}
+
+	@Override
+	public int read(ByteBuffer dst) {
+		if(position == bytes.length) return -1;
+		int count = Math.min(chunkSize, Math.min(dst.remaining(), bytes.length - position));
+		dst.put(bytes, position, count);
+		position += count;
+		return count;
+	}
+
+	@Override
+	public void write(ByteBuffer src) {
+		src.position(src.limit());
+	}
+
+	@Override
+	public boolean isOpen() {
+		return true;
+	}
+
+	@Override
+	public void close() {}
+}
@@ -0,0 +1,49 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.socket.PacketFramer;
+
+/**
+ * Checksum validation for a raw wave payload (4 bytes), an eSense payload (32 bytes) and the largest legal payload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChecksumBenchmark {
+	@Param({ "4", "32", "169" })
+	public int length;
+
+	private byte[] payload;
+	private byte checksum;
+
+	@Setup
+	public void setUp() {
+		payload = new byte[length];
+		new Random(Corpora.SEED).nextBytes(payload);
+		int sum = 0;
+		for(byte b: payload) sum += b;
+		checksum = (byte) ~sum;
+	}
+
+	@Benchmark
+	public boolean validateChecksum() {
+		return PacketFramer.validateChecksum(payload, 0, length, checksum);
+	}
+}
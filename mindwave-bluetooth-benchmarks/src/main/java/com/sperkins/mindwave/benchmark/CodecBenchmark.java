@@ -0,0 +1,101 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.codec.DeltaDecoder;
+import com.sperkins.mindwave.codec.DeltaEncoder;
+import com.sperkins.mindwave.codec.RunLengthDecoder;
+import com.sperkins.mindwave.codec.RunLengthEncoder;
+
+/**
+ * Encode and decode cost per value of the archival codecs over simulated headset data: delta varints for
+ * raw samples and run lengths for attention. Real time is 1,953,125ns per raw sample, so a decode result of
+ * around ten nanoseconds replays an archive some hundred thousand times faster than it was recorded. The
+ * compressed sizes of this data are listed in the README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+	private static final int PACKETS = 70000;
+	private static final int SAMPLES = 65536;
+	// Decoded in blocks, the way a replay would fill its buffers
+	private static final int BLOCK = 512;
+
+	private int[] raw;
+	private int[] attention;
+	private ByteBuffer encodedRaw;
+	private ByteBuffer encodedAttention;
+	private final int[] block = new int[BLOCK];
+
+	@Setup
+	public void setUp() throws IOException {
+		int[][] series = Corpora.decoded(PACKETS);
+		raw = Arrays.copyOf(series[0], SAMPLES);
+		// Stretched out to one value per raw sample so the two codecs are compared per value
+		attention = new int[raw.length];
+		for(int i = 0; i < raw.length; i++) {
+			attention[i] = series[1][Math.min(series[1].length - 1, i / 512)];
+		}
+		encodedRaw = ByteBuffer.allocate(raw.length * 5);
+		new DeltaEncoder().encode(raw, 0, raw.length, encodedRaw);
+		encodedRaw.flip();
+		encodedAttention = ByteBuffer.allocate(raw.length * 5);
+		RunLengthEncoder runs = new RunLengthEncoder();
+		runs.encode(attention, 0, attention.length, encodedAttention);
+		runs.flush(encodedAttention);
+		encodedAttention.flip();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public int encodeRaw() {
+		ByteBuffer out = encodedRaw.duplicate();
+		out.clear();
+		return new DeltaEncoder().encode(raw, 0, raw.length, out);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public int decodeRaw() {
+		ByteBuffer in = encodedRaw.duplicate();
+		DeltaDecoder decoder = new DeltaDecoder();
+		int total = 0;
+		int decoded;
+		while((decoded = decoder.decode(in, block, 0, BLOCK)) > 0) {
+			total += decoded + block[0];
+		}
+		return total;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public int decodeAttention() {
+		ByteBuffer in = encodedAttention.duplicate();
+		RunLengthDecoder decoder = new RunLengthDecoder();
+		int total = 0;
+		int decoded;
+		while((decoded = decoder.decode(in, block, 0, BLOCK)) > 0) {
+			total += decoded + block[0];
+		}
+		return total;
+	}
+}
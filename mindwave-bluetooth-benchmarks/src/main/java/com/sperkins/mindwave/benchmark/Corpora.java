@@ -0,0 +1,73 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.sperkins.mindwave.sim.SimulatedHeadsetConfig;
+import com.sperkins.mindwave.sim.SimulatedHeadsetTransport;
+import com.sperkins.mindwave.socket.DecodedPacket;
+import com.sperkins.mindwave.socket.PacketDecoder;
+import com.sperkins.mindwave.socket.PacketFramer;
+
+/**
+ * Reproducible byte streams for the benchmarks, generated by the headset simulator from a fixed seed.
+ */
+public final class Corpora {
+	public static final long SEED = 20160509L;
+
+	private Corpora() {}
+
+	/**
+	 * @return a stream of valid packets: raw waves at 512 per second of stream time plus one eSense packet per second
+	 */
+	public static byte[] clean(int packets) {
+		return generate(new SimulatedHeadsetConfig().setRealTime(false).setDisconnectAfterPackets(packets).setSeed(SEED));
+	}
+
+	/**
+	 * @return the same traffic as {@link #clean(int)} with 5% of packets corrupted and 5% failing their checksum
+	 */
+	public static byte[] corrupted(int packets) {
+		return generate(new SimulatedHeadsetConfig().setRealTime(false).setDisconnectAfterPackets(packets).setSeed(SEED)
+				.setCorruptionRate(0.05).setChecksumFailureRate(0.05));
+	}
+
+	/**
+	 * @return the raw samples and eSense values of a clean stream, decoded; rows are raw, attention, meditation and poor signal
+	 */
+	public static int[][] decoded(int packets) throws IOException {
+		ByteArrayTransport transport = new ByteArrayTransport(clean(packets), 4096);
+		PacketFramer framer = new PacketFramer();
+		DecodedPacket packet = new DecodedPacket();
+		int[][] series = new int[4][packets];
+		int[] counts = new int[4];
+		while(true) {
+			if(framer.nextPacket()) {
+				PacketDecoder.decode(framer.getBuffer(), framer.getPayloadOffset(), framer.getPayloadLength(), packet);
+				if(packet.has(DecodedPacket.RAW)) series[0][counts[0]++] = packet.getRawSample();
+				if(packet.has(DecodedPacket.ATTENTION)) series[1][counts[1]++] = packet.getAttention();
+				if(packet.has(DecodedPacket.MEDITATION)) series[2][counts[2]++] = packet.getMeditation();
+				if(packet.has(DecodedPacket.POOR_SIGNAL)) series[3][counts[3]++] = packet.getPoorSignal();
+			} else if(framer.fill(transport) < 0) {
+				break;
+			}
+		}
+		for(int i = 0; i < series.length; i++) {
+			series[i] = Arrays.copyOf(series[i], counts[i]);
+		}
+		return series;
+	}
+
+	private static byte[] generate(SimulatedHeadsetConfig config) {
+		SimulatedHeadsetTransport transport = new SimulatedHeadsetTransport(config, 0);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		while(transport.read(buffer) >= 0) {
+			out.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+		}
+		return out.toByteArray();
+	}
+}
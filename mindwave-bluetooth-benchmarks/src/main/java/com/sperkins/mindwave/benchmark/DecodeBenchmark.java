@@ -0,0 +1,77 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.event.Event;
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.sim.PacketEncoder;
+import com.sperkins.mindwave.socket.DecodedPacket;
+import com.sperkins.mindwave.socket.MindwaveSerialPacket;
+import com.sperkins.mindwave.socket.PacketDecoder;
+
+/**
+ * Decoding cost per payload type, into the reusable primitive packet and into legacy {@link Event} objects.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+	@Param({ "SIXTEEN_BIT_RAW_WAVE", "ASIC_EEG_POWER", "ESENSE", "HEADSET_CONNECTED" })
+	public String code;
+
+	private byte[] payload;
+	private final DecodedPacket packet = new DecodedPacket();
+
+	@Setup
+	public void setUp() {
+		byte[] buffer = new byte[256];
+		int[] eeg = { 123456, 234567, 345678, 456789, 567890, 678901, 789012, 890123 };
+		if("SIXTEEN_BIT_RAW_WAVE".equals(code)) {
+			PacketEncoder.writeRaw(buffer, 0, -1234);
+		} else if("ESENSE".equals(code)) {
+			PacketEncoder.writeESense(buffer, 0, 0, 55, 66, eeg);
+		} else if("HEADSET_CONNECTED".equals(code)) {
+			PacketEncoder.writeHeadsetStatus(buffer, 0, EventType.HEADSET_CONNECTED, 0x1234);
+		} else {
+			int p = 3;
+			buffer[p++] = (byte) EventType.ASIC_EEG_POWER.getHexValue();
+			buffer[p++] = 24;
+			for(int band: eeg) {
+				buffer[p++] = (byte) band;
+				buffer[p++] = (byte)(band >> 8);
+				buffer[p++] = (byte)(band >> 16);
+			}
+			PacketEncoder.frame(buffer, 0, p - 3);
+		}
+		int length = buffer[2] & 0xFF;
+		payload = new byte[length];
+		System.arraycopy(buffer, 3, payload, 0, length);
+	}
+
+	@Benchmark
+	public int decode() {
+		PacketDecoder.decode(payload, 0, payload.length, packet);
+		return packet.getFields();
+	}
+
+	@Benchmark
+	public List<Event> decodeToEvents() {
+		return new MindwaveSerialPacket("5A5A5A000000", payload).getEvents();
+	}
+}
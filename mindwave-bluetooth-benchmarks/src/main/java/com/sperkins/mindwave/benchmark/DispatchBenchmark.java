@@ -0,0 +1,97 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sperkins.mindwave.event.Event;
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveDataAdapter;
+import com.sperkins.mindwave.event.MindwaveEventListener;
+import com.sperkins.mindwave.sim.PacketEncoder;
+import com.sperkins.mindwave.socket.BluetoothConnection;
+import com.sperkins.mindwave.socket.BluetoothSocket;
+import com.sperkins.mindwave.socket.DecodedPacket;
+import com.sperkins.mindwave.socket.LoopbackTransport;
+import com.sperkins.mindwave.socket.PacketDecoder;
+
+/**
+ * Cost of raising one decoded raw wave packet to 1 to 32 listeners, through {@link MindwaveEventListener}s
+ * and through primitive data listeners. The <code>attention</code> case subscribes event listeners to
+ * attention only, so the raw packet should be skipped without creating an event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+	@Param({ "1", "2", "4", "8", "16", "32" })
+	public int listeners;
+
+	@Param({ "events", "attention", "data" })
+	public String api;
+
+	private BenchmarkSocket socket;
+	private final DecodedPacket packet = new DecodedPacket();
+	private final List<Event> events = new ArrayList<Event>();
+	private BluetoothConnection connection;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		socket = new BenchmarkSocket();
+		for(int i = 0; i < listeners; i++) {
+			if("events".equals(api)) {
+				socket.addListener(new MindwaveEventListener() {
+					@Override
+					public void onEvent(Event event) {
+						blackhole.consume(event);
+					}
+				});
+			} else if("attention".equals(api)) {
+				socket.addListener(new MindwaveEventListener() {
+					@Override
+					public void onEvent(Event event) {
+						blackhole.consume(event);
+					}
+				}, EventType.ATTENTION);
+			} else {
+				socket.addDataListener(new MindwaveDataAdapter() {
+					@Override
+					public void onRawSample(int headsetId, long timestamp, int sample) {
+						blackhole.consume(sample);
+					}
+				});
+			}
+		}
+		byte[] buffer = new byte[PacketEncoder.RAW_PACKET_LENGTH];
+		PacketEncoder.writeRaw(buffer, 0, 321);
+		PacketDecoder.decode(buffer, 3, buffer[2], packet);
+		connection = new BluetoothConnection("5A5A5A000000", new LoopbackTransport(16));
+	}
+
+	@Benchmark
+	public void dispatch() {
+		socket.dispatch(connection, packet, events);
+	}
+
+	static class BenchmarkSocket extends BluetoothSocket {
+		void dispatch(BluetoothConnection connection, DecodedPacket packet, List<Event> events) {
+			notifyListeners(connection.getHeadsetId(), connection.getDeviceAddress(), packet, events);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveDataAdapter;
+import com.sperkins.mindwave.server.EventClient;
+import com.sperkins.mindwave.server.EventServer;
+
+/**
+ * Runs an {@link EventServer} on loopback and times it delivering to its clients. Doubles as a check of the server:
+ * <code>fanOut</code> fails unless a client with no subscription gets every value and a client subscribed to one
+ * event type from one address gets exactly those; <code>slowClient</code> fails unless a client that never reads is
+ * disconnected and counted by {@link EventServer#getSlowDisconnectCount()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EventServerBenchmark {
+	private static final int ROUNDS = 1000;
+	// Each round publishes a raw sample, attention and meditation from A and attention from B
+	private static final int VALUES_PER_ROUND = 4;
+	private static final int MAX_QUEUED_FRAMES = 8192;
+	private static final int VALUE = 100;
+	private static final int SYNC_OTHER = 1;
+	private static final int SYNC_WANTED = 2;
+	private static final long SLOW_CLIENT_MAX_VALUES = 10000000;
+	private static final long TIMEOUT_MILLIS = 5000;
+	private static final String ADDRESS_A = "0000000000AA";
+	private static final String ADDRESS_B = "0000000000BB";
+
+	private HeadsetRegistry registry;
+	private EventServer server;
+	private int headsetA;
+	private int headsetB;
+	private EventClient fullClient;
+	private EventClient filteredClient;
+	private final AtomicLong fullReceived = new AtomicLong();
+	private final AtomicLong filteredReceived = new AtomicLong();
+	private final AtomicInteger unwanted = new AtomicInteger();
+	private final AtomicBoolean synced = new AtomicBoolean();
+	private SocketChannel stalledClient;
+
+	@Setup(Level.Invocation)
+	public void setUp() throws IOException {
+		registry = new HeadsetRegistry();
+		headsetA = registry.register(ADDRESS_A);
+		headsetB = registry.register(ADDRESS_B);
+		server = new EventServer(new InetSocketAddress("127.0.0.1", 0), registry).setMaxQueuedFrames(MAX_QUEUED_FRAMES);
+		server.start();
+		fullReceived.set(0);
+		filteredReceived.set(0);
+		unwanted.set(0);
+		synced.set(false);
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() throws IOException {
+		if(null != fullClient) fullClient.close();
+		if(null != filteredClient) filteredClient.close();
+		if(null != stalledClient) stalledClient.close();
+		fullClient = null;
+		filteredClient = null;
+		stalledClient = null;
+		server.close();
+	}
+
+	@Benchmark
+	public long fanOut() throws IOException, InterruptedException {
+		fullClient = EventClient.connect(server.getLocalAddress(), new MindwaveDataAdapter() {
+			@Override
+			public void onRawSample(int headsetId, long timestamp, int sample) {
+				fullReceived.incrementAndGet();
+			}
+
+			@Override
+			public void onAttention(int headsetId, long timestamp, int attention) {
+				if(attention == VALUE) fullReceived.incrementAndGet();
+			}
+
+			@Override
+			public void onMeditation(int headsetId, long timestamp, int meditation) {
+				fullReceived.incrementAndGet();
+			}
+		});
+		fullClient.start();
+		filteredClient = EventClient.connect(server.getLocalAddress(), new MindwaveDataAdapter() {
+			// Whether anything but the wanted sync value arrived since the last one
+			private boolean other;
+
+			@Override
+			public void onRawSample(int headsetId, long timestamp, int sample) {
+				received(false);
+			}
+
+			@Override
+			public void onAttention(int headsetId, long timestamp, int attention) {
+				boolean wanted = ADDRESS_A.equals(filteredClient.getAddress(headsetId)) && attention != SYNC_OTHER;
+				// Probes still in flight after the sync are wanted but not counted
+				if(wanted && attention == VALUE) filteredReceived.incrementAndGet();
+				received(wanted);
+			}
+
+			@Override
+			public void onMeditation(int headsetId, long timestamp, int meditation) {
+				received(false);
+			}
+
+			private void received(boolean wanted) {
+				if(synced.get()) {
+					if(!wanted) unwanted.incrementAndGet();
+				} else if(!wanted) {
+					other = true;
+				} else if(!other) {
+					// Nothing unwanted came between two sync values, so the server has applied the subscription
+					synced.set(true);
+				} else {
+					other = false;
+				}
+			}
+		});
+		filteredClient.subscribe(new EventType[] { EventType.ATTENTION }, ADDRESS_A);
+		filteredClient.start();
+
+		// The server applies a subscription when it reads it, so probe until the filtered client shows it has
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while(!synced.get()) {
+			if(System.currentTimeMillis() > deadline) throw new IllegalStateException("Subscription never took effect");
+			server.onAttention(headsetB, 0, SYNC_OTHER);
+			server.onAttention(headsetA, 0, SYNC_WANTED);
+			Thread.sleep(1);
+		}
+		unwanted.set(0);
+
+		for(int i = 0; i < ROUNDS; i++) {
+			server.onRawSample(headsetA, i, i);
+			server.onAttention(headsetA, i, VALUE);
+			server.onAttention(headsetB, i, VALUE);
+			server.onMeditation(headsetA, i, VALUE);
+		}
+		await(fullReceived, (long) ROUNDS * VALUES_PER_ROUND, "full client");
+		await(filteredReceived, ROUNDS, "filtered client");
+		if(unwanted.get() != 0) throw new IllegalStateException("Filtered client got " + unwanted.get() + " values it didn't subscribe to");
+		if(server.getSlowDisconnectCount() != 0) throw new IllegalStateException("Server disconnected a client that keeps up");
+		return fullReceived.get() + filteredReceived.get();
+	}
+
+	@Benchmark
+	public long slowClient() throws IOException, InterruptedException {
+		stalledClient = SocketChannel.open();
+		stalledClient.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+		stalledClient.connect(server.getLocalAddress());
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while(server.getClientCount() == 0) {
+			if(System.currentTimeMillis() > deadline) throw new IllegalStateException("Server never accepted the client");
+			Thread.sleep(1);
+		}
+
+		long published = 0;
+		while(server.getSlowDisconnectCount() == 0) {
+			if(published == SLOW_CLIENT_MAX_VALUES) throw new IllegalStateException("Client that never reads still connected after " + published + " values");
+			server.onRawSample(headsetA, published, (int) published);
+			published++;
+		}
+		deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while(server.getClientCount() != 0) {
+			if(System.currentTimeMillis() > deadline) throw new IllegalStateException("Slow client counted but still listed");
+			Thread.sleep(1);
+		}
+		if(server.getSlowDisconnectCount() != 1) throw new IllegalStateException(server.getSlowDisconnectCount() + " slow disconnects for one client");
+		return published;
+	}
+
+	private static void await(AtomicLong counter, long expected, String client) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while(counter.get() < expected) {
+			if(System.currentTimeMillis() > deadline) throw new IllegalStateException("The " + client + " got " + counter.get() + " of " + expected + " values");
+			Thread.sleep(1);
+		}
+		// Anything past the expected count would be a duplicate
+		Thread.sleep(10);
+		if(counter.get() != expected) throw new IllegalStateException("The " + client + " got " + counter.get() + " of " + expected + " values");
+	}
+}
@@ -0,0 +1,137 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.event.MindwaveDataAdapter;
+import com.sperkins.mindwave.socket.BluetoothConnection;
+import com.sperkins.mindwave.socket.BluetoothSocket;
+import com.sperkins.mindwave.socket.ChannelTransport;
+import com.sperkins.mindwave.socket.ExecutionMode;
+
+/**
+ * Time for a socket to stream ten seconds' worth of simulated traffic from each of 1 to 60 headsets over
+ * pipes, with a reader thread per headset or two event-loop threads. The <code>threads</code> counter reports
+ * how many threads the socket started for the headsets. Pipes are selectable, so this measures what
+ * {@link ExecutionMode#EVENT_LOOP} does for socket and pipe transports; BlueCove streams and device files
+ * always get a reader thread each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutionModeBenchmark {
+	private static final int PACKETS = 5120;
+	private static final int CHUNK = 512;
+
+	@Param({ "THREAD_PER_HEADSET", "EVENT_LOOP" })
+	public ExecutionMode mode;
+
+	@Param({ "1", "60" })
+	public int headsets;
+
+	private byte[] corpus;
+	private int rawSamples;
+	private Pipe[] pipes;
+	private BluetoothSocket socket;
+	private final LongAdder delivered = new LongAdder();
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Threads {
+		public long threads;
+	}
+
+	@Setup(Level.Trial)
+	public void setUpCorpus() throws IOException {
+		corpus = Corpora.clean(PACKETS);
+		rawSamples = Corpora.decoded(PACKETS)[0].length;
+	}
+
+	@Setup(Level.Invocation)
+	public void setUp() throws IOException {
+		pipes = new Pipe[headsets];
+		for(int i = 0; i < headsets; i++) {
+			pipes[i] = Pipe.open();
+			pipes[i].sink().configureBlocking(false);
+		}
+		delivered.reset();
+		socket = new BluetoothSocket();
+		socket.setMetricsRegistry(null);
+		socket.setReconnectSupervisor(null);
+		socket.setExecutionMode(mode, 2);
+		socket.addDataListener(new MindwaveDataAdapter() {
+			@Override
+			public void onRawSample(int headsetId, long timestamp, int sample) {
+				delivered.increment();
+			}
+		});
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() {
+		socket.stop();
+	}
+
+	@Benchmark
+	public long stream(Threads counters) throws IOException, InterruptedException {
+		int threadsBefore = Thread.activeCount();
+		BluetoothSocket.HeadsetStream[] streams = new BluetoothSocket.HeadsetStream[headsets];
+		for(int i = 0; i < headsets; i++) {
+			Pipe.SourceChannel source = pipes[i].source();
+			streams[i] = socket.start(new BluetoothConnection(String.format("0000000000%02X", i), new ChannelTransport(source, null)));
+		}
+		counters.threads = Thread.activeCount() - threadsBefore;
+
+		// One thread feeds every pipe a chunk at a time, like headsets sending concurrently
+		ByteBuffer[] remaining = new ByteBuffer[headsets];
+		for(int i = 0; i < headsets; i++) {
+			remaining[i] = ByteBuffer.wrap(corpus);
+		}
+		int open = headsets;
+		while(open > 0) {
+			open = 0;
+			for(int i = 0; i < headsets; i++) {
+				ByteBuffer bytes = remaining[i];
+				if(!bytes.hasRemaining()) continue;
+				int limit = bytes.limit();
+				bytes.limit(Math.min(limit, bytes.position() + CHUNK));
+				pipes[i].sink().write(bytes);
+				bytes.limit(limit);
+				if(bytes.hasRemaining()) {
+					open++;
+				} else {
+					pipes[i].sink().close();
+				}
+			}
+		}
+		for(BluetoothSocket.HeadsetStream stream: streams) {
+			stream.join(30000);
+		}
+		long total = delivered.sum();
+		if(total != (long) rawSamples * headsets) {
+			throw new IllegalStateException("Delivered " + total + " of " + ((long) rawSamples * headsets) + " raw samples");
+		}
+		return total;
+	}
+}
@@ -0,0 +1,67 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sperkins.mindwave.dsp.FilterChain;
+import com.sperkins.mindwave.dsp.FilteredSampleListener;
+import com.sperkins.mindwave.dsp.RawSampleFilter;
+
+/**
+ * Cost per raw sample of DC removal, a mains notch, a 1-40Hz band-pass and 2x decimation, fed in
+ * blocks the size a {@link com.sperkins.mindwave.event.RawSampleBatcher} would deliver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterChainBenchmark {
+	private static final int SAMPLES = 4096;
+
+	@Param({ "32", "256" })
+	public int blockSize;
+
+	private RawSampleFilter filter;
+	private int[][] blocks;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		filter = new RawSampleFilter(new FilterChain(512).removeDc().notch(60).bandPass(1, 40).decimate(2), new FilteredSampleListener() {
+			@Override
+			public void onFilteredSamples(int headsetId, long startTimestamp, double[] samples, int count, double sampleRate) {
+				blackhole.consume(samples[0]);
+			}
+		});
+		Random random = new Random(Corpora.SEED);
+		blocks = new int[SAMPLES / blockSize][blockSize];
+		for(int[] block: blocks) {
+			for(int i = 0; i < blockSize; i++) {
+				block[i] = random.nextInt(4096) - 2048;
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void filter() {
+		for(int i = 0; i < blocks.length; i++) {
+			filter.onRawSamples(0, i, blocks[i], blockSize);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.socket.PacketFramer;
+
+/**
+ * Packets framed per second from a clean stream and from one with corrupted bytes and bad checksums.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FramingBenchmark {
+	private static final int PACKETS = 100000;
+
+	@Param({ "clean", "corrupted" })
+	public String stream;
+
+	@Param({ "64", "4096" })
+	public int chunkSize;
+
+	private ByteArrayTransport transport;
+	private PacketFramer framer;
+
+	@Setup
+	public void setUp() {
+		byte[] corpus = "clean".equals(stream) ? Corpora.clean(PACKETS) : Corpora.corrupted(PACKETS);
+		transport = new ByteArrayTransport(corpus, chunkSize);
+		framer = new PacketFramer();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PACKETS)
+	public int frame() throws IOException {
+		transport.rewind();
+		framer.reset();
+		int framed = 0;
+		while(true) {
+			if(framer.nextPacket()) {
+				framed++;
+			} else if(framer.fill(transport) < 0) {
+				return framed;
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.Util;
+import com.sperkins.mindwave.event.AttentionEvent;
+import com.sperkins.mindwave.event.EegEvent;
+import com.sperkins.mindwave.event.Event;
+import com.sperkins.mindwave.event.JsonWriter;
+import com.sperkins.mindwave.event.RawEvent;
+
+/**
+ * Cost per event of turning events into JSON for a dashboard: the String.format approach the events used to
+ * take, toJsonString(), and a reused {@link JsonWriter} writing a batch into its byte buffer. Run with
+ * <code>-prof gc</code> to see that the writer doesn't allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+	private static final int EVENTS = 64;
+	private static final String ADDRESS = "091A2B3C4D5E";
+
+	@Param({ "attention", "eeg", "raw" })
+	public String event;
+
+	private final Event[] events = new Event[EVENTS];
+	private final JsonWriter writer = new JsonWriter();
+
+	@Setup
+	public void setUp() {
+		for(int i = 0; i < EVENTS; i++) {
+			if("attention".equals(event)) {
+				events[i] = new AttentionEvent(ADDRESS, i % 101);
+			} else if("eeg".equals(event)) {
+				events[i] = new EegEvent(ADDRESS, 1048576 + i, 524288 + i, 65536 + i, 32768 + i, 16384 + i, 8192 + i, 4096 + i, 2048 + i);
+			} else {
+				events[i] = new RawEvent(ADDRESS, new int[] { i - 32 });
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int stringFormat() {
+		int length = 0;
+		for(int i = 0; i < EVENTS; i++) {
+			length += format(events[i]).length();
+		}
+		return length;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int toJsonString() {
+		int length = 0;
+		for(int i = 0; i < EVENTS; i++) {
+			length += events[i].toJsonString().length();
+		}
+		return length;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int jsonWriter() {
+		return writer.reset().write(events, 0, EVENTS).size();
+	}
+
+	/**
+	 * The same output built the way AttentionEvent.toJsonString() used to build it.
+	 */
+	private static String format(Event event) {
+		if(event instanceof AttentionEvent) {
+			return String.format("{ \"deviceAddress\":\"%s\",\"timestamp\":\"%s\",\"attention\":%d }",
+					event.getDeviceAddress(), Util.currentDateAsString(), ((AttentionEvent) event).getValue());
+		}
+		if(event instanceof EegEvent) {
+			EegEvent eeg = (EegEvent) event;
+			return String.format("{ \"deviceAddress\":\"%s\",\"timestamp\":\"%s\",\"delta\":%d,\"theta\":%d,\"lowAlpha\":%d,\"highAlpha\":%d,\"lowBeta\":%d,\"highBeta\":%d,\"lowGamma\":%d,\"midGamma\":%d }",
+					event.getDeviceAddress(), Util.currentDateAsString(), eeg.getDelta(), eeg.getTheta(), eeg.getLowAlpha(),
+					eeg.getHighAlpha(), eeg.getLowBeta(), eeg.getHighBeta(), eeg.getLowGamma(), eeg.getMidGamma());
+		}
+		return String.format("{ \"deviceAddress\":\"%s\",\"timestamp\":\"%s\",\"raw\":[%d] }",
+				event.getDeviceAddress(), Util.currentDateAsString(), ((RawEvent) event).getValues()[0]);
+	}
+}
@@ -0,0 +1,147 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveDataAdapter;
+import com.sperkins.mindwave.socket.BluetoothConnection;
+import com.sperkins.mindwave.socket.BluetoothSocket;
+import com.sperkins.mindwave.socket.HeadsetTransport;
+import com.sperkins.mindwave.socket.LoopbackTransport;
+import com.sperkins.mindwave.socket.ReconnectSupervisor;
+import com.sperkins.mindwave.socket.TransportFactory;
+
+/**
+ * Drops a loopback headset's link mid-stream and times the {@link ReconnectSupervisor} bringing it back, from
+ * the dead transport to the first samples read from the new one. Doubles as a check of the reconnect path: each
+ * invocation fails unless listeners see HEADSET_DISCONNECTED then HEADSET_CONNECTED and every sample sent after
+ * the reconnect arrives. <code>stopWhileReconnecting</code> stops the socket while the headset is unreachable and
+ * fails if the stream doesn't end or an attempt is still scheduled or runs afterwards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ReconnectBenchmark {
+	private static final int PACKETS = 512;
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	private byte[] corpus;
+	private int rawSamples;
+	private BluetoothSocket socket;
+	private ReconnectSupervisor supervisor;
+	private BluetoothSocket.HeadsetStream stream;
+	private volatile LoopbackTransport transport;
+	private volatile boolean reachable;
+	private final AtomicInteger attempts = new AtomicInteger();
+	private final LongAdder delivered = new LongAdder();
+	private final BlockingQueue<EventType> statuses = new LinkedBlockingQueue<EventType>();
+
+	@Setup(Level.Trial)
+	public void setUpCorpus() throws IOException {
+		corpus = Corpora.clean(PACKETS);
+		rawSamples = Corpora.decoded(PACKETS)[0].length;
+	}
+
+	@Setup(Level.Invocation)
+	public void setUp() throws IOException, InterruptedException {
+		delivered.reset();
+		attempts.set(0);
+		reachable = true;
+		supervisor = new ReconnectSupervisor().setInitialBackoffMillis(1).setMaxBackoffMillis(1).setTransportFactory(new TransportFactory() {
+			@Override
+			public HeadsetTransport open(BluetoothConnection connection) throws IOException {
+				attempts.incrementAndGet();
+				if(!reachable) throw new IOException("Headset out of range");
+				transport = new LoopbackTransport();
+				return transport;
+			}
+		});
+		socket = new BluetoothSocket();
+		socket.setMetricsRegistry(null);
+		socket.setReconnectSupervisor(supervisor);
+		socket.addDataListener(new MindwaveDataAdapter() {
+			@Override
+			public void onRawSample(int headsetId, long timestamp, int sample) {
+				delivered.increment();
+			}
+
+			@Override
+			public void onHeadsetStatus(int headsetId, long timestamp, EventType status, int reportedHeadsetId) {
+				if(EventType.HEADSET_DISCONNECTED == status || EventType.HEADSET_CONNECTED == status || EventType.HEADSET_NOT_FOUND == status) {
+					statuses.add(status);
+				}
+			}
+		});
+		transport = new LoopbackTransport();
+		stream = socket.start(new BluetoothConnection("0000000000AA", transport));
+		transport.supply(corpus);
+		awaitDelivered(rawSamples);
+		// The simulated headset reports its own connection at the start of the corpus
+		statuses.clear();
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() {
+		socket.stop();
+	}
+
+	@Benchmark
+	public long reconnect() throws IOException, InterruptedException {
+		LoopbackTransport dropped = transport;
+		dropped.close();
+		expectStatus(EventType.HEADSET_DISCONNECTED);
+		expectStatus(EventType.HEADSET_CONNECTED);
+		if(transport == dropped) throw new IllegalStateException("Reconnected without opening a new transport");
+		transport.supply(corpus);
+		awaitDelivered(2L * rawSamples);
+		return delivered.sum();
+	}
+
+	@Benchmark
+	public int stopWhileReconnecting() throws InterruptedException {
+		reachable = false;
+		transport.close();
+		expectStatus(EventType.HEADSET_DISCONNECTED);
+		socket.stop();
+		if(!stream.join(TIMEOUT_MILLIS)) throw new IllegalStateException("Stream still running after stop()");
+		if(supervisor.getReconnectingCount() != 0) throw new IllegalStateException(supervisor.getReconnectingCount() + " reconnects still scheduled after stop()");
+		int made = attempts.get();
+		Thread.sleep(20);
+		if(attempts.get() != made) throw new IllegalStateException("Reconnect attempted after stop()");
+		return made;
+	}
+
+	private void expectStatus(EventType expected) throws InterruptedException {
+		EventType status = statuses.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		if(expected != status) throw new IllegalStateException("Expected " + expected + " but got " + status);
+	}
+
+	private void awaitDelivered(long samples) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while(delivered.sum() < samples) {
+			if(System.currentTimeMillis() > deadline) throw new IllegalStateException("Delivered " + delivered.sum() + " of " + samples + " raw samples");
+			Thread.sleep(1);
+		}
+	}
+}
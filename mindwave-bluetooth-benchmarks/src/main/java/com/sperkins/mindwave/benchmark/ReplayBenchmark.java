@@ -0,0 +1,83 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.replay.CaptureWriter;
+import com.sperkins.mindwave.replay.ReplayTransport;
+import com.sperkins.mindwave.socket.DecodedPacket;
+import com.sperkins.mindwave.socket.PacketDecoder;
+import com.sperkins.mindwave.socket.PacketFramer;
+
+/**
+ * Packets per second replayed from a memory-mapped capture file, framed and decoded, as fast as possible.
+ * A capture of 1000 packets is looped forever; <code>recordSize</code> is how many bytes each captured read
+ * held, since replay hands back one record per read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+	private static final int CAPTURED_PACKETS = 1000;
+	private static final int PACKETS = 100000;
+
+	@Param({ "64", "1024" })
+	public int recordSize;
+
+	private Path capture;
+	private ReplayTransport replay;
+	private final PacketFramer framer = new PacketFramer();
+	private final DecodedPacket packet = new DecodedPacket();
+
+	@Setup
+	public void setUp() throws IOException {
+		byte[] corpus = Corpora.clean(CAPTURED_PACKETS);
+		capture = Files.createTempFile("mindwave", ".mwcap");
+		CaptureWriter writer = new CaptureWriter(capture, "091A2B3C4D5E");
+		try {
+			for(int offset = 0; offset < corpus.length; offset += recordSize) {
+				writer.record(corpus, offset, Math.min(recordSize, corpus.length - offset));
+			}
+		} finally {
+			writer.close();
+		}
+		replay = ReplayTransport.open(capture, ReplayTransport.Pacing.AS_FAST_AS_POSSIBLE).setLoops(0);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		replay.close();
+		Files.deleteIfExists(capture);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PACKETS)
+	public long replay() throws IOException {
+		long timestamps = 0;
+		for(int i = 0; i < PACKETS; i++) {
+			framer.readPacket(replay);
+			PacketDecoder.decode(framer.getBuffer(), framer.getPayloadOffset(), framer.getPayloadLength(), packet);
+			timestamps += replay.getTimestamp();
+		}
+		return timestamps;
+	}
+}
@@ -0,0 +1,80 @@
+package com.sperkins.mindwave.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+import com.sperkins.mindwave.event.MindwaveDataAdapter;
+import com.sperkins.mindwave.ipc.SharedMemoryPublisher;
+import com.sperkins.mindwave.ipc.SharedMemorySubscriber;
+
+/**
+ * Cost of handing one event through the shared-memory ring: publishing it, and publishing it then reading it
+ * back with a subscriber. Both ends run on one thread here, so the result is the work each side does rather
+ * than the cross-core latency, which adds roughly one cache miss per slot on top.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedMemoryBenchmark {
+	private Path path;
+	private SharedMemoryPublisher publisher;
+	private SharedMemorySubscriber subscriber;
+	private final Sink sink = new Sink();
+	private int sample;
+
+	@Setup
+	public void setUp() throws IOException {
+		Path shm = Paths.get("/dev/shm");
+		path = Files.isDirectory(shm) ? Files.createTempFile(shm, "mindwave", ".ring") : Files.createTempFile("mindwave", ".ring");
+		Files.delete(path);
+		publisher = SharedMemoryPublisher.open(path, 1 << 16, new HeadsetRegistry());
+		subscriber = SharedMemorySubscriber.open(path);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		subscriber.close();
+		publisher.close();
+		Files.deleteIfExists(path);
+	}
+
+	@Benchmark
+	public void publish() {
+		publisher.onRawSample(0, 0L, sample++);
+	}
+
+	@Benchmark
+	public int publishAndPoll() {
+		publisher.onRawSample(0, 0L, sample++);
+		subscriber.poll(sink, 1);
+		return sink.total;
+	}
+
+	private static class Sink extends MindwaveDataAdapter {
+		int total;
+
+		@Override
+		public void onRawSample(int headsetId, long timestamp, int sample) {
+			total += sample;
+		}
+	}
+}
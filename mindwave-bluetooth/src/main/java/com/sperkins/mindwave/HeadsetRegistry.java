@@ -0,0 +1,66 @@
+package com.sperkins.mindwave;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns headset MAC addresses as small integer IDs. IDs start at 0, are never reused and stay valid for the
+ * life of the JVM, so they can be used as array indexes by high-rate consumers instead of comparing strings.
+ */
+public class HeadsetRegistry {
+	private static final HeadsetRegistry INSTANCE = new HeadsetRegistry();
+
+	private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private volatile String[] addresses = new String[16];
+	private int size;
+
+	public static HeadsetRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return the ID for <code>deviceAddress</code>, assigning a new one the first time an address is seen
+	 */
+	public int register(String deviceAddress) {
+		Integer id = ids.get(deviceAddress);
+		if(null != id) return id;
+		synchronized(this) {
+			id = ids.get(deviceAddress);
+			if(null != id) return id;
+			if(size == addresses.length) {
+				addresses = Arrays.copyOf(addresses, size * 2);
+			}
+			String[] current = addresses;
+			current[size] = deviceAddress;
+			id = size++;
+			// Republish the array so readers see the new entry
+			addresses = current;
+			ids.put(deviceAddress, id);
+			return id;
+		}
+	}
+
+	/**
+	 * @return the ID for <code>deviceAddress</code>, or -1 if it has never been registered
+	 */
+	public int getId(String deviceAddress) {
+		Integer id = ids.get(deviceAddress);
+		return null == id ? -1 : id;
+	}
+
+	/**
+	 * @return the MAC address for <code>headsetId</code>, or null if no such ID has been assigned
+	 */
+	public String getAddress(int headsetId) {
+		String[] current = addresses;
+		return headsetId >= 0 && headsetId < current.length ? current[headsetId] : null;
+	}
+
+	/**
+	 * @return the number of IDs assigned so far; every ID is below this value
+	 */
+	public synchronized int size() {
+		return size;
+	}
+}
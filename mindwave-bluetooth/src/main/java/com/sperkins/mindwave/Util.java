@@ -1,11 +1,12 @@
 package com.sperkins.mindwave;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 
 public class Util {
-	private static SimpleDateFormat dateFormat = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
+	// DateTimeFormatter is immutable, so unlike SimpleDateFormat it can be shared between threads
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss");
 	public static String currentDateAsString() {
-		return dateFormat.format(new Date());
+		return DATE_FORMAT.format(LocalDateTime.now());
 	}
 }
@@ -0,0 +1,52 @@
+package com.sperkins.mindwave.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes what a {@link DeltaEncoder} wrote. Input can arrive in pieces of any size: a varint cut off at the end
+ * of a buffer is left unread until more bytes have been appended.
+ */
+public class DeltaDecoder {
+	private int previous;
+
+	public DeltaDecoder() {
+		this(0);
+	}
+
+	/**
+	 * @param previous the sample the encoder started from
+	 */
+	public DeltaDecoder(int previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * Decodes samples into <code>dst</code> until it is full or <code>src</code> runs out.
+	 * @return the number of samples decoded
+	 */
+	public int decode(ByteBuffer src, int[] dst, int offset, int max) {
+		int last = previous;
+		int decoded = 0;
+		// No end-of-buffer checks while a whole varint is certain to be there
+		while(decoded < max && src.remaining() >= Varints.MAX_LENGTH) {
+			last += Varints.unZigZag(Varints.getVarintUnchecked(src));
+			dst[offset + decoded++] = last;
+		}
+		while(decoded < max) {
+			long delta = Varints.getVarint(src);
+			if(delta < 0) break;
+			last += Varints.unZigZag((int) delta);
+			dst[offset + decoded++] = last;
+		}
+		previous = last;
+		return decoded;
+	}
+
+	public int getPrevious() {
+		return previous;
+	}
+
+	public void reset(int previous) {
+		this.previous = previous;
+	}
+}
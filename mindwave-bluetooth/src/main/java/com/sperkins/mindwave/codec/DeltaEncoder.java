@@ -0,0 +1,64 @@
+package com.sperkins.mindwave.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes raw samples as the zig-zag varint of their difference from the previous sample. Neighbouring raw
+ * samples at 512 per second are close together, so most take one or two bytes instead of a 16-bit value
+ * in binary or six characters of text.
+ *
+ * The encoder only keeps the previous sample, so a stream can be encoded in pieces of any size into a buffer
+ * that is drained as it goes. Decode with a {@link DeltaDecoder} that starts from the same previous sample.
+ */
+public class DeltaEncoder {
+	private int previous;
+
+	public DeltaEncoder() {
+		this(0);
+	}
+
+	/**
+	 * @param previous the sample the first delta is taken from
+	 */
+	public DeltaEncoder(int previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * Encodes as many samples as fit into <code>dst</code>.
+	 * @return the number of samples encoded; fewer than <code>count</code> once <code>dst</code> is nearly full
+	 */
+	public int encode(int[] samples, int offset, int count, ByteBuffer dst) {
+		int last = previous;
+		int encoded = 0;
+		while(encoded < count && dst.remaining() >= Varints.MAX_LENGTH) {
+			int sample = samples[offset + encoded];
+			Varints.putVarint(dst, Varints.zigZag(sample - last));
+			last = sample;
+			encoded++;
+		}
+		previous = last;
+		return encoded;
+	}
+
+	/**
+	 * @return false, encoding nothing, if <code>dst</code> might not have room
+	 */
+	public boolean encode(int sample, ByteBuffer dst) {
+		if(dst.remaining() < Varints.MAX_LENGTH) return false;
+		Varints.putVarint(dst, Varints.zigZag(sample - previous));
+		previous = sample;
+		return true;
+	}
+
+	public int getPrevious() {
+		return previous;
+	}
+
+	/**
+	 * Starts a new stream, e.g. at a block boundary that must be decodable on its own.
+	 */
+	public void reset(int previous) {
+		this.previous = previous;
+	}
+}
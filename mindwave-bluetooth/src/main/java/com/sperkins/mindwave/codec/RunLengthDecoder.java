@@ -0,0 +1,47 @@
+package com.sperkins.mindwave.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes what a {@link RunLengthEncoder} wrote. A run can be spread over several calls, and a run cut off at
+ * the end of a buffer is left unread until more bytes have been appended.
+ */
+public class RunLengthDecoder {
+	private int value;
+	private int remaining;
+
+	/**
+	 * Expands runs into <code>dst</code> until it is full or <code>src</code> runs out.
+	 * @return the number of values decoded
+	 */
+	public int decode(ByteBuffer src, int[] dst, int offset, int max) {
+		int decoded = 0;
+		while(decoded < max) {
+			if(remaining == 0) {
+				int start = src.position();
+				long encodedValue = Varints.getVarint(src);
+				if(encodedValue < 0) break;
+				long run = Varints.getVarint(src);
+				if(run < 0) {
+					src.position(start);
+					break;
+				}
+				value = Varints.unZigZag((int) encodedValue);
+				remaining = (int) run;
+			}
+			int count = Math.min(remaining, max - decoded);
+			Arrays.fill(dst, offset + decoded, offset + decoded + count, value);
+			decoded += count;
+			remaining -= count;
+		}
+		return decoded;
+	}
+
+	/**
+	 * Forgets the rest of the current run.
+	 */
+	public void reset() {
+		remaining = 0;
+	}
+}
@@ -0,0 +1,54 @@
+package com.sperkins.mindwave.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes slowly changing values, such as attention, meditation and signal quality, as runs: the zig-zag varint
+ * of a value followed by the varint of how many times in a row it occurred. A run is written once a different
+ * value arrives, or on {@link #flush(ByteBuffer)}, so call that at the end of a stream.
+ */
+public class RunLengthEncoder {
+	// Room for a value and a run length
+	private static final int MAX_RUN_LENGTH = 2 * Varints.MAX_LENGTH;
+
+	private int value;
+	private int run;
+
+	/**
+	 * @return false, consuming nothing, if a finished run had to be written and <code>dst</code> might not have room
+	 */
+	public boolean encode(int value, ByteBuffer dst) {
+		if(run > 0 && value == this.value && run < Integer.MAX_VALUE) {
+			run++;
+			return true;
+		}
+		if(!flush(dst)) return false;
+		this.value = value;
+		run = 1;
+		return true;
+	}
+
+	/**
+	 * @return the number of values consumed; fewer than <code>count</code> once <code>dst</code> is nearly full
+	 */
+	public int encode(int[] values, int offset, int count, ByteBuffer dst) {
+		int encoded = 0;
+		while(encoded < count && encode(values[offset + encoded], dst)) {
+			encoded++;
+		}
+		return encoded;
+	}
+
+	/**
+	 * Writes the current run, if there is one.
+	 * @return false if <code>dst</code> might not have room, in which case the run is kept
+	 */
+	public boolean flush(ByteBuffer dst) {
+		if(run == 0) return true;
+		if(dst.remaining() < MAX_RUN_LENGTH) return false;
+		Varints.putVarint(dst, Varints.zigZag(value));
+		Varints.putVarint(dst, run);
+		run = 0;
+		return true;
+	}
+}
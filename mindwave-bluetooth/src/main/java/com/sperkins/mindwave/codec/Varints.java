@@ -0,0 +1,83 @@
+package com.sperkins.mindwave.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Base-128 variable-length integers, least significant group first with the high bit set on every byte but
+ * the last, as used by Protocol Buffers. Signed values are zig-zag mapped first so small negative numbers stay short.
+ */
+public final class Varints {
+	/** The most bytes an int can take. */
+	public static final int MAX_LENGTH = 5;
+
+	private Varints() {}
+
+	public static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	public static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes <code>value</code> as an unsigned varint.
+	 * @throws java.nio.BufferOverflowException if <code>dst</code> is too full; check for {@link #MAX_LENGTH} bytes first
+	 */
+	public static void putVarint(ByteBuffer dst, int value) {
+		while((value & ~0x7F) != 0) {
+			dst.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		dst.put((byte) value);
+	}
+
+	/**
+	 * Reads an unsigned varint.
+	 * @return the value, 0 to 2^32 - 1, or -1 with the position unchanged if <code>src</code> ends partway through it
+	 * @throws IllegalArgumentException if the varint is longer than {@link #MAX_LENGTH} bytes
+	 */
+	public static long getVarint(ByteBuffer src) {
+		int start = src.position();
+		int result = 0;
+		for(int shift = 0; shift < 7 * MAX_LENGTH; shift += 7) {
+			if(!src.hasRemaining()) {
+				src.position(start);
+				return -1;
+			}
+			byte b = src.get();
+			result |= (b & 0x7F) << shift;
+			if(b >= 0) return result & 0xFFFFFFFFL;
+		}
+		throw new IllegalArgumentException("Malformed varint at position " + start);
+	}
+
+	/**
+	 * Reads an unsigned varint without checking for the end of the buffer; only call it with at least
+	 * {@link #MAX_LENGTH} bytes remaining.
+	 * @throws IllegalArgumentException if the varint is longer than {@link #MAX_LENGTH} bytes
+	 */
+	static int getVarintUnchecked(ByteBuffer src) {
+		byte b = src.get();
+		if(b >= 0) return b;
+		int result = b & 0x7F;
+		for(int shift = 7; shift < 7 * MAX_LENGTH; shift += 7) {
+			b = src.get();
+			result |= (b & 0x7F) << shift;
+			if(b >= 0) return result;
+		}
+		throw new IllegalArgumentException("Malformed varint at position " + (src.position() - MAX_LENGTH));
+	}
+
+	/**
+	 * @return the number of bytes <code>value</code> takes as an unsigned varint
+	 */
+	public static int length(int value) {
+		int length = 1;
+		while((value & ~0x7F) != 0) {
+			value >>>= 7;
+			length++;
+		}
+		return length;
+	}
+}
@@ -0,0 +1,13 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * Kinds of non-brain disturbance a {@link BlinkDetector} recognizes in the raw signal.
+ */
+public enum Artifact {
+	/** The signal is at the ends of the converter's range, e.g. the electrode lost contact. */
+	SATURATION,
+	/** A jump too steep to be EEG or a blink, typically the electrode shifting on the skin. */
+	ELECTRODE_POP,
+	/** An excursion too large or too long to be a blink, e.g. head or jaw movement. */
+	MOTION
+}
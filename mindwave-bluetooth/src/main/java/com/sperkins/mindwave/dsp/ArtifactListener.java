@@ -0,0 +1,17 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * Receives artifact flags from a {@link BlinkDetector}. Samples between the two calls shouldn't be trusted.
+ */
+public interface ArtifactListener {
+	/**
+	 * @param headsetId the headset's {@link com.sperkins.mindwave.HeadsetRegistry} ID
+	 * @param timestamp arrival time of the sample that revealed the artifact, in milliseconds since the epoch
+	 */
+	public void onArtifact(int headsetId, long timestamp, Artifact artifact);
+
+	/**
+	 * The signal has been clean again for the detector's refractory period.
+	 */
+	public void onArtifactCleared(int headsetId, long timestamp);
+}
@@ -0,0 +1,28 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * The classic EEG frequency bands, lower bound inclusive and upper bound exclusive.
+ */
+public enum Band {
+	DELTA(0.5, 4),
+	THETA(4, 8),
+	ALPHA(8, 13),
+	BETA(13, 30),
+	GAMMA(30, 100);
+
+	private final double lowHz;
+	private final double highHz;
+
+	private Band(double lowHz, double highHz) {
+		this.lowHz = lowHz;
+		this.highHz = highHz;
+	}
+
+	public double getLowHz() {
+		return lowHz;
+	}
+
+	public double getHighHz() {
+		return highHz;
+	}
+}
@@ -0,0 +1,171 @@
+package com.sperkins.mindwave.dsp;
+
+import java.util.Arrays;
+
+import com.sperkins.mindwave.event.MindwaveDataAdapter;
+
+/**
+ * Computes EEG band powers from each headset's raw samples over sliding, overlapping windows:
+ * <pre>
+ * socket.addDataListener(new BandPowerAnalyzer(myBandPowerListener));
+ * </pre>
+ * Every <code>hopSize</code> samples, the newest <code>windowSize</code> samples are multiplied by a Hann window,
+ * transformed with an {@link Fft}, and the one-sided power spectrum is summed into the {@link Band}s. The default
+ * 512-sample window with a 256-sample hop gives two results per second per headset with 1Hz resolution; a hop of
+ * 128 gives four. Band powers are computed from the unscaled samples, unlike the headset's own
+ * <code>ASIC_EEG_POWER</code> values, which arrive once a second.
+ *
+ * Each headset has its own preallocated sample ring, FFT buffers and result, so analysis doesn't allocate.
+ * Samples for a headset must arrive from one thread at a time, which is how the socket delivers them.
+ */
+public class BandPowerAnalyzer extends MindwaveDataAdapter {
+	public static final int DEFAULT_SAMPLE_RATE = 512;
+	public static final int DEFAULT_WINDOW_SIZE = 512;
+	public static final int DEFAULT_HOP_SIZE = 256;
+
+	private static final Band[] BANDS = Band.values();
+
+	private final int windowSize;
+	private final int hopSize;
+	private final BandPowerListener target;
+	private final Fft fft;
+	private final double[] window;
+	private final double scale;
+	// Band each FFT bin falls into, or -1
+	private final int[] binBands;
+	private volatile HeadsetState[] states = new HeadsetState[16];
+
+	public BandPowerAnalyzer(BandPowerListener target) {
+		this(DEFAULT_SAMPLE_RATE, DEFAULT_WINDOW_SIZE, DEFAULT_HOP_SIZE, target);
+	}
+
+	/**
+	 * @param sampleRate raw samples per second; the Mindwave Mobile sends 512
+	 * @param windowSize samples per analysis window, a power of two
+	 * @param hopSize samples between windows, 1 to <code>windowSize</code>
+	 * @param target receives the band powers
+	 */
+	public BandPowerAnalyzer(int sampleRate, int windowSize, int hopSize, BandPowerListener target) {
+		if(sampleRate < 1) throw new IllegalArgumentException("sampleRate must be positive");
+		if(hopSize < 1 || hopSize > windowSize) throw new IllegalArgumentException("hopSize must be between 1 and windowSize");
+		if(null == target) throw new NullPointerException("target cannot be null");
+		this.fft = new Fft(windowSize);
+		this.windowSize = windowSize;
+		this.hopSize = hopSize;
+		this.target = target;
+
+		window = new double[windowSize];
+		double windowEnergy = 0;
+		for(int i = 0; i < windowSize; i++) {
+			window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (windowSize - 1));
+			windowEnergy += window[i] * window[i];
+		}
+		// One-sided power, corrected for the energy the window takes out
+		scale = 2 / (windowSize * windowEnergy);
+
+		binBands = new int[windowSize / 2 + 1];
+		double binHz = (double) sampleRate / windowSize;
+		for(int bin = 0; bin < binBands.length; bin++) {
+			double frequency = bin * binHz;
+			binBands[bin] = -1;
+			for(Band band: BANDS) {
+				if(frequency >= band.getLowHz() && frequency < band.getHighHz()) binBands[bin] = band.ordinal();
+			}
+		}
+	}
+
+	@Override
+	public void onRawSample(int headsetId, long timestamp, int sample) {
+		HeadsetState state = stateFor(headsetId);
+		state.samples[state.next] = sample;
+		state.next = (state.next + 1) & (windowSize - 1);
+		if(state.filled < windowSize) state.filled++;
+		if(++state.sinceLastWindow >= hopSize && state.filled == windowSize) {
+			state.sinceLastWindow = 0;
+			analyze(state);
+			target.onBandPower(headsetId, timestamp, state.result);
+		}
+	}
+
+	private void analyze(HeadsetState state) {
+		double[] real = state.real;
+		double[] imaginary = state.imaginary;
+		// Oldest sample first; remove the mean so DC doesn't leak into delta
+		double mean = 0;
+		for(int i = 0; i < windowSize; i++) {
+			mean += state.samples[i];
+		}
+		mean /= windowSize;
+		for(int i = 0, j = state.next; i < windowSize; i++, j = (j + 1) & (windowSize - 1)) {
+			real[i] = (state.samples[j] - mean) * window[i];
+			imaginary[i] = 0;
+		}
+		fft.transform(real, imaginary);
+
+		double[] bands = state.bands;
+		Arrays.fill(bands, 0);
+		for(int bin = 0; bin < binBands.length; bin++) {
+			int band = binBands[bin];
+			if(band >= 0) bands[band] += (real[bin] * real[bin] + imaginary[bin] * imaginary[bin]) * scale;
+		}
+		state.result.set(bands);
+	}
+
+	/**
+	 * Forgets a headset's buffered samples, e.g. after it has reconnected.
+	 */
+	public void reset(int headsetId) {
+		HeadsetState[] current = states;
+		if(headsetId < current.length && null != current[headsetId]) current[headsetId].reset();
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public int getHopSize() {
+		return hopSize;
+	}
+
+	private HeadsetState stateFor(int headsetId) {
+		HeadsetState[] current = states;
+		if(headsetId < current.length) {
+			HeadsetState state = current[headsetId];
+			if(null != state) return state;
+		}
+		synchronized(this) {
+			current = states;
+			if(headsetId >= current.length) {
+				current = Arrays.copyOf(current, Math.max(headsetId + 1, current.length * 2));
+			}
+			if(null == current[headsetId]) {
+				current[headsetId] = new HeadsetState(windowSize);
+			}
+			states = current;
+			return current[headsetId];
+		}
+	}
+
+	private static class HeadsetState {
+		final int[] samples;
+		final double[] real;
+		final double[] imaginary;
+		final double[] bands = new double[BANDS.length];
+		final BandPowers result = new BandPowers();
+		int next;
+		int filled;
+		int sinceLastWindow;
+
+		HeadsetState(int windowSize) {
+			samples = new int[windowSize];
+			real = new double[windowSize];
+			imaginary = new double[windowSize];
+		}
+
+		void reset() {
+			next = 0;
+			filled = 0;
+			sinceLastWindow = 0;
+		}
+	}
+}
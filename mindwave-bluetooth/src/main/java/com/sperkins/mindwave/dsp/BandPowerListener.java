@@ -0,0 +1,13 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * Receives band powers from a {@link BandPowerAnalyzer}.
+ */
+public interface BandPowerListener {
+	/**
+	 * @param headsetId the headset's {@link com.sperkins.mindwave.HeadsetRegistry} ID
+	 * @param timestamp arrival time of the newest sample in the window, in milliseconds since the epoch
+	 * @param powers the band powers; reused for the next window, so copy anything you want to keep
+	 */
+	public void onBandPower(int headsetId, long timestamp, BandPowers powers);
+}
@@ -0,0 +1,68 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * Power per {@link Band} for one analysis window, in squared raw sample units. The same instance is refilled
+ * for every window of a headset, so copy out anything you want to keep.
+ */
+public class BandPowers {
+	private static final Band[] BANDS = Band.values();
+
+	private final double[] power = new double[BANDS.length];
+	private double total;
+
+	public double get(Band band) {
+		return power[band.ordinal()];
+	}
+
+	public double getDelta() {
+		return power[Band.DELTA.ordinal()];
+	}
+
+	public double getTheta() {
+		return power[Band.THETA.ordinal()];
+	}
+
+	public double getAlpha() {
+		return power[Band.ALPHA.ordinal()];
+	}
+
+	public double getBeta() {
+		return power[Band.BETA.ordinal()];
+	}
+
+	public double getGamma() {
+		return power[Band.GAMMA.ordinal()];
+	}
+
+	/**
+	 * @return the power of all bands together
+	 */
+	public double getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the share of the total power in <code>band</code>, 0 to 1
+	 */
+	public double getRelative(Band band) {
+		return total == 0 ? 0 : power[band.ordinal()] / total;
+	}
+
+	void set(double[] values) {
+		total = 0;
+		for(int i = 0; i < power.length; i++) {
+			power[i] = values[i];
+			total += values[i];
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for(Band band: BANDS) {
+			if(builder.length() > 0) builder.append(", ");
+			builder.append(band.name().toLowerCase()).append('=').append(power[band.ordinal()]);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,88 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * Second-order IIR section in transposed direct form II, with coefficients from the RBJ audio EQ cookbook.
+ */
+public class Biquad extends Filter {
+	public static final double BUTTERWORTH_Q = Math.sqrt(0.5);
+
+	private final double b0;
+	private final double b1;
+	private final double b2;
+	private final double a1;
+	private final double a2;
+	private double z1;
+	private double z2;
+
+	/**
+	 * Coefficients normalized so that a0 is 1.
+	 */
+	public Biquad(double b0, double b1, double b2, double a1, double a2) {
+		this.b0 = b0;
+		this.b1 = b1;
+		this.b2 = b2;
+		this.a1 = a1;
+		this.a2 = a2;
+	}
+
+	/**
+	 * @param q higher is narrower; 30 removes about 2Hz around 60Hz
+	 */
+	public static Biquad notch(double sampleRate, double frequency, double q) {
+		double w0 = omega(sampleRate, frequency);
+		double alpha = Math.sin(w0) / (2 * q);
+		double cos = Math.cos(w0);
+		return normalized(1, -2 * cos, 1, 1 + alpha, -2 * cos, 1 - alpha);
+	}
+
+	public static Biquad lowPass(double sampleRate, double frequency, double q) {
+		double w0 = omega(sampleRate, frequency);
+		double alpha = Math.sin(w0) / (2 * q);
+		double cos = Math.cos(w0);
+		return normalized((1 - cos) / 2, 1 - cos, (1 - cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+	}
+
+	public static Biquad highPass(double sampleRate, double frequency, double q) {
+		double w0 = omega(sampleRate, frequency);
+		double alpha = Math.sin(w0) / (2 * q);
+		double cos = Math.cos(w0);
+		return normalized((1 + cos) / 2, -(1 + cos), (1 + cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+	}
+
+	private static double omega(double sampleRate, double frequency) {
+		if(frequency <= 0 || frequency >= sampleRate / 2) throw new IllegalArgumentException("frequency must be between 0 and " + sampleRate / 2 + "Hz");
+		return 2 * Math.PI * frequency / sampleRate;
+	}
+
+	private static Biquad normalized(double b0, double b1, double b2, double a0, double a1, double a2) {
+		return new Biquad(b0 / a0, b1 / a0, b2 / a0, a1 / a0, a2 / a0);
+	}
+
+	@Override
+	public int process(double[] samples, int count) {
+		// State lives in locals for the whole block
+		double s1 = z1;
+		double s2 = z2;
+		for(int i = 0; i < count; i++) {
+			double x = samples[i];
+			double y = b0 * x + s1;
+			s1 = b1 * x - a1 * y + s2;
+			s2 = b2 * x - a2 * y;
+			samples[i] = y;
+		}
+		z1 = s1;
+		z2 = s2;
+		return count;
+	}
+
+	@Override
+	public void reset() {
+		z1 = 0;
+		z2 = 0;
+	}
+
+	@Override
+	public Filter copy() {
+		return new Biquad(b0, b1, b2, a1, a2);
+	}
+}
@@ -0,0 +1,326 @@
+package com.sperkins.mindwave.dsp;
+
+import java.util.Arrays;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+import com.sperkins.mindwave.event.BlinkEvent;
+import com.sperkins.mindwave.event.MindwaveDataAdapter;
+import com.sperkins.mindwave.event.MindwaveEventListener;
+
+/**
+ * Detects eye blinks and artifacts in each headset's raw samples as they arrive, so blinks are available
+ * without the ThinkGear Connector:
+ * <pre>
+ * socket.addDataListener(new BlinkDetector(myEventListener).setArtifactListener(myArtifactListener));
+ * </pre>
+ * A blink shows up at the forehead electrode as a smooth excursion of a few hundred raw units lasting 50 to 500ms.
+ * The detector smooths the signal over about 8ms and measures how far it strays from a slow baseline (about one
+ * second). An excursion beyond {@link #setMinAmplitude(int)}, or beyond {@link #setNoiseMultiplier(double)}
+ * times the recent background level if that is higher, starts a candidate. When it returns inside half of
+ * that threshold, a candidate of blink length becomes a {@link BlinkEvent} whose strength, 1 to 255, scales
+ * with its peak the way the ThinkGear blink strength does.
+ *
+ * Artifacts are flagged on the sample that reveals them: saturation and electrode pops at once, excursions
+ * beyond the motion amplitude at once, and too-long excursions when they outlast the longest blink. Blink
+ * detection is suspended until the signal has been quiet for the refractory period.
+ *
+ * Every sample costs a fixed handful of arithmetic operations, and per-headset state is preallocated.
+ * Samples for a headset must arrive from one thread at a time, which is how the socket delivers them.
+ */
+public class BlinkDetector extends MindwaveDataAdapter {
+	public static final int DEFAULT_SAMPLE_RATE = 512;
+
+	private static final int IDLE = 0;
+	private static final int CANDIDATE = 1;
+	private static final int ARTIFACT = 2;
+
+	private final int sampleRate;
+	private final MindwaveEventListener target;
+	private final HeadsetRegistry registry;
+	private volatile ArtifactListener artifactListener;
+	private final double fastAlpha;
+	private final double baselineAlpha;
+	private final double noiseAlpha;
+	private volatile int minAmplitude = 150;
+	private volatile double noiseMultiplier = 6;
+	private volatile int motionAmplitude = 1500;
+	private volatile int popAmplitude = 600;
+	private volatile int saturationLevel = 2000;
+	private volatile int minBlinkSamples;
+	private volatile int maxBlinkSamples;
+	private volatile int refractorySamples;
+	private volatile HeadsetState[] states = new HeadsetState[16];
+
+	public BlinkDetector(MindwaveEventListener target) {
+		this(DEFAULT_SAMPLE_RATE, target, HeadsetRegistry.getInstance());
+	}
+
+	/**
+	 * @param sampleRate raw samples per second; the Mindwave Mobile sends 512
+	 * @param target receives a {@link BlinkEvent} for each blink
+	 * @param registry resolves headset IDs to the addresses the events carry
+	 */
+	public BlinkDetector(int sampleRate, MindwaveEventListener target, HeadsetRegistry registry) {
+		if(sampleRate < 1) throw new IllegalArgumentException("sampleRate must be positive");
+		if(null == target) throw new NullPointerException("target cannot be null");
+		this.sampleRate = sampleRate;
+		this.target = target;
+		this.registry = registry;
+		fastAlpha = alpha(0.008);
+		baselineAlpha = alpha(1);
+		noiseAlpha = alpha(2);
+		setMinBlinkMillis(40);
+		setMaxBlinkMillis(500);
+		setRefractoryMillis(200);
+	}
+
+	// Smoothing factor of an exponential moving average with the given time constant
+	private double alpha(double seconds) {
+		return 1 - Math.exp(-1 / (seconds * sampleRate));
+	}
+
+	@Override
+	public void onRawSample(int headsetId, long timestamp, int sample) {
+		HeadsetState s = stateFor(headsetId);
+		if(!s.primed) {
+			s.fast = sample;
+			s.baseline = sample;
+			s.previous = sample;
+			s.primed = true;
+		}
+		int step = Math.abs(sample - s.previous);
+		s.previous = sample;
+		s.fast += fastAlpha * (sample - s.fast);
+		double deviation = s.fast - s.baseline;
+		double magnitude = Math.abs(deviation);
+		double threshold = Math.max(minAmplitude, noiseMultiplier * s.noise);
+
+		Artifact artifact = null;
+		if(Math.abs(sample) >= saturationLevel) {
+			artifact = Artifact.SATURATION;
+		} else if(step >= popAmplitude) {
+			artifact = Artifact.ELECTRODE_POP;
+		} else if(magnitude >= motionAmplitude) {
+			artifact = Artifact.MOTION;
+		}
+
+		switch(s.phase) {
+		case IDLE:
+			if(null != artifact) {
+				startArtifact(headsetId, timestamp, s, artifact);
+			} else if(magnitude >= threshold) {
+				s.phase = CANDIDATE;
+				s.length = 1;
+				s.peak = magnitude;
+			} else {
+				s.noise += noiseAlpha * (magnitude - s.noise);
+				s.baseline += baselineAlpha * (s.fast - s.baseline);
+			}
+			break;
+		case CANDIDATE:
+			// The baseline holds still so the blink doesn't drag it along
+			if(null != artifact) {
+				startArtifact(headsetId, timestamp, s, artifact);
+			} else if(++s.length > maxBlinkSamples) {
+				startArtifact(headsetId, timestamp, s, Artifact.MOTION);
+			} else if(magnitude > s.peak) {
+				s.peak = magnitude;
+			} else if(magnitude < threshold / 2) {
+				s.phase = IDLE;
+				if(s.length >= minBlinkSamples) blink(headsetId, s.peak);
+			}
+			break;
+		default:
+			// Let the baseline follow any DC shift the artifact left behind
+			s.baseline += baselineAlpha * (s.fast - s.baseline);
+			if(null != artifact || magnitude >= threshold) {
+				s.quiet = 0;
+			} else if(++s.quiet >= refractorySamples) {
+				s.phase = IDLE;
+				ArtifactListener listener = artifactListener;
+				if(null != listener) listener.onArtifactCleared(headsetId, timestamp);
+			}
+			break;
+		}
+	}
+
+	private void startArtifact(int headsetId, long timestamp, HeadsetState s, Artifact artifact) {
+		s.phase = ARTIFACT;
+		s.quiet = 0;
+		s.artifact = artifact;
+		ArtifactListener listener = artifactListener;
+		if(null != listener) listener.onArtifact(headsetId, timestamp, artifact);
+	}
+
+	private void blink(int headsetId, double peak) {
+		int strength = (int) Math.round(255 * peak / motionAmplitude);
+		target.onEvent(new BlinkEvent(registry.getAddress(headsetId), Math.max(1, Math.min(255, strength))));
+	}
+
+	/**
+	 * @return whether the headset's signal is currently flagged as an artifact
+	 */
+	public boolean isArtifact(int headsetId) {
+		HeadsetState[] current = states;
+		return headsetId < current.length && null != current[headsetId] && current[headsetId].phase == ARTIFACT;
+	}
+
+	/**
+	 * @return the artifact the headset is flagged with, or null if its signal is clean
+	 */
+	public Artifact getArtifact(int headsetId) {
+		HeadsetState[] current = states;
+		if(headsetId >= current.length || null == current[headsetId]) return null;
+		HeadsetState state = current[headsetId];
+		return state.phase == ARTIFACT ? state.artifact : null;
+	}
+
+	/**
+	 * Forgets a headset's baseline, e.g. after it has reconnected.
+	 */
+	public void reset(int headsetId) {
+		HeadsetState[] current = states;
+		if(headsetId < current.length && null != current[headsetId]) current[headsetId] = new HeadsetState();
+	}
+
+	public ArtifactListener getArtifactListener() {
+		return artifactListener;
+	}
+
+	public BlinkDetector setArtifactListener(ArtifactListener artifactListener) {
+		this.artifactListener = artifactListener;
+		return this;
+	}
+
+	public int getMinAmplitude() {
+		return minAmplitude;
+	}
+
+	/**
+	 * @param minAmplitude smallest excursion from the baseline, in raw units, that can be a blink
+	 */
+	public BlinkDetector setMinAmplitude(int minAmplitude) {
+		if(minAmplitude < 1) throw new IllegalArgumentException("minAmplitude must be positive");
+		this.minAmplitude = minAmplitude;
+		return this;
+	}
+
+	public double getNoiseMultiplier() {
+		return noiseMultiplier;
+	}
+
+	/**
+	 * @param noiseMultiplier how many times the background level an excursion must reach on a noisy signal
+	 */
+	public BlinkDetector setNoiseMultiplier(double noiseMultiplier) {
+		if(noiseMultiplier <= 0) throw new IllegalArgumentException("noiseMultiplier must be positive");
+		this.noiseMultiplier = noiseMultiplier;
+		return this;
+	}
+
+	public int getMotionAmplitude() {
+		return motionAmplitude;
+	}
+
+	/**
+	 * @param motionAmplitude excursion from the baseline, in raw units, beyond which it's movement rather than a blink; also the excursion that scores a blink strength of 255
+	 */
+	public BlinkDetector setMotionAmplitude(int motionAmplitude) {
+		if(motionAmplitude < 1) throw new IllegalArgumentException("motionAmplitude must be positive");
+		this.motionAmplitude = motionAmplitude;
+		return this;
+	}
+
+	public int getPopAmplitude() {
+		return popAmplitude;
+	}
+
+	/**
+	 * @param popAmplitude change between consecutive samples, in raw units, that counts as an electrode pop
+	 */
+	public BlinkDetector setPopAmplitude(int popAmplitude) {
+		if(popAmplitude < 1) throw new IllegalArgumentException("popAmplitude must be positive");
+		this.popAmplitude = popAmplitude;
+		return this;
+	}
+
+	public int getSaturationLevel() {
+		return saturationLevel;
+	}
+
+	/**
+	 * @param saturationLevel absolute raw value at which the signal counts as clipped
+	 */
+	public BlinkDetector setSaturationLevel(int saturationLevel) {
+		if(saturationLevel < 1) throw new IllegalArgumentException("saturationLevel must be positive");
+		this.saturationLevel = saturationLevel;
+		return this;
+	}
+
+	public long getMinBlinkMillis() {
+		return minBlinkSamples * 1000L / sampleRate;
+	}
+
+	public BlinkDetector setMinBlinkMillis(long minBlinkMillis) {
+		this.minBlinkSamples = samples(minBlinkMillis);
+		return this;
+	}
+
+	public long getMaxBlinkMillis() {
+		return maxBlinkSamples * 1000L / sampleRate;
+	}
+
+	public BlinkDetector setMaxBlinkMillis(long maxBlinkMillis) {
+		this.maxBlinkSamples = samples(maxBlinkMillis);
+		return this;
+	}
+
+	public long getRefractoryMillis() {
+		return refractorySamples * 1000L / sampleRate;
+	}
+
+	/**
+	 * @param refractoryMillis how long the signal must stay clean before an artifact is cleared
+	 */
+	public BlinkDetector setRefractoryMillis(long refractoryMillis) {
+		this.refractorySamples = samples(refractoryMillis);
+		return this;
+	}
+
+	private int samples(long millis) {
+		if(millis < 0) throw new IllegalArgumentException("millis cannot be negative");
+		return (int) Math.max(1, millis * sampleRate / 1000);
+	}
+
+	private HeadsetState stateFor(int headsetId) {
+		HeadsetState[] current = states;
+		if(headsetId < current.length) {
+			HeadsetState state = current[headsetId];
+			if(null != state) return state;
+		}
+		synchronized(this) {
+			current = states;
+			if(headsetId >= current.length) {
+				current = Arrays.copyOf(current, Math.max(headsetId + 1, current.length * 2));
+			}
+			if(null == current[headsetId]) {
+				current[headsetId] = new HeadsetState();
+			}
+			states = current;
+			return current[headsetId];
+		}
+	}
+
+	private static class HeadsetState {
+		boolean primed;
+		double fast;
+		double baseline;
+		double noise;
+		int previous;
+		int phase = IDLE;
+		int length;
+		double peak;
+		int quiet;
+		Artifact artifact;
+	}
+}
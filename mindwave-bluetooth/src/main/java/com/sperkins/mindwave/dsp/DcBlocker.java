@@ -0,0 +1,44 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * Removes the DC offset and slow drift with the one-pole high-pass <code>y[n] = x[n] - x[n-1] + r * y[n-1]</code>.
+ */
+public class DcBlocker extends Filter {
+	private final double r;
+	private double previousInput;
+	private double previousOutput;
+
+	/**
+	 * @param r pole radius just below 1; 0.995 at 512Hz puts the corner near 0.4Hz
+	 */
+	public DcBlocker(double r) {
+		if(r <= 0 || r >= 1) throw new IllegalArgumentException("r must be between 0 and 1");
+		this.r = r;
+	}
+
+	@Override
+	public int process(double[] samples, int count) {
+		double x1 = previousInput;
+		double y1 = previousOutput;
+		for(int i = 0; i < count; i++) {
+			double x = samples[i];
+			y1 = x - x1 + r * y1;
+			x1 = x;
+			samples[i] = y1;
+		}
+		previousInput = x1;
+		previousOutput = y1;
+		return count;
+	}
+
+	@Override
+	public void reset() {
+		previousInput = 0;
+		previousOutput = 0;
+	}
+
+	@Override
+	public Filter copy() {
+		return new DcBlocker(r);
+	}
+}
@@ -0,0 +1,41 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * Keeps every <code>factor</code>th sample. Sample positions carry across blocks, so the output rate is exact
+ * whatever the block size. Band-limit the signal first; {@link FilterChain#decimate(int)} does that for you.
+ */
+public class Decimator extends Filter {
+	private final int factor;
+	private int phase;
+
+	public Decimator(int factor) {
+		if(factor < 1) throw new IllegalArgumentException("factor must be at least 1");
+		this.factor = factor;
+	}
+
+	@Override
+	public int process(double[] samples, int count) {
+		int out = 0;
+		int p = phase;
+		for(int i = 0; i < count; i++) {
+			if(p == 0) samples[out++] = samples[i];
+			if(++p == factor) p = 0;
+		}
+		phase = p;
+		return out;
+	}
+
+	@Override
+	public void reset() {
+		phase = 0;
+	}
+
+	@Override
+	public Filter copy() {
+		return new Decimator(factor);
+	}
+
+	public int getFactor() {
+		return factor;
+	}
+}
@@ -0,0 +1,73 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * In-place radix-2 FFT of a fixed size. Twiddle factors and the bit-reversal permutation are computed once
+ * in the constructor, so a transform does no trigonometry and allocates nothing. An instance holds no state
+ * between calls and can be shared by any number of threads.
+ */
+public class Fft {
+	private final int size;
+	private final int[] bitReversed;
+	private final double[] cos;
+	private final double[] sin;
+
+	/**
+	 * @param size a power of two, at least 2
+	 */
+	public Fft(int size) {
+		if(size < 2 || Integer.bitCount(size) != 1) throw new IllegalArgumentException("size must be a power of two");
+		this.size = size;
+		int bits = Integer.numberOfTrailingZeros(size);
+		bitReversed = new int[size];
+		for(int i = 0; i < size; i++) {
+			bitReversed[i] = Integer.reverse(i) >>> (32 - bits);
+		}
+		cos = new double[size / 2];
+		sin = new double[size / 2];
+		for(int i = 0; i < size / 2; i++) {
+			double angle = -2 * Math.PI * i / size;
+			cos[i] = Math.cos(angle);
+			sin[i] = Math.sin(angle);
+		}
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Replaces <code>real</code> and <code>imaginary</code> with their forward transform.
+	 * Both arrays must hold at least {@link #getSize()} values.
+	 */
+	public void transform(double[] real, double[] imaginary) {
+		for(int i = 0; i < size; i++) {
+			int j = bitReversed[i];
+			if(j > i) {
+				double t = real[i];
+				real[i] = real[j];
+				real[j] = t;
+				t = imaginary[i];
+				imaginary[i] = imaginary[j];
+				imaginary[j] = t;
+			}
+		}
+		for(int length = 2; length <= size; length <<= 1) {
+			int half = length >> 1;
+			int step = size / length;
+			for(int start = 0; start < size; start += length) {
+				for(int k = 0, twiddle = 0; k < half; k++, twiddle += step) {
+					int even = start + k;
+					int odd = even + half;
+					double wr = cos[twiddle];
+					double wi = sin[twiddle];
+					double oddReal = real[odd] * wr - imaginary[odd] * wi;
+					double oddImaginary = real[odd] * wi + imaginary[odd] * wr;
+					real[odd] = real[even] - oddReal;
+					imaginary[odd] = imaginary[even] - oddImaginary;
+					real[even] += oddReal;
+					imaginary[even] += oddImaginary;
+				}
+			}
+		}
+	}
+}
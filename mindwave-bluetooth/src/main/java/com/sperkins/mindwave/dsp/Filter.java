@@ -0,0 +1,23 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * One stage of a {@link FilterChain}. Stages work in place on blocks of samples and keep their state in
+ * primitive fields between blocks, so a headset's stream can be filtered block by block without allocating.
+ */
+public abstract class Filter {
+	/**
+	 * Filters <code>samples[0..count)</code> in place.
+	 * @return the number of samples now in the block, which is only smaller than <code>count</code> for decimation
+	 */
+	public abstract int process(double[] samples, int count);
+
+	/**
+	 * Clears the state carried from one block to the next.
+	 */
+	public abstract void reset();
+
+	/**
+	 * @return a filter with the same settings and fresh state, for another headset
+	 */
+	public abstract Filter copy();
+}
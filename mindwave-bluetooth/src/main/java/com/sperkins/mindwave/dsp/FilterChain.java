@@ -0,0 +1,126 @@
+package com.sperkins.mindwave.dsp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ordered list of {@link Filter}s, configured with fluent calls:
+ * <pre>
+ * FilterChain chain = new FilterChain(512).removeDc().notch(60).bandPass(1, 40).decimate(2);
+ * </pre>
+ * Each call works at the sample rate left by the stages before it. A chain holds one set of filter state,
+ * so use {@link #copy()} to get an independent chain for every headset; {@link RawSampleFilter} does.
+ */
+public class FilterChain extends Filter {
+	public static final double DEFAULT_NOTCH_Q = 30;
+
+	private final double inputSampleRate;
+	private final List<Filter> stages = new ArrayList<Filter>();
+	private Filter[] pipeline = new Filter[0];
+	private double sampleRate;
+
+	/**
+	 * @param sampleRate rate of the samples going in; the Mindwave Mobile sends 512 per second
+	 */
+	public FilterChain(double sampleRate) {
+		if(sampleRate <= 0) throw new IllegalArgumentException("sampleRate must be positive");
+		this.inputSampleRate = sampleRate;
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Adds a DC blocker with its corner near 0.5Hz.
+	 */
+	public FilterChain removeDc() {
+		return add(new DcBlocker(Math.max(0.9, 1 - 2 * Math.PI * 0.5 / sampleRate)));
+	}
+
+	/**
+	 * Adds a notch for mains interference, 50Hz or 60Hz depending on where you are.
+	 */
+	public FilterChain notch(double frequency) {
+		return notch(frequency, DEFAULT_NOTCH_Q);
+	}
+
+	public FilterChain notch(double frequency, double q) {
+		return add(Biquad.notch(sampleRate, frequency, q));
+	}
+
+	/**
+	 * Adds a second-order Butterworth high-pass at <code>lowHz</code> followed by a low-pass at <code>highHz</code>.
+	 */
+	public FilterChain bandPass(double lowHz, double highHz) {
+		if(lowHz >= highHz) throw new IllegalArgumentException("lowHz must be below highHz");
+		add(Biquad.highPass(sampleRate, lowHz, Biquad.BUTTERWORTH_Q));
+		return add(Biquad.lowPass(sampleRate, highHz, Biquad.BUTTERWORTH_Q));
+	}
+
+	public FilterChain lowPass(double frequency) {
+		return add(Biquad.lowPass(sampleRate, frequency, Biquad.BUTTERWORTH_Q));
+	}
+
+	public FilterChain highPass(double frequency) {
+		return add(Biquad.highPass(sampleRate, frequency, Biquad.BUTTERWORTH_Q));
+	}
+
+	/**
+	 * Adds a two-stage anti-aliasing low-pass at 80% of the new Nyquist frequency, then keeps every
+	 * <code>factor</code>th sample.
+	 */
+	public FilterChain decimate(int factor) {
+		if(factor < 1) throw new IllegalArgumentException("factor must be at least 1");
+		if(factor == 1) return this;
+		double cutoff = 0.4 * sampleRate / factor;
+		add(Biquad.lowPass(sampleRate, cutoff, 0.5412));
+		add(Biquad.lowPass(sampleRate, cutoff, 1.3066));
+		add(new Decimator(factor));
+		sampleRate /= factor;
+		return this;
+	}
+
+	/**
+	 * Adds a stage of your own. It must not change the sample rate unless it is a {@link Decimator}.
+	 */
+	public FilterChain add(Filter filter) {
+		if(null == filter) throw new NullPointerException("filter cannot be null");
+		stages.add(filter);
+		pipeline = stages.toArray(new Filter[stages.size()]);
+		return this;
+	}
+
+	@Override
+	public int process(double[] samples, int count) {
+		for(Filter filter: pipeline) {
+			count = filter.process(samples, count);
+		}
+		return count;
+	}
+
+	@Override
+	public void reset() {
+		for(Filter filter: pipeline) {
+			filter.reset();
+		}
+	}
+
+	@Override
+	public FilterChain copy() {
+		FilterChain copy = new FilterChain(inputSampleRate);
+		for(Filter filter: pipeline) {
+			copy.add(filter.copy());
+		}
+		copy.sampleRate = sampleRate;
+		return copy;
+	}
+
+	public double getInputSampleRate() {
+		return inputSampleRate;
+	}
+
+	/**
+	 * @return the rate of the samples coming out, after any decimation
+	 */
+	public double getOutputSampleRate() {
+		return sampleRate;
+	}
+}
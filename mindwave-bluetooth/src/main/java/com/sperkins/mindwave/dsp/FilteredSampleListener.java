@@ -0,0 +1,15 @@
+package com.sperkins.mindwave.dsp;
+
+/**
+ * Receives filtered raw samples from a {@link RawSampleFilter}.
+ */
+public interface FilteredSampleListener {
+	/**
+	 * @param headsetId the headset's {@link com.sperkins.mindwave.HeadsetRegistry} ID
+	 * @param startTimestamp arrival time of the first raw sample in the block that produced these samples
+	 * @param samples the filtered samples, oldest first, in raw sample units. The array is reused, so copy anything you want to keep.
+	 * @param count the number of valid samples in <code>samples</code>; may be 0 after heavy decimation
+	 * @param sampleRate samples per second after filtering
+	 */
+	public void onFilteredSamples(int headsetId, long startTimestamp, double[] samples, int count, double sampleRate);
+}
@@ -0,0 +1,97 @@
+package com.sperkins.mindwave.dsp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sperkins.mindwave.event.RawSampleBatchListener;
+
+/**
+ * Runs each headset's raw sample blocks through its own copy of a {@link FilterChain} and publishes the
+ * result to {@link FilteredSampleListener}s, so filtering happens once however many consumers there are:
+ * <pre>
+ * RawSampleFilter filter = new RawSampleFilter(new FilterChain(512).removeDc().notch(60).bandPass(1, 40));
+ * filter.addListener(myFilteredSampleListener);
+ * socket.addDataListener(new RawSampleBatcher(64, 100, filter));
+ * </pre>
+ * Filter state and the sample buffer are preallocated per headset. Blocks for one headset must arrive from one
+ * thread at a time, which {@link com.sperkins.mindwave.event.RawSampleBatcher} guarantees.
+ */
+public class RawSampleFilter implements RawSampleBatchListener {
+	private final FilterChain prototype;
+	private final List<FilteredSampleListener> listeners = new CopyOnWriteArrayList<FilteredSampleListener>();
+	private volatile HeadsetFilter[] filters = new HeadsetFilter[16];
+
+	/**
+	 * @param chain the filters to apply; copied for each headset, so later changes to it have no effect
+	 */
+	public RawSampleFilter(FilterChain chain) {
+		if(null == chain) throw new NullPointerException("chain cannot be null");
+		this.prototype = chain.copy();
+	}
+
+	public RawSampleFilter(FilterChain chain, FilteredSampleListener listener) {
+		this(chain);
+		addListener(listener);
+	}
+
+	public void addListener(FilteredSampleListener listener) {
+		if(null == listener) throw new NullPointerException("listener cannot be null");
+		listeners.add(listener);
+	}
+
+	public void removeListener(FilteredSampleListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void onRawSamples(int headsetId, long startTimestamp, int[] samples, int count) {
+		HeadsetFilter filter = filterFor(headsetId);
+		if(filter.buffer.length < count) filter.buffer = new double[count];
+		double[] buffer = filter.buffer;
+		for(int i = 0; i < count; i++) {
+			buffer[i] = samples[i];
+		}
+		int filtered = filter.chain.process(buffer, count);
+		double sampleRate = filter.chain.getOutputSampleRate();
+		for(FilteredSampleListener listener: listeners) {
+			listener.onFilteredSamples(headsetId, startTimestamp, buffer, filtered, sampleRate);
+		}
+	}
+
+	/**
+	 * Clears a headset's filter state, e.g. after it has reconnected and the signal is discontinuous.
+	 */
+	public void reset(int headsetId) {
+		HeadsetFilter[] current = filters;
+		if(headsetId < current.length && null != current[headsetId]) current[headsetId].chain.reset();
+	}
+
+	private HeadsetFilter filterFor(int headsetId) {
+		HeadsetFilter[] current = filters;
+		if(headsetId < current.length) {
+			HeadsetFilter filter = current[headsetId];
+			if(null != filter) return filter;
+		}
+		synchronized(this) {
+			current = filters;
+			if(headsetId >= current.length) {
+				current = Arrays.copyOf(current, Math.max(headsetId + 1, current.length * 2));
+			}
+			if(null == current[headsetId]) {
+				current[headsetId] = new HeadsetFilter(prototype.copy());
+			}
+			filters = current;
+			return current[headsetId];
+		}
+	}
+
+	private static class HeadsetFilter {
+		final FilterChain chain;
+		double[] buffer = new double[512];
+
+		HeadsetFilter(FilterChain chain) {
+			this.chain = chain;
+		}
+	}
+}
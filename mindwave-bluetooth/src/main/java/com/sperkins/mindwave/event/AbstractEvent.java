@@ -11,4 +11,12 @@ public abstract class AbstractEvent implements Event {
 		return deviceAddress;
 	}
 
+	/**
+	 * @see JsonWriter
+	 */
+	@Override
+	public String toJsonString() {
+		return new JsonWriter(128).write(this).toString();
+	}
+
 }
@@ -1,7 +1,5 @@
 package com.sperkins.mindwave.event;
 
-import com.sperkins.mindwave.Util;
-
 public class AttentionEvent extends AbstractEvent {
 	private Integer value;
 	public AttentionEvent(String deviceAddress, Integer value) {
@@ -20,13 +18,7 @@ public class AttentionEvent extends AbstractEvent {
 	
 	@Override
 	public String toString() {
-		return String.format("%s %s: %d", getDeviceAddress(), getEventType().name(), value);
-	}
-
-	@Override
-	public String toJsonString() {
-		return String.format("{ \"deviceAddress\":\"%s\",\"timestamp\":\"%s\",\"attention\":%d }",
-				getDeviceAddress(), Util.currentDateAsString(), value);
+		return getDeviceAddress() + " " + getEventType().name() + ": " + value;
 	}
 	
 }
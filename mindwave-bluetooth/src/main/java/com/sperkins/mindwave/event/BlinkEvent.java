@@ -1,7 +1,5 @@
 package com.sperkins.mindwave.event;
 
-import com.sperkins.mindwave.Util;
-
 public class BlinkEvent extends AbstractEvent {
 	private Integer value;
 	public BlinkEvent(String deviceAddress, Integer blinkStrength) {
@@ -20,12 +18,7 @@ public class BlinkEvent extends AbstractEvent {
 	
 	@Override
 	public String toString() {
-		return String.format("%s %s: %d", getDeviceAddress(), getEventType().name(), value);
+		return getDeviceAddress() + " " + getEventType().name() + ": " + value;
 	}
 	
-	@Override
-	public String toJsonString() {
-		return String.format("{ \"deviceAddress\":\"%s\",\"timestamp\":\"%s\",\"blink\":%d }",
-				getDeviceAddress(), Util.currentDateAsString(), value);
-	}
 }
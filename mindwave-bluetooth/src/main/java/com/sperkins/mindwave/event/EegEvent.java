@@ -26,7 +26,7 @@ public class EegEvent extends AbstractEvent {
 	
 	@Override
 	public EventType getEventType() {
-		return EventType.SIXTEEN_BIT_RAW_WAVE;
+		return EventType.ASIC_EEG_POWER;
 	}
 
 	public Integer getDelta() {
@@ -63,20 +63,17 @@ public class EegEvent extends AbstractEvent {
 	
 	@Override
 	public String toString() {
-		StringBuilder sb = new StringBuilder(String.format("%s %s:", getDeviceAddress(), getEventType().name()));
-		sb.append(String.format("\n\tDelta: %d", getDelta()))
-		.append(String.format("\n\tTheta: %d", getTheta()))
-		.append(String.format("\n\tHigh alpha: %d", getHighAlpha()))
-		.append(String.format("\n\tLow alpha: %d", getLowAlpha()))
-		.append(String.format("\n\tHigh beta: %d", getHighBeta()))
-		.append(String.format("\n\tLow beta: %d", getLowBeta()))
-		.append(String.format("\n\tMid gamma: %d", getMidGamma()))
-		.append(String.format("\n\tLow gamma: %d", getLowGamma()));
+		StringBuilder sb = new StringBuilder(160);
+		sb.append(getDeviceAddress()).append(' ').append(getEventType().name()).append(':')
+		.append("\n\tDelta: ").append(getDelta())
+		.append("\n\tTheta: ").append(getTheta())
+		.append("\n\tHigh alpha: ").append(getHighAlpha())
+		.append("\n\tLow alpha: ").append(getLowAlpha())
+		.append("\n\tHigh beta: ").append(getHighBeta())
+		.append("\n\tLow beta: ").append(getLowBeta())
+		.append("\n\tMid gamma: ").append(getMidGamma())
+		.append("\n\tLow gamma: ").append(getLowGamma());
 		return sb.toString();
 	}
 	
-	@Override
-	public String toJsonString() {
-		throw new RuntimeException("Not implemented for EegEvent");
-	}
 }
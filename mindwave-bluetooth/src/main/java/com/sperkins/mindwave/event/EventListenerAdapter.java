@@ -0,0 +1,59 @@
+package com.sperkins.mindwave.event;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+
+/**
+ * Lets an existing {@link MindwaveEventListener} receive data from anything that produces
+ * {@link MindwaveDataListener} callbacks. Each callback is turned into the same {@link Event} the socket would raise.
+ */
+public class EventListenerAdapter implements MindwaveDataListener {
+	private final MindwaveEventListener listener;
+	private final HeadsetRegistry registry;
+
+	public EventListenerAdapter(MindwaveEventListener listener) {
+		this(listener, HeadsetRegistry.getInstance());
+	}
+
+	public EventListenerAdapter(MindwaveEventListener listener, HeadsetRegistry registry) {
+		if(null == listener) throw new NullPointerException("listener cannot be null");
+		this.listener = listener;
+		this.registry = registry;
+	}
+
+	public MindwaveEventListener getListener() {
+		return listener;
+	}
+
+	@Override
+	public void onRawSample(int headsetId, long timestamp, int sample) {
+		// RawEvent carries the two raw bytes as the headset sent them
+		listener.onEvent(new RawEvent(registry.getAddress(headsetId), new int[] { (byte)(sample >> 8), (byte) sample }));
+	}
+
+	@Override
+	public void onAttention(int headsetId, long timestamp, int attention) {
+		listener.onEvent(new AttentionEvent(registry.getAddress(headsetId), attention));
+	}
+
+	@Override
+	public void onMeditation(int headsetId, long timestamp, int meditation) {
+		listener.onEvent(new MeditationEvent(registry.getAddress(headsetId), meditation));
+	}
+
+	@Override
+	public void onPoorSignal(int headsetId, long timestamp, int poorSignal) {
+		listener.onEvent(new PoorSignalEvent(registry.getAddress(headsetId), poorSignal));
+	}
+
+	@Override
+	public void onEegPower(int headsetId, long timestamp, int delta, int theta, int lowAlpha, int highAlpha,
+			int lowBeta, int highBeta, int lowGamma, int midGamma) {
+		listener.onEvent(new EegEvent(registry.getAddress(headsetId), delta / 10000, theta / 10000, lowAlpha / 10000,
+				highAlpha / 10000, lowBeta / 10000, highBeta / 10000, lowGamma / 10000, midGamma / 10000));
+	}
+
+	@Override
+	public void onHeadsetStatus(int headsetId, long timestamp, EventType status, int reportedHeadsetId) {
+		listener.onEvent(new HeadsetStatusEvent(registry.getAddress(headsetId), String.valueOf(reportedHeadsetId), status));
+	}
+}
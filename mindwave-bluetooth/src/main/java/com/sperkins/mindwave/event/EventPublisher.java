@@ -0,0 +1,292 @@
+package com.sperkins.mindwave.event;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes headset events to reactive {@link Flow.Subscriber}s. Register it like any other listener, for
+ * every headset or for one:
+ * <pre>
+ * EventPublisher attention = new EventPublisher(64, OverflowPolicy.LATEST_PER_TYPE);
+ * socket.addListener(attention, "091A2B3C4D5E", EventType.ATTENTION, EventType.MEDITATION);
+ * attention.subscribe(mySubscriber);
+ * </pre>
+ * Each subscriber gets its own buffer of <code>bufferSize</code> events and receives no more than it has
+ * requested. Events are delivered on the publisher's executor, one subscriber at a time per thread, so a slow
+ * subscriber never holds up the headset's reader thread unless it was given {@link OverflowPolicy#BLOCK};
+ * the policy decides what happens when its buffer fills up.
+ */
+public class EventPublisher implements Flow.Publisher<Event>, MindwaveEventListener, AutoCloseable {
+	private final static Logger LOG = LoggerFactory.getLogger(EventPublisher.class.getName());
+	private static final EventType[] TYPES = EventType.values();
+
+	private final int bufferSize;
+	private final OverflowPolicy policy;
+	private final Executor executor;
+	private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<EventSubscription>();
+	private final LongAdder dropped = new LongAdder();
+	private volatile boolean closed;
+
+	/**
+	 * Publishes with the JDK's default buffer size and {@link OverflowPolicy#DROP_OLDEST}.
+	 */
+	public EventPublisher() {
+		this(Flow.defaultBufferSize(), OverflowPolicy.DROP_OLDEST);
+	}
+
+	public EventPublisher(int bufferSize, OverflowPolicy policy) {
+		this(bufferSize, policy, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param bufferSize events buffered per subscriber
+	 * @param policy what to do when a subscriber's buffer is full
+	 * @param executor runs deliveries to subscribers
+	 */
+	public EventPublisher(int bufferSize, OverflowPolicy policy, Executor executor) {
+		if(bufferSize < 1) throw new IllegalArgumentException("bufferSize must be at least 1");
+		if(null == policy) throw new NullPointerException("policy cannot be null");
+		if(null == executor) throw new NullPointerException("executor cannot be null");
+		this.bufferSize = bufferSize;
+		this.policy = policy;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super Event> subscriber) {
+		if(null == subscriber) throw new NullPointerException("subscriber cannot be null");
+		EventSubscription subscription = new EventSubscription(subscriber);
+		// onSubscribe must come before any other signal, so the subscription only starts receiving events after it
+		subscriber.onSubscribe(subscription);
+		subscriptions.add(subscription);
+		if(closed) subscription.complete();
+	}
+
+	@Override
+	public void onEvent(Event event) {
+		if(closed) return;
+		for(EventSubscription subscription: subscriptions) {
+			subscription.offer(event);
+		}
+	}
+
+	/**
+	 * Stops publishing. Subscribers receive what is already buffered, then {@link Flow.Subscriber#onComplete()}.
+	 * Remove the publisher from the socket as well.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for(EventSubscription subscription: subscriptions) {
+			subscription.complete();
+		}
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * @return events discarded or coalesced away across all subscribers because their buffers were full
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public OverflowPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * One subscriber's buffer and demand. Producers add under the subscription's lock; a drain task on the
+	 * executor hands events to the subscriber, and only one drain task runs at a time.
+	 */
+	private class EventSubscription implements Flow.Subscription, Runnable {
+		private final Flow.Subscriber<? super Event> subscriber;
+		private final ArrayDeque<Event> queue;
+		// LATEST_PER_TYPE only: the newest pending event per type, and the order the types became pending in
+		private final Event[] latest;
+		private final ArrayDeque<EventType> pendingTypes;
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger drains = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile Throwable failure;
+		private boolean completing;
+
+		EventSubscription(Flow.Subscriber<? super Event> subscriber) {
+			this.subscriber = subscriber;
+			if(policy == OverflowPolicy.LATEST_PER_TYPE) {
+				queue = null;
+				latest = new Event[TYPES.length];
+				pendingTypes = new ArrayDeque<EventType>();
+			} else {
+				queue = new ArrayDeque<Event>(bufferSize);
+				latest = null;
+				pendingTypes = null;
+			}
+		}
+
+		void offer(Event event) {
+			synchronized(this) {
+				if(cancelled || completing) return;
+				switch(policy) {
+				case DROP_OLDEST:
+					if(queue.size() == bufferSize) {
+						queue.poll();
+						dropped.increment();
+					}
+					queue.add(event);
+					break;
+				case DROP_NEWEST:
+					if(queue.size() == bufferSize) {
+						dropped.increment();
+						return;
+					}
+					queue.add(event);
+					break;
+				case LATEST_PER_TYPE:
+					int type = event.getEventType().ordinal();
+					if(null != latest[type]) {
+						dropped.increment();
+					} else {
+						if(pendingTypes.size() == bufferSize) {
+							latest[pendingTypes.poll().ordinal()] = null;
+							dropped.increment();
+						}
+						pendingTypes.add(event.getEventType());
+					}
+					latest[type] = event;
+					break;
+				default:
+					while(queue.size() == bufferSize && !cancelled && !completing) {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							dropped.increment();
+							return;
+						}
+					}
+					if(cancelled || completing) return;
+					queue.add(event);
+					break;
+				}
+			}
+			drain();
+		}
+
+		private synchronized Event poll() {
+			if(null != pendingTypes) {
+				EventType type = pendingTypes.poll();
+				if(null == type) return null;
+				Event event = latest[type.ordinal()];
+				latest[type.ordinal()] = null;
+				return event;
+			}
+			Event event = queue.poll();
+			if(null != event && policy == OverflowPolicy.BLOCK) notifyAll();
+			return event;
+		}
+
+		private synchronized boolean isDrained() {
+			return completing && (null == queue ? pendingTypes.isEmpty() : queue.isEmpty());
+		}
+
+		synchronized void complete() {
+			completing = true;
+			notifyAll();
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if(n <= 0) {
+				failure = new IllegalArgumentException("Subscribers must request a positive number of events, not " + n);
+			} else {
+				long current;
+				long updated;
+				do {
+					current = requested.get();
+					updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while(!requested.compareAndSet(current, updated));
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			subscriptions.remove(this);
+			synchronized(this) {
+				if(null != queue) queue.clear();
+				if(null != pendingTypes) pendingTypes.clear();
+				notifyAll();
+			}
+		}
+
+		private void drain() {
+			if(drains.getAndIncrement() != 0) return;
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				LOG.warn("Could not deliver events, cancelling subscription: " + e.getMessage());
+				cancel();
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			while(!cancelled) {
+				Throwable error = failure;
+				if(null != error) {
+					cancel();
+					subscriber.onError(error);
+					return;
+				}
+				long demand = requested.get();
+				long emitted = 0;
+				while(emitted != demand && !cancelled) {
+					Event event = poll();
+					if(null == event) break;
+					try {
+						subscriber.onNext(event);
+					} catch (RuntimeException e) {
+						LOG.warn("Subscriber failed, cancelling its subscription", e);
+						cancel();
+						return;
+					}
+					emitted++;
+				}
+				if(cancelled) return;
+				if(isDrained()) {
+					cancel();
+					subscriber.onComplete();
+					return;
+				}
+				if(emitted > 0 && demand != Long.MAX_VALUE) requested.addAndGet(-emitted);
+				missed = drains.addAndGet(-missed);
+				if(missed == 0) return;
+			}
+		}
+	}
+}
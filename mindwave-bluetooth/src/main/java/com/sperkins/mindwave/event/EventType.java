@@ -22,6 +22,13 @@ public enum EventType {
     ASIC_EEG_POWER(0x83),
     R_PEAK_INTERVAL(0x86);
 	
+	private static final EventType[] BY_HEX = new EventType[256];
+	static {
+		for(EventType code: values()) {
+			BY_HEX[code.getHexValue()] = code;
+		}
+	}
+	
 	private int hexValue;
 	private EventType(int hexValue) {
 		this.hexValue = hexValue;
@@ -31,10 +38,13 @@ public enum EventType {
 		return hexValue;
 	}
 	
+	/**
+	 * Constant-time lookup of a ThinkGear code.
+	 * @param hexValue the code byte, 0x00 to 0xFF
+	 * @return the matching EventType, or null if the code is unknown
+	 */
 	public static EventType fromHex(int hexValue) {
-		for(EventType code: EventType.values()) {
-			if(hexValue == code.getHexValue()) return code;
-		}
-		return null;
+		if(hexValue < 0 || hexValue >= BY_HEX.length) return null;
+		return BY_HEX[hexValue];
 	}
 }
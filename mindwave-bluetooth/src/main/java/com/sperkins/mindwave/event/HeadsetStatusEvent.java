@@ -26,11 +26,7 @@ public class HeadsetStatusEvent extends AbstractEvent {
 	
 	@Override
 	public String toString() {
-		return String.format("%s\t%s(%s)", getDeviceAddress(), getEventType().name(), getReportedAddress());
+		return getDeviceAddress() + "\t" + getEventType().name() + "(" + getReportedAddress() + ")";
 	}
 	
-	@Override
-	public String toJsonString() {
-		throw new RuntimeException("Not implemented for HeadsetStatusEvent");
-	}
 }
@@ -0,0 +1,376 @@
+package com.sperkins.mindwave.event;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes events as JSON, straight into a reusable UTF-8 byte buffer or into an {@link Appendable}, with no
+ * intermediate strings or format calls:
+ * <pre>
+ * JsonWriter json = new JsonWriter();
+ * json.reset().write(events, 0, count);
+ * out.write(json.getBuffer(), 0, json.size());
+ * </pre>
+ * Each event becomes one object with the device address, the time it was written (as
+ * <code>MM/dd/yyyy HH:mm:ss</code> local time, formatted at most once a second) and its values. A batch becomes
+ * an array of objects. Numbers are written digit by digit, so once the buffer has grown to the largest batch,
+ * writing doesn't allocate. A writer isn't thread-safe; give each thread its own.
+ */
+public class JsonWriter {
+	private static final byte[] DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' };
+	private static final byte[] HEX = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+	private static final byte[] OPEN = ascii("{ \"deviceAddress\":");
+	private static final byte[] TIMESTAMP = ascii(",\"timestamp\":\"");
+	private static final byte[] CLOSE = ascii(" }");
+	private static final byte[] NULL = ascii("null");
+	private static final byte[] RAW = ascii("\",\"raw\":");
+	private static final byte[] STATUS = ascii("\",\"status\":");
+	private static final byte[] REPORTED_ADDRESS = ascii(",\"reportedAddress\":");
+	private static final byte[] EVENT_TYPE = ascii("\",\"eventType\":");
+	private static final byte[] ATTENTION = ascii("\",\"attention\":");
+	private static final byte[] MEDITATION = ascii("\",\"meditation\":");
+	private static final byte[] POOR_SIGNAL = ascii("\",\"poorSignal\":");
+	private static final byte[] BLINK = ascii("\",\"blink\":");
+	private static final byte[] DELTA = ascii("\",\"delta\":");
+	private static final byte[] THETA = ascii(",\"theta\":");
+	private static final byte[] LOW_ALPHA = ascii(",\"lowAlpha\":");
+	private static final byte[] HIGH_ALPHA = ascii(",\"highAlpha\":");
+	private static final byte[] LOW_BETA = ascii(",\"lowBeta\":");
+	private static final byte[] HIGH_BETA = ascii(",\"highBeta\":");
+	private static final byte[] LOW_GAMMA = ascii(",\"lowGamma\":");
+	private static final byte[] MID_GAMMA = ascii(",\"midGamma\":");
+
+	private final Appendable appendable;
+	private byte[] buffer;
+	private int size;
+	private final byte[] timestamp = new byte[19];
+	private long timestampSecond = Long.MIN_VALUE;
+	private final byte[] digits = new byte[11];
+
+	/**
+	 * Writes into this writer's own byte buffer.
+	 */
+	public JsonWriter() {
+		this(256);
+	}
+
+	public JsonWriter(int initialCapacity) {
+		this.appendable = null;
+		this.buffer = new byte[Math.max(16, initialCapacity)];
+	}
+
+	/**
+	 * Writes characters to <code>appendable</code>, e.g. a StringBuilder or a Writer, instead of the byte buffer.
+	 * An IOException from it is rethrown as an {@link UncheckedIOException}.
+	 */
+	public JsonWriter(Appendable appendable) {
+		if(null == appendable) throw new NullPointerException("appendable cannot be null");
+		this.appendable = appendable;
+	}
+
+	/**
+	 * Writes one event as a JSON object.
+	 */
+	public JsonWriter write(Event event) {
+		object(event, System.currentTimeMillis());
+		return this;
+	}
+
+	/**
+	 * Writes <code>length</code> events starting at <code>offset</code> as a JSON array. The clock is read once for the batch.
+	 */
+	public JsonWriter write(Event[] events, int offset, int length) {
+		long millis = System.currentTimeMillis();
+		put('[');
+		for(int i = 0; i < length; i++) {
+			if(i > 0) put(',');
+			object(events[offset + i], millis);
+		}
+		put(']');
+		return this;
+	}
+
+	/**
+	 * Writes the events as a JSON array. The clock is read once for the batch.
+	 */
+	public JsonWriter write(List<? extends Event> events) {
+		long millis = System.currentTimeMillis();
+		put('[');
+		for(int i = 0; i < events.size(); i++) {
+			if(i > 0) put(',');
+			object(events.get(i), millis);
+		}
+		put(']');
+		return this;
+	}
+
+	private void object(Event event, long millis) {
+		if(null == event) {
+			raw(NULL);
+			return;
+		}
+		raw(OPEN);
+		string(event.getDeviceAddress());
+		raw(TIMESTAMP);
+		timestamp(millis);
+		if(event instanceof RawEvent) {
+			raw(RAW);
+			int[] values = ((RawEvent) event).getValues();
+			if(null == values) {
+				raw(NULL);
+			} else {
+				put('[');
+				for(int i = 0; i < values.length; i++) {
+					if(i > 0) put(',');
+					number(values[i]);
+				}
+				put(']');
+			}
+		} else if(event instanceof AttentionEvent) {
+			field(ATTENTION, ((AttentionEvent) event).getValue());
+		} else if(event instanceof MeditationEvent) {
+			field(MEDITATION, ((MeditationEvent) event).getValue());
+		} else if(event instanceof PoorSignalEvent) {
+			field(POOR_SIGNAL, ((PoorSignalEvent) event).getValue());
+		} else if(event instanceof BlinkEvent) {
+			field(BLINK, ((BlinkEvent) event).getValue());
+		} else if(event instanceof EegEvent) {
+			EegEvent eeg = (EegEvent) event;
+			field(DELTA, eeg.getDelta());
+			field(THETA, eeg.getTheta());
+			field(LOW_ALPHA, eeg.getLowAlpha());
+			field(HIGH_ALPHA, eeg.getHighAlpha());
+			field(LOW_BETA, eeg.getLowBeta());
+			field(HIGH_BETA, eeg.getHighBeta());
+			field(LOW_GAMMA, eeg.getLowGamma());
+			field(MID_GAMMA, eeg.getMidGamma());
+		} else if(event instanceof HeadsetStatusEvent) {
+			raw(STATUS);
+			string(null == event.getEventType() ? null : event.getEventType().name());
+			raw(REPORTED_ADDRESS);
+			string(((HeadsetStatusEvent) event).getReportedAddress());
+		} else {
+			raw(EVENT_TYPE);
+			string(null == event.getEventType() ? null : event.getEventType().name());
+		}
+		raw(CLOSE);
+	}
+
+	/**
+	 * Writes a line break, for newline-delimited streams of events.
+	 */
+	public JsonWriter newLine() {
+		put('\n');
+		return this;
+	}
+
+	/**
+	 * Empties the byte buffer, keeping its capacity.
+	 * @throws IllegalStateException if this writer writes to an Appendable
+	 */
+	public JsonWriter reset() {
+		checkBuffered();
+		size = 0;
+		return this;
+	}
+
+	/**
+	 * @return the byte buffer; only the first {@link #size()} bytes are valid, and it is replaced when it grows
+	 * @throws IllegalStateException if this writer writes to an Appendable
+	 */
+	public byte[] getBuffer() {
+		checkBuffered();
+		return buffer;
+	}
+
+	/**
+	 * @return the number of bytes written since the last {@link #reset()}; always 0 when writing to an Appendable
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @throws IllegalStateException if this writer writes to an Appendable
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		checkBuffered();
+		out.write(buffer, 0, size);
+	}
+
+	private void checkBuffered() {
+		if(null == buffer) throw new IllegalStateException("writer targets an Appendable");
+	}
+
+	/**
+	 * @return the contents of the byte buffer, or an empty string when writing to an Appendable
+	 */
+	@Override
+	public String toString() {
+		return null == buffer ? "" : new String(buffer, 0, size, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param name the separator, quoted name and colon that come before the value
+	 */
+	private void field(byte[] name, Integer value) {
+		raw(name);
+		if(null == value) {
+			raw(NULL);
+		} else {
+			number(value.intValue());
+		}
+	}
+
+	private void number(int value) {
+		int position = digits.length;
+		boolean negative = value < 0;
+		// Digits of a negative value are taken from the negative remainders, so MIN_VALUE needs no special case
+		if(!negative) value = -value;
+		do {
+			digits[--position] = DIGITS[-(value % 10)];
+			value /= 10;
+		} while(value != 0);
+		if(negative) digits[--position] = '-';
+		if(null == appendable) {
+			ensure(digits.length - position);
+			System.arraycopy(digits, position, buffer, size, digits.length - position);
+			size += digits.length - position;
+		} else {
+			for(; position < digits.length; position++) {
+				put((char) digits[position]);
+			}
+		}
+	}
+
+	/**
+	 * Writes a quoted, escaped string, or null.
+	 */
+	private void string(String value) {
+		if(null == value) {
+			raw(NULL);
+			return;
+		}
+		put('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') {
+				put('\\');
+				put(c);
+			} else if(c < 0x20) {
+				put('\\');
+				put('u');
+				put('0');
+				put('0');
+				put((char) HEX[c >> 4]);
+				put((char) HEX[c & 0xF]);
+			} else if(c < 0x80 || null != appendable) {
+				put(c);
+			} else {
+				utf8(value, i);
+				if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) i++;
+			}
+		}
+		put('"');
+	}
+
+	private void utf8(String value, int index) {
+		int codePoint = value.codePointAt(index);
+		if(Character.isSurrogate(value.charAt(index)) && codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) codePoint = '?';
+		ensure(4);
+		if(codePoint < 0x80) {
+			buffer[size++] = (byte) codePoint;
+			return;
+		} else if(codePoint < 0x800) {
+			buffer[size++] = (byte) (0xC0 | (codePoint >> 6));
+		} else if(codePoint < 0x10000) {
+			buffer[size++] = (byte) (0xE0 | (codePoint >> 12));
+			buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+		} else {
+			buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+			buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+			buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+		}
+		buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+	}
+
+	private void timestamp(long millis) {
+		long second = Math.floorDiv(millis, 1000L);
+		if(second != timestampSecond) {
+			LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault());
+			twoDigits(0, time.getMonthValue());
+			timestamp[2] = '/';
+			twoDigits(3, time.getDayOfMonth());
+			timestamp[5] = '/';
+			twoDigits(6, time.getYear() / 100 % 100);
+			twoDigits(8, time.getYear() % 100);
+			timestamp[10] = ' ';
+			twoDigits(11, time.getHour());
+			timestamp[13] = ':';
+			twoDigits(14, time.getMinute());
+			timestamp[16] = ':';
+			twoDigits(17, time.getSecond());
+			timestampSecond = second;
+		}
+		if(null == appendable) {
+			ensure(timestamp.length);
+			System.arraycopy(timestamp, 0, buffer, size, timestamp.length);
+			size += timestamp.length;
+		} else {
+			for(int i = 0; i < timestamp.length; i++) {
+				put((char) timestamp[i]);
+			}
+		}
+	}
+
+	private void twoDigits(int position, int value) {
+		timestamp[position] = DIGITS[value / 10];
+		timestamp[position + 1] = DIGITS[value % 10];
+	}
+
+	/**
+	 * Writes ASCII bytes that need no escaping.
+	 */
+	private void raw(byte[] bytes) {
+		if(null == appendable) {
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		} else {
+			for(int i = 0; i < bytes.length; i++) {
+				put((char) bytes[i]);
+			}
+		}
+	}
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private void put(char c) {
+		if(null == appendable) {
+			ensure(1);
+			buffer[size++] = (byte) c;
+		} else {
+			try {
+				appendable.append(c);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private void ensure(int extra) {
+		if(size + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(size + extra, buffer.length * 2));
+		}
+	}
+}
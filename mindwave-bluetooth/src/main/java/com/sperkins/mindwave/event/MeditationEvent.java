@@ -19,11 +19,7 @@ public class MeditationEvent extends AbstractEvent {
 	
 	@Override
 	public String toString() {
-		return String.format("%s %s: %d", getDeviceAddress(), getEventType().name(), value);
+		return getDeviceAddress() + " " + getEventType().name() + ": " + value;
 	}
 	
-	@Override
-	public String toJsonString() {
-		throw new RuntimeException("Not implemented for MeditationEvent");
-	}
 }
@@ -0,0 +1,25 @@
+package com.sperkins.mindwave.event;
+
+/**
+ * {@link MindwaveDataListener} with empty callbacks. Override the ones you need.
+ */
+public abstract class MindwaveDataAdapter implements MindwaveDataListener {
+	@Override
+	public void onRawSample(int headsetId, long timestamp, int sample) {}
+
+	@Override
+	public void onAttention(int headsetId, long timestamp, int attention) {}
+
+	@Override
+	public void onMeditation(int headsetId, long timestamp, int meditation) {}
+
+	@Override
+	public void onPoorSignal(int headsetId, long timestamp, int poorSignal) {}
+
+	@Override
+	public void onEegPower(int headsetId, long timestamp, int delta, int theta, int lowAlpha, int highAlpha,
+			int lowBeta, int highBeta, int lowGamma, int midGamma) {}
+
+	@Override
+	public void onHeadsetStatus(int headsetId, long timestamp, EventType status, int reportedHeadsetId) {}
+}
@@ -0,0 +1,21 @@
+package com.sperkins.mindwave.event;
+
+/**
+ * Typed, primitive alternative to {@link MindwaveEventListener} for high-rate consumers. No objects are created,
+ * no strings are compared and nothing needs to be cast. Headsets are identified by the integer ID assigned by
+ * {@link com.sperkins.mindwave.HeadsetRegistry}; timestamps are milliseconds since the epoch.
+ *
+ * Extend {@link MindwaveDataAdapter} to implement only the callbacks you need.
+ */
+public interface MindwaveDataListener {
+	public void onRawSample(int headsetId, long timestamp, int sample);
+	public void onAttention(int headsetId, long timestamp, int attention);
+	public void onMeditation(int headsetId, long timestamp, int meditation);
+	public void onPoorSignal(int headsetId, long timestamp, int poorSignal);
+	/**
+	 * Band powers exactly as reported by the headset, unscaled.
+	 */
+	public void onEegPower(int headsetId, long timestamp, int delta, int theta, int lowAlpha, int highAlpha,
+			int lowBeta, int highBeta, int lowGamma, int midGamma);
+	public void onHeadsetStatus(int headsetId, long timestamp, EventType status, int reportedHeadsetId);
+}
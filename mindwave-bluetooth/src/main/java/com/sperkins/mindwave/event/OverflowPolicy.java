@@ -0,0 +1,22 @@
+package com.sperkins.mindwave.event;
+
+/**
+ * What an {@link EventPublisher} does with a new event when a subscriber's buffer is full.
+ */
+public enum OverflowPolicy {
+	/** Discard the oldest buffered event to make room. Keeps the subscriber as current as possible. */
+	DROP_OLDEST,
+	/** Discard the new event. Keeps the subscriber's view gap-free up to the point it fell behind. */
+	DROP_NEWEST,
+	/**
+	 * Keep only the newest event of each {@link EventType}, replacing an older one in place. Suits dashboards
+	 * that only show current values. Slow subscribers skip stale values; only if the buffer is smaller than
+	 * the number of types in flight is the oldest type dropped.
+	 */
+	LATEST_PER_TYPE,
+	/**
+	 * Make the thread raising the event wait for room. Nothing is lost, but a slow subscriber holds up the
+	 * headset's reader, or the async dispatch thread if {@link com.sperkins.mindwave.socket.BluetoothSocket#enableAsyncDispatch} is on.
+	 */
+	BLOCK
+}
@@ -20,11 +20,7 @@ public class RawEvent extends AbstractEvent {
 	
 	@Override
 	public String toString() {
-		return String.format("%s %s: %s", getDeviceAddress(), getEventType().name(), Arrays.toString(values));
+		return getDeviceAddress() + " " + getEventType().name() + ": " + Arrays.toString(values);
 	}
 	
-	@Override
-	public String toJsonString() {
-		throw new RuntimeException("Not implemented for RawEvent");
-	}
 }
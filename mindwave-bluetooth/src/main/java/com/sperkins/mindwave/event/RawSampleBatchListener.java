@@ -0,0 +1,14 @@
+package com.sperkins.mindwave.event;
+
+/**
+ * Receives raw wave samples in blocks from a {@link RawSampleBatcher}.
+ */
+public interface RawSampleBatchListener {
+	/**
+	 * @param headsetId the headset's {@link com.sperkins.mindwave.HeadsetRegistry} ID
+	 * @param startTimestamp arrival time of the first sample in the block, in milliseconds since the epoch
+	 * @param samples the samples, oldest first. The array is reused for the next block, so copy anything you want to keep.
+	 * @param count the number of valid samples in <code>samples</code>
+	 */
+	public void onRawSamples(int headsetId, long startTimestamp, int[] samples, int count);
+}
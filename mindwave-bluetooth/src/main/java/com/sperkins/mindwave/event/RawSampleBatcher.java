@@ -0,0 +1,144 @@
+package com.sperkins.mindwave.event;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects raw wave samples per headset into fixed-size blocks and delivers each block with one callback,
+ * instead of one listener call per sample:
+ * <pre>
+ * socket.addDataListener(new RawSampleBatcher(512, 250, myBatchListener));
+ * </pre>
+ * A block is delivered as soon as it is full, or once its first sample is <code>maxLatencyMillis</code> old,
+ * whichever comes first. Each headset has its own preallocated block, so batching doesn't allocate.
+ */
+public class RawSampleBatcher extends MindwaveDataAdapter implements Closeable {
+	private final int blockSize;
+	private final long maxLatencyMillis;
+	private final RawSampleBatchListener target;
+	private final ScheduledExecutorService flusher;
+	private volatile Block[] blocks = new Block[16];
+
+	/**
+	 * @param blockSize samples per block, e.g. 256 or 512
+	 * @param maxLatencyMillis the longest a sample may wait before its block is delivered; 0 only delivers full blocks
+	 * @param target receives the blocks
+	 */
+	public RawSampleBatcher(int blockSize, long maxLatencyMillis, RawSampleBatchListener target) {
+		if(blockSize < 1) throw new IllegalArgumentException("blockSize must be at least 1");
+		if(maxLatencyMillis < 0) throw new IllegalArgumentException("maxLatencyMillis cannot be negative");
+		if(null == target) throw new NullPointerException("target cannot be null");
+		this.blockSize = blockSize;
+		this.maxLatencyMillis = maxLatencyMillis;
+		this.target = target;
+		if(maxLatencyMillis > 0) {
+			flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "mindwave-raw-batch-flusher");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			long period = Math.max(1, maxLatencyMillis / 2);
+			flusher.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					flushStale();
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		} else {
+			flusher = null;
+		}
+	}
+
+	@Override
+	public void onRawSample(int headsetId, long timestamp, int sample) {
+		Block block = blockFor(headsetId);
+		synchronized(block) {
+			if(block.count == 0) {
+				block.startTimestamp = timestamp;
+				block.startMillis = System.currentTimeMillis();
+			}
+			block.samples[block.count++] = sample;
+			if(block.count == blockSize) deliver(headsetId, block);
+		}
+	}
+
+	/**
+	 * Delivers every partially filled block now.
+	 */
+	public void flush() {
+		Block[] current = blocks;
+		for(int headsetId = 0; headsetId < current.length; headsetId++) {
+			Block block = current[headsetId];
+			if(null == block) continue;
+			synchronized(block) {
+				if(block.count > 0) deliver(headsetId, block);
+			}
+		}
+	}
+
+	private void flushStale() {
+		long cutoff = System.currentTimeMillis() - maxLatencyMillis;
+		Block[] current = blocks;
+		for(int headsetId = 0; headsetId < current.length; headsetId++) {
+			Block block = current[headsetId];
+			if(null == block) continue;
+			synchronized(block) {
+				if(block.count > 0 && block.startMillis <= cutoff) deliver(headsetId, block);
+			}
+		}
+	}
+
+	private void deliver(int headsetId, Block block) {
+		try {
+			target.onRawSamples(headsetId, block.startTimestamp, block.samples, block.count);
+		} finally {
+			block.count = 0;
+		}
+	}
+
+	private Block blockFor(int headsetId) {
+		Block[] current = blocks;
+		if(headsetId < current.length) {
+			Block block = current[headsetId];
+			if(null != block) return block;
+		}
+		synchronized(this) {
+			current = blocks;
+			if(headsetId >= current.length) {
+				current = Arrays.copyOf(current, Math.max(headsetId + 1, current.length * 2));
+			}
+			if(null == current[headsetId]) {
+				current[headsetId] = new Block(blockSize);
+			}
+			blocks = current;
+			return current[headsetId];
+		}
+	}
+
+	/**
+	 * Stops the latency timer and delivers any partially filled blocks.
+	 */
+	@Override
+	public void close() {
+		if(null != flusher) flusher.shutdownNow();
+		flush();
+	}
+
+	private static class Block {
+		final int[] samples;
+		int count;
+		long startTimestamp;
+		long startMillis;
+
+		Block(int size) {
+			samples = new int[size];
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.sperkins.mindwave.ipc;
+
+/**
+ * Layout of the shared-memory ring written by {@link SharedMemoryPublisher}. All values are little-endian.
+ * <pre>
+ * header, 128 bytes:
+ *          int    magic ("MWR1")
+ *          short  version
+ *          short  slot length in bytes
+ *          int    capacity, in slots, a power of two
+ *          int    address table entries
+ *          long   instance: changes each time a publisher opens the file
+ *          int    1 once the publisher has closed, otherwise 0
+ *          36 bytes reserved
+ *          long   cursor: the number of events published so far, stored after each event's slot
+ *          56 bytes reserved
+ * address table, one 32-byte entry per headset ID:
+ *          byte   address length, 0 until the headset's first event
+ *          31 bytes of US-ASCII address
+ * slots, capacity entries of 64 bytes; event n is in slot n % capacity:
+ *          long   sequence: n once the slot holds event n, {@link #WRITING} while it is being rewritten
+ *          long   timestamp, milliseconds since the epoch
+ *          int    headset ID
+ *          byte   code: the ThinkGear code of the value's {@link com.sperkins.mindwave.event.EventType}
+ *          3 bytes reserved
+ *          payload, by code:
+ *            0x02 poor signal, 0x04 attention, 0x05 meditation, 0x80 raw sample: int
+ *            0x83 EEG power: 8 ints, delta through mid gamma, unscaled
+ *            0xD0 to 0xD4 headset status: int reported headset ID
+ *          reserved up to 64 bytes
+ * </pre>
+ * A reader takes events below the cursor in order. It checks each slot's sequence before and after reading the
+ * slot; if either doesn't match, the publisher has lapped the reader and the event is lost. The cursor and
+ * the header have separate cache lines, and every slot is one cache line.
+ */
+public final class RingFormat {
+	public static final int MAGIC = 0x4D575231;
+	public static final short VERSION = 1;
+	public static final int HEADER_LENGTH = 128;
+	public static final int SLOT_LENGTH = 64;
+	public static final int ADDRESS_ENTRIES = 256;
+	public static final int ADDRESS_ENTRY_LENGTH = 32;
+	/** Sequence of a slot the publisher is rewriting. */
+	public static final long WRITING = -1;
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	static final int SLOT_LENGTH_OFFSET = 6;
+	static final int CAPACITY_OFFSET = 8;
+	static final int ADDRESS_ENTRIES_OFFSET = 12;
+	static final int INSTANCE_OFFSET = 16;
+	static final int CLOSED_OFFSET = 24;
+	static final int CURSOR_OFFSET = 64;
+	static final int ADDRESS_TABLE_OFFSET = HEADER_LENGTH;
+	static final int SLOTS_OFFSET = ADDRESS_TABLE_OFFSET + ADDRESS_ENTRIES * ADDRESS_ENTRY_LENGTH;
+
+	static final int SEQUENCE = 0;
+	static final int TIMESTAMP = 8;
+	static final int HEADSET_ID = 16;
+	static final int CODE = 20;
+	static final int PAYLOAD = 24;
+
+	private RingFormat() {}
+
+	static long fileLength(int capacity) {
+		return SLOTS_OFFSET + (long) SLOT_LENGTH * capacity;
+	}
+}
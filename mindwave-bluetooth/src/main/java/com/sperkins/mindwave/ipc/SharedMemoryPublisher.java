@@ -0,0 +1,216 @@
+package com.sperkins.mindwave.ipc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveDataListener;
+
+/**
+ * Hub mode: the process that owns the headset connections publishes every value into a memory-mapped ring
+ * file, which any number of {@link SharedMemorySubscriber}s in other processes on the same machine read:
+ * <pre>
+ * SharedMemoryPublisher hub = SharedMemoryPublisher.open(Paths.get("/dev/shm/mindwave.ring"));
+ * socket.addDataListener(hub);
+ * </pre>
+ * Publishing an event is a handful of stores into one cache line of the mapping; there are no system calls,
+ * and the publisher never waits for readers. A reader that falls a full ring behind loses the oldest events.
+ * See {@link RingFormat} for the layout.
+ *
+ * One publisher may have a ring file open at a time, which is enforced with a file lock. A publisher reopening
+ * an existing file starts again from the first slot, and attached readers follow it.
+ */
+public class SharedMemoryPublisher implements MindwaveDataListener, Closeable {
+	private final static Logger LOG = LoggerFactory.getLogger(SharedMemoryPublisher.class.getName());
+	static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final Path path;
+	private final FileChannel channel;
+	private final FileLock lock;
+	private final MappedByteBuffer buffer;
+	private final HeadsetRegistry registry;
+	private final int mask;
+	private final boolean[] addressWritten = new boolean[RingFormat.ADDRESS_ENTRIES];
+	private long next;
+	private boolean closed;
+
+	private SharedMemoryPublisher(Path path, FileChannel channel, FileLock lock, MappedByteBuffer buffer, int capacity, HeadsetRegistry registry) {
+		this.path = path;
+		this.channel = channel;
+		this.lock = lock;
+		this.buffer = buffer;
+		this.mask = capacity - 1;
+		this.registry = registry;
+	}
+
+	public static SharedMemoryPublisher open(Path path) throws IOException {
+		return open(path, RingFormat.DEFAULT_CAPACITY, HeadsetRegistry.getInstance());
+	}
+
+	/**
+	 * Creates the ring file, or takes over an existing one with the same capacity.
+	 * @param capacity events kept for readers, a power of two; each takes {@link RingFormat#SLOT_LENGTH} bytes
+	 * @throws IOException if another publisher has the file open, or the file has a different capacity
+	 */
+	public static SharedMemoryPublisher open(Path path, int capacity, HeadsetRegistry registry) throws IOException {
+		if(capacity < 2 || Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of two");
+		long length = RingFormat.fileLength(capacity);
+		if(length > Integer.MAX_VALUE) throw new IllegalArgumentException("Ring capacity too large: " + capacity);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			FileLock lock = channel.tryLock();
+			if(null == lock) throw new IOException("Another publisher has " + path + " open");
+			long size = channel.size();
+			if(size != 0 && size != length) {
+				throw new IOException("Ring file " + path + " has a different capacity; delete it or open it with the same capacity");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if(size != 0 && buffer.getInt(0) != RingFormat.MAGIC) throw new IOException("Not a ring file: " + path);
+
+			// Readers of the previous instance see the cursor drop before the instance changes
+			LONGS.setRelease(buffer, RingFormat.CURSOR_OFFSET, 0L);
+			for(int entry = 0; entry < RingFormat.ADDRESS_ENTRIES; entry++) {
+				buffer.put(RingFormat.ADDRESS_TABLE_OFFSET + entry * RingFormat.ADDRESS_ENTRY_LENGTH, (byte) 0);
+			}
+			buffer.putShort(4, RingFormat.VERSION)
+				.putShort(RingFormat.SLOT_LENGTH_OFFSET, (short) RingFormat.SLOT_LENGTH)
+				.putInt(RingFormat.CAPACITY_OFFSET, capacity)
+				.putInt(RingFormat.ADDRESS_ENTRIES_OFFSET, RingFormat.ADDRESS_ENTRIES)
+				.putInt(RingFormat.CLOSED_OFFSET, 0);
+			long instance = Math.max(System.currentTimeMillis(), buffer.getLong(RingFormat.INSTANCE_OFFSET) + 1);
+			LONGS.setRelease(buffer, RingFormat.INSTANCE_OFFSET, instance);
+			// Last, so a reader never accepts a half-written header
+			INTS.setRelease(buffer, 0, RingFormat.MAGIC);
+			LOG.info("Publishing to " + path + " with " + capacity + " slots");
+			return new SharedMemoryPublisher(path, channel, lock, buffer, capacity, registry);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void onRawSample(int headsetId, long timestamp, int sample) {
+		publish(headsetId, timestamp, EventType.SIXTEEN_BIT_RAW_WAVE, sample);
+	}
+
+	@Override
+	public void onAttention(int headsetId, long timestamp, int attention) {
+		publish(headsetId, timestamp, EventType.ATTENTION, attention);
+	}
+
+	@Override
+	public void onMeditation(int headsetId, long timestamp, int meditation) {
+		publish(headsetId, timestamp, EventType.MEDITATION, meditation);
+	}
+
+	@Override
+	public void onPoorSignal(int headsetId, long timestamp, int poorSignal) {
+		publish(headsetId, timestamp, EventType.POOR_SIGNAL_QUALITY, poorSignal);
+	}
+
+	@Override
+	public synchronized void onEegPower(int headsetId, long timestamp, int delta, int theta, int lowAlpha, int highAlpha,
+			int lowBeta, int highBeta, int lowGamma, int midGamma) {
+		if(closed) return;
+		int offset = begin(headsetId, timestamp, EventType.ASIC_EEG_POWER);
+		int payload = offset + RingFormat.PAYLOAD;
+		buffer.putInt(payload, delta)
+			.putInt(payload + 4, theta)
+			.putInt(payload + 8, lowAlpha)
+			.putInt(payload + 12, highAlpha)
+			.putInt(payload + 16, lowBeta)
+			.putInt(payload + 20, highBeta)
+			.putInt(payload + 24, lowGamma)
+			.putInt(payload + 28, midGamma);
+		commit(offset);
+	}
+
+	@Override
+	public void onHeadsetStatus(int headsetId, long timestamp, EventType status, int reportedHeadsetId) {
+		publish(headsetId, timestamp, status, reportedHeadsetId);
+	}
+
+	/**
+	 * Headsets can deliver from different threads, so events are serialized with an uncontended lock.
+	 */
+	private synchronized void publish(int headsetId, long timestamp, EventType type, int value) {
+		if(closed) return;
+		int offset = begin(headsetId, timestamp, type);
+		buffer.putInt(offset + RingFormat.PAYLOAD, value);
+		commit(offset);
+	}
+
+	private int begin(int headsetId, long timestamp, EventType type) {
+		if(headsetId >= 0 && headsetId < addressWritten.length && !addressWritten[headsetId]) writeAddress(headsetId);
+		int offset = RingFormat.SLOTS_OFFSET + (int) (next & mask) * RingFormat.SLOT_LENGTH;
+		LONGS.setOpaque(buffer, offset + RingFormat.SEQUENCE, RingFormat.WRITING);
+		// A reader must not see the new values without also seeing the slot marked
+		VarHandle.storeStoreFence();
+		buffer.putLong(offset + RingFormat.TIMESTAMP, timestamp)
+			.putInt(offset + RingFormat.HEADSET_ID, headsetId)
+			.put(offset + RingFormat.CODE, (byte) type.getHexValue());
+		return offset;
+	}
+
+	private void commit(int offset) {
+		LONGS.setRelease(buffer, offset + RingFormat.SEQUENCE, next);
+		LONGS.setRelease(buffer, RingFormat.CURSOR_OFFSET, ++next);
+	}
+
+	private void writeAddress(int headsetId) {
+		addressWritten[headsetId] = true;
+		String address = null == registry ? null : registry.getAddress(headsetId);
+		if(null == address) return;
+		byte[] bytes = address.getBytes(StandardCharsets.US_ASCII);
+		int length = Math.min(bytes.length, RingFormat.ADDRESS_ENTRY_LENGTH - 1);
+		int entry = RingFormat.ADDRESS_TABLE_OFFSET + headsetId * RingFormat.ADDRESS_ENTRY_LENGTH;
+		for(int i = 0; i < length; i++) {
+			buffer.put(entry + 1 + i, bytes[i]);
+		}
+		// Published to readers by the release of the event's sequence
+		buffer.put(entry, (byte) length);
+	}
+
+	/**
+	 * @return the number of events published since the ring was opened
+	 */
+	public synchronized long getPublishedCount() {
+		return next;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Marks the ring closed for readers and releases the file. The file itself is left in place.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if(closed) return;
+		closed = true;
+		INTS.setRelease(buffer, RingFormat.CLOSED_OFFSET, 1);
+		buffer.force();
+		try {
+			lock.release();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package com.sperkins.mindwave.ipc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveDataListener;
+
+/**
+ * Reads the ring a {@link SharedMemoryPublisher} writes, from any process on the same machine:
+ * <pre>
+ * SharedMemorySubscriber subscriber = SharedMemorySubscriber.open(Paths.get("/dev/shm/mindwave.ring"));
+ * while(running) {
+ *     if(subscriber.poll(myDataListener, 256) == 0) Thread.onSpinWait();
+ * }
+ * </pre>
+ * Events are read straight from the mapping into {@link MindwaveDataListener} callbacks, with no sockets, no
+ * copies and no allocation, so a reader that polls in a loop sees each event well under a microsecond after it
+ * was published. How to wait between empty polls is up to the caller. Each subscriber keeps its own position,
+ * starting from the oldest event still in the ring, and must be polled from one thread at a time.
+ */
+public class SharedMemorySubscriber implements Closeable {
+	private static final VarHandle LONGS = SharedMemoryPublisher.LONGS;
+	private static final VarHandle INTS = SharedMemoryPublisher.INTS;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int capacity;
+	private final int mask;
+	private long instance;
+	private long position;
+	private long lost;
+
+	private SharedMemorySubscriber(Path path, FileChannel channel, MappedByteBuffer buffer) throws IOException {
+		this.path = path;
+		this.channel = channel;
+		this.buffer = buffer;
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if((int) INTS.getAcquire(buffer, 0) != RingFormat.MAGIC) throw new IOException("Not a ring file: " + path);
+		if(buffer.getShort(4) != RingFormat.VERSION) throw new IOException("Unsupported ring version in " + path);
+		if(buffer.getShort(RingFormat.SLOT_LENGTH_OFFSET) != RingFormat.SLOT_LENGTH) throw new IOException("Unsupported slot length in " + path);
+		this.capacity = buffer.getInt(RingFormat.CAPACITY_OFFSET);
+		if(buffer.capacity() != RingFormat.fileLength(capacity)) throw new IOException("Ring file " + path + " is truncated");
+		this.mask = capacity - 1;
+		this.instance = (long) LONGS.getAcquire(buffer, RingFormat.INSTANCE_OFFSET);
+		long cursor = (long) LONGS.getAcquire(buffer, RingFormat.CURSOR_OFFSET);
+		this.position = Math.max(0, cursor - capacity + 1);
+	}
+
+	/**
+	 * Maps an existing ring file for reading.
+	 */
+	public static SharedMemorySubscriber open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			if(channel.size() < RingFormat.SLOTS_OFFSET || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not a ring file: " + path);
+			}
+			return new SharedMemorySubscriber(path, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Delivers events published since the last poll.
+	 * @param limit the most events to deliver in this call
+	 * @return the number of events delivered; 0 if there were none
+	 */
+	public int poll(MindwaveDataListener listener, int limit) {
+		// Cursor first: a new publisher writes its instance before it advances the cursor, so a cursor from the new
+		// instance guarantees the instance read next is the new one too
+		long cursor = (long) LONGS.getAcquire(buffer, RingFormat.CURSOR_OFFSET);
+		long current = (long) LONGS.getAcquire(buffer, RingFormat.INSTANCE_OFFSET);
+		if(current != instance || cursor < position) {
+			// The publisher was restarted; follow the new one from its first event
+			instance = current;
+			position = 0;
+		}
+		if(cursor - position > capacity) {
+			lost += cursor - capacity - position;
+			position = cursor - capacity;
+		}
+
+		int delivered = 0;
+		while(position < cursor && delivered < limit) {
+			int offset = RingFormat.SLOTS_OFFSET + (int) (position & mask) * RingFormat.SLOT_LENGTH;
+			if((long) LONGS.getAcquire(buffer, offset + RingFormat.SEQUENCE) != position) {
+				cursor = skipLapped();
+				continue;
+			}
+			long timestamp = buffer.getLong(offset + RingFormat.TIMESTAMP);
+			int headsetId = buffer.getInt(offset + RingFormat.HEADSET_ID);
+			int code = buffer.get(offset + RingFormat.CODE) & 0xFF;
+			int payload = offset + RingFormat.PAYLOAD;
+			int value = buffer.getInt(payload);
+			if(code == EventType.ASIC_EEG_POWER.getHexValue()) {
+				int theta = buffer.getInt(payload + 4);
+				int lowAlpha = buffer.getInt(payload + 8);
+				int highAlpha = buffer.getInt(payload + 12);
+				int lowBeta = buffer.getInt(payload + 16);
+				int highBeta = buffer.getInt(payload + 20);
+				int lowGamma = buffer.getInt(payload + 24);
+				int midGamma = buffer.getInt(payload + 28);
+				if(!stillValid(offset)) {
+					cursor = skipLapped();
+					continue;
+				}
+				position++;
+				listener.onEegPower(headsetId, timestamp, value, theta, lowAlpha, highAlpha, lowBeta, highBeta, lowGamma, midGamma);
+			} else {
+				if(!stillValid(offset)) {
+					cursor = skipLapped();
+					continue;
+				}
+				position++;
+				dispatch(listener, headsetId, timestamp, code, value);
+			}
+			delivered++;
+		}
+		return delivered;
+	}
+
+	private boolean stillValid(int offset) {
+		// The slot's values must be read before its sequence is checked again
+		VarHandle.loadLoadFence();
+		return (long) LONGS.getOpaque(buffer, offset + RingFormat.SEQUENCE) == position;
+	}
+
+	/**
+	 * The publisher overwrote the slot at the current position; moves past every slot it may be rewriting.
+	 * @return the new cursor
+	 */
+	private long skipLapped() {
+		long cursor = (long) LONGS.getAcquire(buffer, RingFormat.CURSOR_OFFSET);
+		long oldest = Math.max(position + 1, cursor - capacity + 1);
+		lost += oldest - position;
+		position = oldest;
+		return cursor;
+	}
+
+	private static void dispatch(MindwaveDataListener listener, int headsetId, long timestamp, int code, int value) {
+		EventType type = EventType.fromHex(code);
+		if(null == type) return;
+		switch(type) {
+		case SIXTEEN_BIT_RAW_WAVE:
+			listener.onRawSample(headsetId, timestamp, value);
+			break;
+		case ATTENTION:
+			listener.onAttention(headsetId, timestamp, value);
+			break;
+		case MEDITATION:
+			listener.onMeditation(headsetId, timestamp, value);
+			break;
+		case POOR_SIGNAL_QUALITY:
+			listener.onPoorSignal(headsetId, timestamp, value);
+			break;
+		case HEADSET_CONNECTED:
+		case HEADSET_NOT_FOUND:
+		case HEADSET_DISCONNECTED:
+		case REQUEST_DENIED:
+		case STANDBY_SCAN:
+			listener.onHeadsetStatus(headsetId, timestamp, type, value);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * @return the address of <code>headsetId</code>, once the publisher has published an event for it; otherwise null
+	 */
+	public String getAddress(int headsetId) {
+		if(headsetId < 0 || headsetId >= RingFormat.ADDRESS_ENTRIES) return null;
+		int entry = RingFormat.ADDRESS_TABLE_OFFSET + headsetId * RingFormat.ADDRESS_ENTRY_LENGTH;
+		int length = buffer.get(entry);
+		if(length <= 0) return null;
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(entry + 1 + i);
+		}
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * @return events the publisher overwrote before this subscriber read them
+	 */
+	public long getLostCount() {
+		return lost;
+	}
+
+	/**
+	 * @return events published but not yet read
+	 */
+	public long getBacklog() {
+		return Math.max(0, (long) LONGS.getAcquire(buffer, RingFormat.CURSOR_OFFSET) - position);
+	}
+
+	/**
+	 * @return true once the publisher has closed the ring; a publisher that reopens it clears this
+	 */
+	public boolean isPublisherClosed() {
+		return (int) INTS.getAcquire(buffer, RingFormat.CLOSED_OFFSET) != 0;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
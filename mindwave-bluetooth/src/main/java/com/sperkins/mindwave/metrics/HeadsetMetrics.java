@@ -0,0 +1,211 @@
+package com.sperkins.mindwave.metrics;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.socket.DecodedPacket;
+
+/**
+ * Counters and latency histograms for one headset. Everything is recorded into {@link LongAdder}s, so
+ * the reader thread and the dispatch threads can record at the same time without contending, and
+ * reading the values never blocks recording.
+ *
+ * Get instances from {@link MetricsRegistry#forHeadset(int)}.
+ */
+public class HeadsetMetrics implements HeadsetMetricsMXBean {
+	private static final EventType[] EVENT_TYPES = EventType.values();
+
+	private final int headsetId;
+	private final String deviceAddress;
+
+	private final LongAdder bytesRead = new LongAdder();
+	private final LongAdder packetsFramed = new LongAdder();
+	private final LongAdder syncLosses = new LongAdder();
+	private final LongAdder checksumFailures = new LongAdder();
+	private final LongAdder badLengths = new LongAdder();
+	private final LongAdder unknownCodes = new LongAdder();
+	private final LongAdder reconnects = new LongAdder();
+	private final LongAdder[] events = new LongAdder[EVENT_TYPES.length];
+	private final LatencyHistogram decodeLatency = new LatencyHistogram();
+	private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+	HeadsetMetrics(int headsetId, String deviceAddress) {
+		this.headsetId = headsetId;
+		this.deviceAddress = deviceAddress;
+		for(int i = 0; i < events.length; i++) {
+			events[i] = new LongAdder();
+		}
+	}
+
+	public void addBytesRead(int bytes) {
+		bytesRead.add(bytes);
+	}
+
+	public void incrementPacketsFramed() {
+		packetsFramed.increment();
+	}
+
+	public void incrementSyncLosses() {
+		syncLosses.increment();
+	}
+
+	public void incrementChecksumFailures() {
+		checksumFailures.increment();
+	}
+
+	public void incrementBadLengths() {
+		badLengths.increment();
+	}
+
+	public void incrementReconnects() {
+		reconnects.increment();
+	}
+
+	/**
+	 * Records the time taken to decode <code>packet</code> and counts the values it contained by {@link EventType}.
+	 */
+	public void recordDecode(long nanos, DecodedPacket packet) {
+		decodeLatency.record(nanos);
+		if(packet.getUnknownCodes() > 0) unknownCodes.add(packet.getUnknownCodes());
+		if(packet.has(DecodedPacket.HEADSET_STATUS)) events[packet.getHeadsetStatus().ordinal()].increment();
+		if(packet.has(DecodedPacket.POOR_SIGNAL)) events[EventType.POOR_SIGNAL_QUALITY.ordinal()].increment();
+		if(packet.has(DecodedPacket.EEG)) events[EventType.ASIC_EEG_POWER.ordinal()].increment();
+		if(packet.has(DecodedPacket.ATTENTION)) events[EventType.ATTENTION.ordinal()].increment();
+		if(packet.has(DecodedPacket.MEDITATION)) events[EventType.MEDITATION.ordinal()].increment();
+		if(packet.has(DecodedPacket.RAW)) events[EventType.SIXTEEN_BIT_RAW_WAVE.ordinal()].increment();
+	}
+
+	/**
+	 * Records the time all listeners together took to handle one packet.
+	 */
+	public void recordDispatch(long nanos) {
+		dispatchLatency.record(nanos);
+	}
+
+	@Override
+	public String getDeviceAddress() {
+		return deviceAddress;
+	}
+
+	@Override
+	public int getHeadsetId() {
+		return headsetId;
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getPacketsFramed() {
+		return packetsFramed.sum();
+	}
+
+	@Override
+	public long getSyncLosses() {
+		return syncLosses.sum();
+	}
+
+	@Override
+	public long getChecksumFailures() {
+		return checksumFailures.sum();
+	}
+
+	@Override
+	public long getBadLengths() {
+		return badLengths.sum();
+	}
+
+	@Override
+	public long getUnknownCodes() {
+		return unknownCodes.sum();
+	}
+
+	@Override
+	public long getReconnects() {
+		return reconnects.sum();
+	}
+
+	public long getEventCount(EventType type) {
+		return events[type.ordinal()].sum();
+	}
+
+	@Override
+	public Map<String, Long> getEventCounts() {
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for(EventType type: EVENT_TYPES) {
+			long count = events[type.ordinal()].sum();
+			if(count > 0) counts.put(type.name(), count);
+		}
+		return counts;
+	}
+
+	public LatencyHistogram getDecodeLatency() {
+		return decodeLatency;
+	}
+
+	public LatencyHistogram getDispatchLatency() {
+		return dispatchLatency;
+	}
+
+	@Override
+	public long getDecodeMeanNanos() {
+		return decodeLatency.snapshot().getMeanNanos();
+	}
+
+	@Override
+	public long getDecodeP99Nanos() {
+		return decodeLatency.snapshot().getPercentileNanos(99);
+	}
+
+	@Override
+	public long getDecodeMaxNanos() {
+		return decodeLatency.snapshot().getMaxNanos();
+	}
+
+	@Override
+	public long getDispatchMeanNanos() {
+		return dispatchLatency.snapshot().getMeanNanos();
+	}
+
+	@Override
+	public long getDispatchP99Nanos() {
+		return dispatchLatency.snapshot().getPercentileNanos(99);
+	}
+
+	@Override
+	public long getDispatchMaxNanos() {
+		return dispatchLatency.snapshot().getMaxNanos();
+	}
+
+	@Override
+	public void reset() {
+		bytesRead.reset();
+		packetsFramed.reset();
+		syncLosses.reset();
+		checksumFailures.reset();
+		badLengths.reset();
+		unknownCodes.reset();
+		reconnects.reset();
+		for(LongAdder counter: events) {
+			counter.reset();
+		}
+		decodeLatency.reset();
+		dispatchLatency.reset();
+	}
+
+	public HeadsetMetricsSnapshot snapshot() {
+		Map<EventType, Long> counts = new EnumMap<EventType, Long>(EventType.class);
+		for(EventType type: EVENT_TYPES) {
+			long count = events[type.ordinal()].sum();
+			if(count > 0) counts.put(type, count);
+		}
+		return new HeadsetMetricsSnapshot(System.currentTimeMillis(), headsetId, deviceAddress, bytesRead.sum(),
+				packetsFramed.sum(), syncLosses.sum(), checksumFailures.sum(), badLengths.sum(), unknownCodes.sum(),
+				reconnects.sum(), counts, decodeLatency.snapshot(), dispatchLatency.snapshot());
+	}
+}
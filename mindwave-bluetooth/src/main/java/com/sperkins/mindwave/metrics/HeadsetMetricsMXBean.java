@@ -0,0 +1,38 @@
+package com.sperkins.mindwave.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of one headset's {@link HeadsetMetrics}, registered as
+ * <code>com.sperkins.mindwave:type=HeadsetMetrics,headset=&lt;device address&gt;</code>.
+ */
+public interface HeadsetMetricsMXBean {
+	public String getDeviceAddress();
+	public int getHeadsetId();
+
+	public long getBytesRead();
+	public long getPacketsFramed();
+	public long getSyncLosses();
+	public long getChecksumFailures();
+	public long getBadLengths();
+	public long getUnknownCodes();
+	public long getReconnects();
+
+	/**
+	 * @return decoded values per {@link com.sperkins.mindwave.event.EventType} name
+	 */
+	public Map<String, Long> getEventCounts();
+
+	public long getDecodeMeanNanos();
+	public long getDecodeP99Nanos();
+	public long getDecodeMaxNanos();
+
+	public long getDispatchMeanNanos();
+	public long getDispatchP99Nanos();
+	public long getDispatchMaxNanos();
+
+	/**
+	 * Sets every counter and histogram back to zero.
+	 */
+	public void reset();
+}
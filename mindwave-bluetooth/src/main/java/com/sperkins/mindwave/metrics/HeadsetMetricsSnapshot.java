@@ -0,0 +1,115 @@
+package com.sperkins.mindwave.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.sperkins.mindwave.event.EventType;
+
+/**
+ * Point-in-time copy of one headset's {@link HeadsetMetrics}. Counters are read one after another while
+ * recording continues, so values taken from the same snapshot may be a few packets apart.
+ */
+public class HeadsetMetricsSnapshot {
+	private final long timestamp;
+	private final int headsetId;
+	private final String deviceAddress;
+	private final long bytesRead;
+	private final long packetsFramed;
+	private final long syncLosses;
+	private final long checksumFailures;
+	private final long badLengths;
+	private final long unknownCodes;
+	private final long reconnects;
+	private final Map<EventType, Long> eventCounts;
+	private final LatencySnapshot decodeLatency;
+	private final LatencySnapshot dispatchLatency;
+
+	HeadsetMetricsSnapshot(long timestamp, int headsetId, String deviceAddress, long bytesRead, long packetsFramed,
+			long syncLosses, long checksumFailures, long badLengths, long unknownCodes, long reconnects,
+			Map<EventType, Long> eventCounts, LatencySnapshot decodeLatency, LatencySnapshot dispatchLatency) {
+		this.timestamp = timestamp;
+		this.headsetId = headsetId;
+		this.deviceAddress = deviceAddress;
+		this.bytesRead = bytesRead;
+		this.packetsFramed = packetsFramed;
+		this.syncLosses = syncLosses;
+		this.checksumFailures = checksumFailures;
+		this.badLengths = badLengths;
+		this.unknownCodes = unknownCodes;
+		this.reconnects = reconnects;
+		this.eventCounts = Collections.unmodifiableMap(eventCounts);
+		this.decodeLatency = decodeLatency;
+		this.dispatchLatency = dispatchLatency;
+	}
+
+	/**
+	 * @return when the snapshot was taken, in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public int getHeadsetId() {
+		return headsetId;
+	}
+
+	public String getDeviceAddress() {
+		return deviceAddress;
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	public long getPacketsFramed() {
+		return packetsFramed;
+	}
+
+	public long getSyncLosses() {
+		return syncLosses;
+	}
+
+	public long getChecksumFailures() {
+		return checksumFailures;
+	}
+
+	public long getBadLengths() {
+		return badLengths;
+	}
+
+	public long getUnknownCodes() {
+		return unknownCodes;
+	}
+
+	public long getReconnects() {
+		return reconnects;
+	}
+
+	/**
+	 * @return decoded values per type; types that haven't been seen are left out
+	 */
+	public Map<EventType, Long> getEventCounts() {
+		return eventCounts;
+	}
+
+	public long getEventCount(EventType type) {
+		Long count = eventCounts.get(type);
+		return null == count ? 0 : count;
+	}
+
+	public LatencySnapshot getDecodeLatency() {
+		return decodeLatency;
+	}
+
+	public LatencySnapshot getDispatchLatency() {
+		return dispatchLatency;
+	}
+
+	@Override
+	public String toString() {
+		return deviceAddress + ": bytes=" + bytesRead + ", packets=" + packetsFramed + ", syncLosses=" + syncLosses
+				+ ", checksumFailures=" + checksumFailures + ", badLengths=" + badLengths + ", unknownCodes=" + unknownCodes
+				+ ", reconnects=" + reconnects + ", events=" + eventCounts + ", decode=[" + decodeLatency + "], dispatch=["
+				+ dispatchLatency + "]";
+	}
+}
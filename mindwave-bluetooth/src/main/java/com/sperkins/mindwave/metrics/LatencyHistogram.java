@@ -0,0 +1,63 @@
+package com.sperkins.mindwave.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Records durations in nanoseconds into power-of-two buckets. Bucket <code>b</code> counts durations from
+ * 2<sup>b-1</sup> up to 2<sup>b</sup>-1 nanoseconds, so percentiles are accurate to within a factor of two,
+ * which is plenty to tell a 200ns decode from a 20ms listener. Recording is a couple of striped adds and
+ * never allocates or locks, so any number of threads can record at once.
+ */
+public class LatencyHistogram {
+	static final int BUCKETS = 64;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(new LongBinaryOperator() {
+		@Override
+		public long applyAsLong(long left, long right) {
+			return Math.max(left, right);
+		}
+	}, 0);
+
+	public LatencyHistogram() {
+		for(int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long nanos) {
+		if(nanos < 0) nanos = 0;
+		buckets[bucketFor(nanos)].increment();
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	static int bucketFor(long nanos) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * Clears all recorded durations. Durations recorded while the reset is in progress may be partly lost.
+	 */
+	public void reset() {
+		for(LongAdder bucket: buckets) {
+			bucket.reset();
+		}
+		count.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+	}
+
+	public LatencySnapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+		}
+		return new LatencySnapshot(counts, count.sum(), totalNanos.sum(), maxNanos.get());
+	}
+}
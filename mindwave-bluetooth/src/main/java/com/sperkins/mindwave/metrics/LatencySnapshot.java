@@ -0,0 +1,73 @@
+package com.sperkins.mindwave.metrics;
+
+/**
+ * Point-in-time copy of a {@link LatencyHistogram}.
+ */
+public class LatencySnapshot {
+	private final long[] bucketCounts;
+	private final long count;
+	private final long totalNanos;
+	private final long maxNanos;
+
+	LatencySnapshot(long[] bucketCounts, long count, long totalNanos, long maxNanos) {
+		this.bucketCounts = bucketCounts;
+		this.count = count;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	public long getMeanNanos() {
+		return count == 0 ? 0 : totalNanos / count;
+	}
+
+	/**
+	 * @param percentile 0 to 100, e.g. 99.9
+	 * @return the upper bound of the bucket holding the given percentile, never more than {@link #getMaxNanos()}
+	 */
+	public long getPercentileNanos(double percentile) {
+		if(percentile < 0 || percentile > 100) throw new IllegalArgumentException("percentile must be between 0 and 100");
+		long total = 0;
+		for(long bucket: bucketCounts) total += bucket;
+		if(total == 0) return 0;
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for(int i = 0; i < bucketCounts.length; i++) {
+			seen += bucketCounts[i];
+			if(seen >= rank && bucketCounts[i] > 0) {
+				long upper = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+				return Math.min(upper, maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+
+	/**
+	 * @return the number of durations recorded in bucket <code>bucket</code>, which covers 2<sup>bucket-1</sup>
+	 * to 2<sup>bucket</sup>-1 nanoseconds
+	 */
+	public long getBucketCount(int bucket) {
+		return bucketCounts[bucket];
+	}
+
+	public int getBuckets() {
+		return bucketCounts.length;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + count + ", mean=" + getMeanNanos() + "ns, p50=" + getPercentileNanos(50) + "ns, p99="
+				+ getPercentileNanos(99) + "ns, max=" + maxNanos + "ns";
+	}
+}
@@ -0,0 +1,176 @@
+package com.sperkins.mindwave.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+
+/**
+ * Holds the {@link HeadsetMetrics} for every headset, indexed by {@link HeadsetRegistry} ID so the
+ * hot path finds them with an array lookup. Each headset's metrics are registered with the platform
+ * MBean server the first time they're requested, unless JMX has been turned off.
+ *
+ * The shared instance registers each headset as <code>com.sperkins.mindwave:type=HeadsetMetrics,headset=&lt;address&gt;</code>.
+ * Every other registry adds its own <code>registry=&lt;n&gt;</code> key, so two registries never replace each
+ * other's MBeans.
+ */
+public class MetricsRegistry {
+	private final static Logger LOG = LoggerFactory.getLogger(MetricsRegistry.class.getName());
+	private static final AtomicInteger REGISTRIES = new AtomicInteger();
+	private static final MetricsRegistry INSTANCE = new MetricsRegistry(true, HeadsetRegistry.getInstance(), null);
+
+	public static final String DOMAIN = "com.sperkins.mindwave";
+
+	private final HeadsetRegistry headsets;
+	// Added to this registry's MBean names; null for the shared instance
+	private final String registryKey;
+	private volatile boolean jmxEnabled;
+	private volatile HeadsetMetrics[] metrics = new HeadsetMetrics[16];
+	// Names this registry registered itself, so it only ever unregisters its own MBeans
+	private final Set<ObjectName> registered = new HashSet<ObjectName>();
+
+	public static MetricsRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @param jmxEnabled whether to register each headset's metrics as an MBean
+	 */
+	public MetricsRegistry(boolean jmxEnabled) {
+		this(jmxEnabled, HeadsetRegistry.getInstance());
+	}
+
+	public MetricsRegistry(boolean jmxEnabled, HeadsetRegistry headsets) {
+		this(jmxEnabled, headsets, String.valueOf(REGISTRIES.incrementAndGet()));
+	}
+
+	private MetricsRegistry(boolean jmxEnabled, HeadsetRegistry headsets, String registryKey) {
+		this.jmxEnabled = jmxEnabled;
+		this.headsets = headsets;
+		this.registryKey = registryKey;
+	}
+
+	/**
+	 * @return the metrics for <code>headsetId</code>, created and registered on first use
+	 */
+	public HeadsetMetrics forHeadset(int headsetId) {
+		HeadsetMetrics[] current = metrics;
+		if(headsetId < current.length) {
+			HeadsetMetrics existing = current[headsetId];
+			if(null != existing) return existing;
+		}
+		synchronized(this) {
+			current = metrics;
+			if(headsetId >= current.length) {
+				current = Arrays.copyOf(current, Math.max(headsetId + 1, current.length * 2));
+			}
+			HeadsetMetrics existing = current[headsetId];
+			if(null == existing) {
+				existing = new HeadsetMetrics(headsetId, headsets.getAddress(headsetId));
+				current[headsetId] = existing;
+				if(jmxEnabled) register(existing);
+			}
+			metrics = current;
+			return existing;
+		}
+	}
+
+	/**
+	 * @return the metrics for <code>headsetId</code>, or null if none have been recorded
+	 */
+	public HeadsetMetrics get(int headsetId) {
+		HeadsetMetrics[] current = metrics;
+		return headsetId >= 0 && headsetId < current.length ? current[headsetId] : null;
+	}
+
+	/**
+	 * @return a snapshot of every headset's metrics, in headset ID order
+	 */
+	public List<HeadsetMetricsSnapshot> snapshot() {
+		List<HeadsetMetricsSnapshot> snapshots = new ArrayList<HeadsetMetricsSnapshot>();
+		for(HeadsetMetrics headset: metrics) {
+			if(null != headset) snapshots.add(headset.snapshot());
+		}
+		return snapshots;
+	}
+
+	public boolean isJmxEnabled() {
+		return jmxEnabled;
+	}
+
+	/**
+	 * Turns MBean registration on or off. Metrics that already exist are registered or unregistered immediately.
+	 */
+	public synchronized void setJmxEnabled(boolean jmxEnabled) {
+		if(this.jmxEnabled == jmxEnabled) return;
+		this.jmxEnabled = jmxEnabled;
+		for(HeadsetMetrics headset: metrics) {
+			if(null == headset) continue;
+			if(jmxEnabled) {
+				register(headset);
+			} else {
+				unregister(headset);
+			}
+		}
+	}
+
+	/**
+	 * @return the name a headset's MBean is registered under. Addresses are only quoted if they contain
+	 * characters that aren't allowed in an ObjectName value, so a MAC address appears as-is.
+	 */
+	public static ObjectName objectName(String deviceAddress) throws JMException {
+		return objectName(deviceAddress, null);
+	}
+
+	/**
+	 * @return the name this registry registers a headset's MBean under
+	 */
+	public ObjectName objectNameFor(String deviceAddress) throws JMException {
+		return objectName(deviceAddress, registryKey);
+	}
+
+	private static ObjectName objectName(String deviceAddress, String registryKey) throws JMException {
+		String value = String.valueOf(deviceAddress);
+		if(!value.matches("[A-Za-z0-9_.\\-]+")) value = ObjectName.quote(value);
+		String name = DOMAIN + ":type=HeadsetMetrics,headset=" + value;
+		return new ObjectName(null == registryKey ? name : name + ",registry=" + registryKey);
+	}
+
+	private void register(HeadsetMetrics headset) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = objectNameFor(headset.getDeviceAddress());
+			if(server.isRegistered(name)) {
+				// Registered by something else; never replace another owner's MBean
+				LOG.warn("Metrics MBean " + name + " is already registered; not registering another");
+				return;
+			}
+			server.registerMBean(headset, name);
+			registered.add(name);
+		} catch (JMException e) {
+			LOG.warn("Could not register metrics MBean for " + headset.getDeviceAddress(), e);
+		}
+	}
+
+	private void unregister(HeadsetMetrics headset) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = objectNameFor(headset.getDeviceAddress());
+			if(registered.remove(name) && server.isRegistered(name)) server.unregisterMBean(name);
+		} catch (JMException e) {
+			LOG.warn("Could not unregister metrics MBean for " + headset.getDeviceAddress(), e);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.sperkins.mindwave.replay;
+
+/**
+ * Layout of a capture file. All values are big-endian.
+ * <pre>
+ * header:  int    magic ("MWC1")
+ *          short  version
+ *          long   capture start, milliseconds since the epoch
+ *          short  device address length, followed by that many US-ASCII bytes
+ * records: int    microseconds since the previous record (the first record: since capture start)
+ *          short  unsigned byte count, followed by the bytes exactly as they arrived from the headset
+ * </pre>
+ * One record is written per transport read, so a record holds however many bytes arrived together.
+ */
+public final class CaptureFormat {
+	public static final int MAGIC = 0x4D574331;
+	public static final short VERSION = 1;
+	public static final int RECORD_HEADER_LENGTH = 6;
+	public static final int MAX_RECORD_LENGTH = 0xFFFF;
+	public static final String FILE_EXTENSION = ".mwcap";
+
+	private CaptureFormat() {}
+}
@@ -0,0 +1,100 @@
+package com.sperkins.mindwave.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends raw headset bytes and their arrival times to a capture file. See {@link CaptureFormat} for the layout.
+ * Writes are buffered; call {@link #flush()} or {@link #close()} to make sure everything reaches the disk.
+ */
+public class CaptureWriter implements Closeable {
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private long lastRecordNanos;
+
+	public CaptureWriter(Path path, String deviceAddress) throws IOException {
+		this(path, deviceAddress, 64 * 1024);
+	}
+
+	public CaptureWriter(Path path, String deviceAddress, int bufferCapacity) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer = ByteBuffer.allocateDirect(Math.max(bufferCapacity, CaptureFormat.RECORD_HEADER_LENGTH + CaptureFormat.MAX_RECORD_LENGTH));
+		byte[] address = deviceAddress.getBytes(StandardCharsets.US_ASCII);
+		buffer.putInt(CaptureFormat.MAGIC)
+			.putShort(CaptureFormat.VERSION)
+			.putLong(System.currentTimeMillis())
+			.putShort((short) address.length)
+			.put(address);
+		lastRecordNanos = System.nanoTime();
+	}
+
+	/**
+	 * Records bytes that just arrived from the headset.
+	 */
+	public synchronized void record(byte[] bytes, int offset, int length) throws IOException {
+		while(length > 0) {
+			int count = Math.min(length, CaptureFormat.MAX_RECORD_LENGTH);
+			if(buffer.remaining() < CaptureFormat.RECORD_HEADER_LENGTH + count) flushBuffer();
+			putRecordHeader(count);
+			buffer.put(bytes, offset, count);
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Records the bytes between <code>from</code> and the position of <code>bytes</code>. The buffer's position is not changed.
+	 */
+	public synchronized void record(ByteBuffer bytes, int from) throws IOException {
+		if(bytes.hasArray()) {
+			record(bytes.array(), bytes.arrayOffset() + from, bytes.position() - from);
+			return;
+		}
+		ByteBuffer view = bytes.duplicate();
+		view.limit(bytes.position()).position(from);
+		while(view.hasRemaining()) {
+			int count = Math.min(view.remaining(), CaptureFormat.MAX_RECORD_LENGTH);
+			if(buffer.remaining() < CaptureFormat.RECORD_HEADER_LENGTH + count) flushBuffer();
+			putRecordHeader(count);
+			int limit = view.limit();
+			view.limit(view.position() + count);
+			buffer.put(view);
+			view.limit(limit);
+		}
+	}
+
+	private void putRecordHeader(int count) {
+		long now = System.nanoTime();
+		long deltaMicros = (now - lastRecordNanos) / 1000;
+		lastRecordNanos = now;
+		buffer.putInt((int) Math.min(deltaMicros, Integer.MAX_VALUE));
+		buffer.putShort((short) count);
+	}
+
+	public synchronized void flush() throws IOException {
+		flushBuffer();
+		channel.force(false);
+	}
+
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flushBuffer();
+		} finally {
+			channel.close();
+		}
+	}
+}
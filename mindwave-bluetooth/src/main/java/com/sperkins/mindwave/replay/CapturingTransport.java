@@ -0,0 +1,69 @@
+package com.sperkins.mindwave.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import com.sperkins.mindwave.socket.BluetoothConnection;
+import com.sperkins.mindwave.socket.HeadsetTransport;
+
+/**
+ * Passes a headset's bytes through unchanged while recording them to a capture file.
+ * <pre>
+ * CapturingTransport.capture(connection, Paths.get("session.mwcap"));
+ * socket.start(connection);
+ * </pre>
+ */
+public class CapturingTransport implements HeadsetTransport {
+	private final HeadsetTransport delegate;
+	private final CaptureWriter writer;
+
+	public CapturingTransport(HeadsetTransport delegate, CaptureWriter writer) {
+		this.delegate = delegate;
+		this.writer = writer;
+	}
+
+	/**
+	 * Replaces the connection's transport with one that records everything it reads to <code>path</code>.
+	 */
+	public static CapturingTransport capture(BluetoothConnection connection, Path path) throws IOException {
+		CapturingTransport transport = new CapturingTransport(connection.getTransport(), new CaptureWriter(path, connection.getDeviceAddress()));
+		connection.setTransport(transport);
+		return transport;
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		int from = dst.position();
+		int read = delegate.read(dst);
+		if(read > 0) writer.record(dst, from);
+		return read;
+	}
+
+	@Override
+	public void write(ByteBuffer src) throws IOException {
+		delegate.write(src);
+	}
+
+	@Override
+	public boolean isOpen() {
+		return delegate.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			delegate.close();
+		} finally {
+			writer.close();
+		}
+	}
+
+	public HeadsetTransport getDelegate() {
+		return delegate;
+	}
+
+	public CaptureWriter getWriter() {
+		return writer;
+	}
+}
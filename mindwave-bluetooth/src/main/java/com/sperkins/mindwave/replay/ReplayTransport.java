@@ -0,0 +1,187 @@
+package com.sperkins.mindwave.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+import com.sperkins.mindwave.socket.BluetoothConnection;
+import com.sperkins.mindwave.socket.TimestampedTransport;
+
+/**
+ * Plays a capture file back as if the headset were sending it, so a recorded session runs through the normal
+ * {@link com.sperkins.mindwave.socket.BluetoothSocket} parse-and-notify pipeline:
+ * <pre>
+ * ReplayTransport replay = ReplayTransport.open(Paths.get("session.mwcap"), Pacing.AS_FAST_AS_POSSIBLE);
+ * socket.start(replay.newConnection());
+ * </pre>
+ * The file is memory-mapped and its bytes are handed to the framer with bulk copies straight out of the mapping.
+ * In {@link Pacing#REAL_TIME} mode each record is released at its recorded offset from the start of the replay,
+ * scaled by the speed factor. Capture files larger than 2GB are not supported.
+ *
+ * Each read returns bytes from one record at most, and the socket stamps the packets it completes with that
+ * record's capture time rather than the wall clock, in either pacing mode. Looped replays keep counting forward
+ * from the end of the previous loop.
+ */
+public class ReplayTransport implements TimestampedTransport {
+	public enum Pacing {
+		/** Release bytes with the timing they were captured with */
+		REAL_TIME,
+		/** Ignore timestamps and deliver bytes as quickly as they are read */
+		AS_FAST_AS_POSSIBLE
+	}
+
+	private final FileChannel channel;
+	private final MappedByteBuffer mapped;
+	private final ByteBuffer source;
+	private final String deviceAddress;
+	private final long captureStartMillis;
+	private final int firstRecord;
+	private final Pacing pacing;
+
+	private double speed = 1.0;
+	private int loops = 1;
+	private int loopsCompleted;
+	private int recordRemaining;
+	private long elapsedMicros;
+	private long replayStartNanos = -1;
+	private volatile boolean open = true;
+
+	public ReplayTransport(Path path, Pacing pacing) throws IOException {
+		this.pacing = pacing;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		if(channel.size() > Integer.MAX_VALUE) {
+			channel.close();
+			throw new IOException("Capture file too large to map: " + path);
+		}
+		this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		if(mapped.getInt() != CaptureFormat.MAGIC) {
+			channel.close();
+			throw new IOException("Not a capture file: " + path);
+		}
+		short version = mapped.getShort();
+		if(version != CaptureFormat.VERSION) {
+			channel.close();
+			throw new IOException("Unsupported capture version " + version + ": " + path);
+		}
+		this.captureStartMillis = mapped.getLong();
+		byte[] address = new byte[mapped.getShort() & 0xFFFF];
+		mapped.get(address);
+		this.deviceAddress = new String(address, StandardCharsets.US_ASCII);
+		this.firstRecord = mapped.position();
+		this.source = mapped.duplicate();
+	}
+
+	public static ReplayTransport open(Path path, Pacing pacing) throws IOException {
+		return new ReplayTransport(path, pacing);
+	}
+
+	/**
+	 * @return a connection for the captured headset that reads from this transport
+	 */
+	public BluetoothConnection newConnection() {
+		return new BluetoothConnection(deviceAddress, this);
+	}
+
+	/**
+	 * @param speed playback rate for {@link Pacing#REAL_TIME}; 2.0 plays twice as fast as captured
+	 */
+	public ReplayTransport setSpeed(double speed) {
+		if(speed <= 0) throw new IllegalArgumentException("speed must be positive");
+		this.speed = speed;
+		return this;
+	}
+
+	/**
+	 * @param loops how many times to play the capture before reporting end of stream; 0 plays forever
+	 */
+	public ReplayTransport setLoops(int loops) {
+		if(loops < 0) throw new IllegalArgumentException("loops cannot be negative");
+		this.loops = loops;
+		return this;
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if(!open) return -1;
+		if(!dst.hasRemaining()) return 0;
+		if(replayStartNanos < 0) replayStartNanos = System.nanoTime();
+
+		int total = 0;
+		while(dst.hasRemaining()) {
+			if(recordRemaining == 0) {
+				// Hand back what we have before starting the next record, so every byte read shares one timestamp
+				if(total > 0) break;
+				if(!nextRecord()) break;
+			}
+			int count = Math.min(dst.remaining(), recordRemaining);
+			int limit = source.limit();
+			source.limit(source.position() + count);
+			dst.put(source);
+			source.limit(limit);
+			recordRemaining -= count;
+			total += count;
+		}
+		return total == 0 ? -1 : total;
+	}
+
+	private boolean nextRecord() {
+		while(source.remaining() < CaptureFormat.RECORD_HEADER_LENGTH) {
+			if(source.limit() - firstRecord < CaptureFormat.RECORD_HEADER_LENGTH) return false;
+			loopsCompleted++;
+			if(loops != 0 && loopsCompleted >= loops) return false;
+			source.position(firstRecord);
+		}
+		elapsedMicros += source.getInt() & 0xFFFFFFFFL;
+		recordRemaining = Math.min(source.getShort() & 0xFFFF, source.remaining());
+		if(pacing == Pacing.REAL_TIME) {
+			long due = replayStartNanos + (long)(elapsedMicros * 1000 / speed);
+			long wait;
+			while(open && (wait = due - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void write(ByteBuffer src) {
+		// Commands to a recorded headset go nowhere
+		src.position(src.limit());
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() throws IOException {
+		open = false;
+		channel.close();
+	}
+
+	public String getDeviceAddress() {
+		return deviceAddress;
+	}
+
+	/**
+	 * @return the capture time of the record the last read came from
+	 */
+	@Override
+	public long getTimestamp() {
+		return captureStartMillis + elapsedMicros / 1000;
+	}
+
+	public long getCaptureStartMillis() {
+		return captureStartMillis;
+	}
+
+	public int getLoopsCompleted() {
+		return loopsCompleted;
+	}
+}
@@ -0,0 +1,98 @@
+package com.sperkins.mindwave.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One client of an {@link EventServer}: its subscription, read buffer and bounded queue of frames to send.
+ * Producers add frames from any thread; only the server's selector thread reads and writes the channel.
+ */
+class ClientConnection {
+	private static final int GATHER = 256;
+
+	final SocketChannel channel;
+	final ByteBuffer readBuffer = ByteBuffer.allocate(FrameFormat.MAX_CLIENT_FRAME_LENGTH + 2);
+	// Set while the client is on the selector's pending list or waiting for OP_WRITE
+	final AtomicBoolean writeScheduled = new AtomicBoolean();
+	private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<ByteBuffer>();
+	private final ByteBuffer[] gather = new ByteBuffer[GATHER];
+	private final int maxQueuedFrames;
+	private volatile Subscription subscription = Subscription.ALL;
+	private volatile boolean overflowed;
+
+	ClientConnection(SocketChannel channel, int maxQueuedFrames) {
+		this.channel = channel;
+		this.maxQueuedFrames = maxQueuedFrames;
+	}
+
+	boolean wants(int code, int headsetId) {
+		return !overflowed && subscription.wants(code, headsetId);
+	}
+
+	/**
+	 * Queues a frame, which the connection shares with every other client.
+	 * @return false if the queue was full; the client is then marked for disconnection
+	 */
+	synchronized boolean offer(ByteBuffer frame) {
+		if(overflowed) return false;
+		if(queue.size() >= maxQueuedFrames) {
+			overflowed = true;
+			queue.clear();
+			return false;
+		}
+		// Each client needs its own position in the shared bytes
+		queue.add(frame.duplicate());
+		return true;
+	}
+
+	boolean isOverflowed() {
+		return overflowed;
+	}
+
+	synchronized boolean hasQueued() {
+		return !queue.isEmpty();
+	}
+
+	/**
+	 * Writes queued frames with gathering writes until the queue is empty or the socket buffer is full.
+	 * Called on the selector thread only.
+	 * @return true if everything queued was written
+	 */
+	boolean flush() throws IOException {
+		while(true) {
+			int count = 0;
+			synchronized(this) {
+				for(ByteBuffer frame: queue) {
+					if(count == GATHER) break;
+					gather[count++] = frame;
+				}
+			}
+			if(count == 0) return true;
+			channel.write(gather, 0, count);
+			int written = 0;
+			while(written < count && !gather[written].hasRemaining()) {
+				written++;
+			}
+			synchronized(this) {
+				for(int i = 0; i < written; i++) {
+					queue.poll();
+				}
+			}
+			for(int i = 0; i < count; i++) {
+				gather[i] = null;
+			}
+			if(written < count) return false;
+		}
+	}
+
+	Subscription getSubscription() {
+		return subscription;
+	}
+
+	void setSubscription(Subscription subscription) {
+		this.subscription = subscription;
+	}
+}
@@ -0,0 +1,171 @@
+package com.sperkins.mindwave.server;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveDataListener;
+
+/**
+ * Receives the stream of an {@link EventServer} and raises it to a {@link MindwaveDataListener}, as if the
+ * headsets were connected locally:
+ * <pre>
+ * EventClient client = EventClient.connect(new InetSocketAddress("dashboard-host", 7070), myDataListener);
+ * client.subscribe(new EventType[] { EventType.ATTENTION, EventType.MEDITATION });
+ * client.start();
+ * </pre>
+ * Headset IDs passed to the listener are the server's; {@link #getAddress(int)} maps them to addresses.
+ */
+public class EventClient implements Closeable {
+	private final static Logger LOG = LoggerFactory.getLogger(EventClient.class.getName());
+
+	private final SocketChannel channel;
+	private final MindwaveDataListener listener;
+	private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+	private volatile String[] addresses = new String[16];
+	private volatile boolean open = true;
+	private Thread thread;
+
+	private EventClient(SocketChannel channel, MindwaveDataListener listener) {
+		this.channel = channel;
+		this.listener = listener;
+	}
+
+	public static EventClient connect(SocketAddress address, MindwaveDataListener listener) throws IOException {
+		if(null == listener) throw new NullPointerException("listener cannot be null");
+		return new EventClient(SocketChannel.open(address), listener);
+	}
+
+	/**
+	 * Replaces the client's subscription. Without one the server sends everything.
+	 * @param types the event types to receive; null or empty for all of them
+	 * @param deviceAddresses the headsets to receive from; none for all of them
+	 */
+	public void subscribe(EventType[] types, String... deviceAddresses) throws IOException {
+		int typeCount = null == types ? 0 : types.length;
+		int addressCount = null == deviceAddresses ? 0 : deviceAddresses.length;
+		if(typeCount > 255 || addressCount > 255) throw new IllegalArgumentException("At most 255 types and addresses");
+		ByteBuffer frame = ByteBuffer.allocate(FrameFormat.MAX_CLIENT_FRAME_LENGTH + 2);
+		frame.position(2);
+		frame.put((byte) FrameFormat.SUBSCRIBE).put((byte) typeCount);
+		for(int i = 0; i < typeCount; i++) {
+			frame.put((byte) types[i].getHexValue());
+		}
+		frame.put((byte) addressCount);
+		for(int i = 0; i < addressCount; i++) {
+			byte[] address = deviceAddresses[i].getBytes(StandardCharsets.US_ASCII);
+			frame.put((byte) address.length).put(address);
+		}
+		frame.putShort(0, (short)(frame.position() - 2));
+		frame.flip();
+		synchronized(channel) {
+			while(frame.hasRemaining()) {
+				channel.write(frame);
+			}
+		}
+	}
+
+	/**
+	 * Reads frames on a new daemon thread until the connection closes.
+	 */
+	public synchronized void start() {
+		if(null != thread) throw new IllegalStateException("Client already started");
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					EventClient.this.run();
+				} catch (IOException e) {
+					if(open) LOG.info("Event stream ended: " + e.getMessage());
+				}
+			}
+		}, "mindwave-event-client");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Reads frames on the calling thread until the connection closes.
+	 * @throws EOFException when the server closes the connection
+	 */
+	public void run() throws IOException {
+		while(open) {
+			if(channel.read(buffer) < 0) throw new EOFException("Server closed the connection");
+			buffer.flip();
+			while(buffer.remaining() >= 2) {
+				int length = buffer.getShort(buffer.position()) & 0xFFFF;
+				if(buffer.remaining() < 2 + length) break;
+				int end = buffer.position() + 2 + length;
+				buffer.position(buffer.position() + 2);
+				dispatch();
+				buffer.position(end);
+			}
+			buffer.compact();
+		}
+	}
+
+	private void dispatch() {
+		int code = buffer.get() & 0xFF;
+		int headsetId = buffer.getShort() & 0xFFFF;
+		long timestamp = buffer.getLong();
+		if(code == FrameFormat.HEADSET) {
+			byte[] address = new byte[buffer.get() & 0xFF];
+			buffer.get(address);
+			setAddress(headsetId, new String(address, StandardCharsets.US_ASCII));
+			return;
+		}
+		EventType type = EventType.fromHex(code);
+		if(null == type) return;
+		switch(type) {
+		case SIXTEEN_BIT_RAW_WAVE:
+			listener.onRawSample(headsetId, timestamp, buffer.getShort());
+			break;
+		case ATTENTION:
+			listener.onAttention(headsetId, timestamp, buffer.get() & 0xFF);
+			break;
+		case MEDITATION:
+			listener.onMeditation(headsetId, timestamp, buffer.get() & 0xFF);
+			break;
+		case POOR_SIGNAL_QUALITY:
+			listener.onPoorSignal(headsetId, timestamp, buffer.get() & 0xFF);
+			break;
+		case ASIC_EEG_POWER:
+			listener.onEegPower(headsetId, timestamp, buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+					buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+			break;
+		default:
+			listener.onHeadsetStatus(headsetId, timestamp, type, buffer.getShort() & 0xFFFF);
+			break;
+		}
+	}
+
+	private synchronized void setAddress(int headsetId, String address) {
+		String[] current = addresses;
+		if(headsetId >= current.length) current = Arrays.copyOf(current, Math.max(headsetId + 1, current.length * 2));
+		current[headsetId] = address;
+		addresses = current;
+	}
+
+	/**
+	 * @return the address the server announced for a headset ID, or null if it hasn't announced one
+	 */
+	public String getAddress(int headsetId) {
+		String[] current = addresses;
+		return headsetId >= 0 && headsetId < current.length ? current[headsetId] : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		open = false;
+		channel.close();
+	}
+}
@@ -0,0 +1,423 @@
+package com.sperkins.mindwave.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveDataListener;
+
+/**
+ * Embedded TCP server that forwards every headset's values to remote clients:
+ * <pre>
+ * EventServer server = new EventServer(new InetSocketAddress(7070));
+ * server.start();
+ * socket.addDataListener(server);
+ * </pre>
+ * Each value is encoded once into a small binary frame (see {@link FrameFormat}), and the same bytes are queued
+ * for every client whose subscription wants it. One selector thread writes each client's queue with gathering
+ * writes, so frames that piled up go out in one system call. A client whose queue reaches
+ * {@link #setMaxQueuedFrames(int)} is disconnected rather than allowed to hold up the headsets or use
+ * unbounded memory. {@link EventClient} reads the stream from Java.
+ */
+public class EventServer implements MindwaveDataListener, Closeable {
+	private final static Logger LOG = LoggerFactory.getLogger(EventServer.class.getName());
+	public static final int DEFAULT_MAX_QUEUED_FRAMES = 8192;
+
+	private final SocketAddress bindAddress;
+	private final HeadsetRegistry registry;
+	private final List<ClientConnection> clients = new CopyOnWriteArrayList<ClientConnection>();
+	private final Queue<ClientConnection> pending = new ConcurrentLinkedQueue<ClientConnection>();
+	private final AtomicLong slowDisconnects = new AtomicLong();
+	private final Object announceLock = new Object();
+	// HEADSET frames by headset ID, sent once to every client before the headset's first value
+	private volatile ByteBuffer[] announcements = new ByteBuffer[16];
+	private int maxQueuedFrames = DEFAULT_MAX_QUEUED_FRAMES;
+	private ServerSocketChannel serverChannel;
+	private Selector selector;
+	private Thread thread;
+	private volatile boolean open;
+
+	public EventServer(SocketAddress bindAddress) {
+		this(bindAddress, HeadsetRegistry.getInstance());
+	}
+
+	public EventServer(SocketAddress bindAddress, HeadsetRegistry registry) {
+		if(null == bindAddress) throw new NullPointerException("bindAddress cannot be null");
+		this.bindAddress = bindAddress;
+		this.registry = registry;
+	}
+
+	/**
+	 * @param maxQueuedFrames frames a client may fall behind by before it is disconnected; set before {@link #start()}
+	 */
+	public EventServer setMaxQueuedFrames(int maxQueuedFrames) {
+		if(maxQueuedFrames < 1) throw new IllegalArgumentException("maxQueuedFrames must be at least 1");
+		if(null != thread) throw new IllegalStateException("Set the queue size before starting the server");
+		this.maxQueuedFrames = maxQueuedFrames;
+		return this;
+	}
+
+	public int getMaxQueuedFrames() {
+		return maxQueuedFrames;
+	}
+
+	/**
+	 * Binds the server socket and starts accepting clients.
+	 */
+	public synchronized void start() throws IOException {
+		if(null != thread) throw new IllegalStateException("Server already started");
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.bind(bindAddress);
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			serverChannel.close();
+			selector.close();
+			throw e;
+		}
+		open = true;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				serve();
+			}
+		}, "mindwave-event-server");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return the address the server is listening on, with the actual port if it was bound to port 0
+	 */
+	public InetSocketAddress getLocalAddress() throws IOException {
+		return (InetSocketAddress) serverChannel.getLocalAddress();
+	}
+
+	public int getClientCount() {
+		return clients.size();
+	}
+
+	/**
+	 * @return how many clients have been disconnected for falling too far behind
+	 */
+	public long getSlowDisconnectCount() {
+		return slowDisconnects.get();
+	}
+
+	@Override
+	public void onRawSample(int headsetId, long timestamp, int sample) {
+		int code = EventType.SIXTEEN_BIT_RAW_WAVE.getHexValue();
+		if(!prepare(code, headsetId)) return;
+		ByteBuffer frame = frame(code, headsetId, timestamp, 2);
+		frame.putShort((short) sample);
+		send(frame, code, headsetId);
+	}
+
+	@Override
+	public void onAttention(int headsetId, long timestamp, int attention) {
+		sendByte(EventType.ATTENTION.getHexValue(), headsetId, timestamp, attention);
+	}
+
+	@Override
+	public void onMeditation(int headsetId, long timestamp, int meditation) {
+		sendByte(EventType.MEDITATION.getHexValue(), headsetId, timestamp, meditation);
+	}
+
+	@Override
+	public void onPoorSignal(int headsetId, long timestamp, int poorSignal) {
+		sendByte(EventType.POOR_SIGNAL_QUALITY.getHexValue(), headsetId, timestamp, poorSignal);
+	}
+
+	@Override
+	public void onEegPower(int headsetId, long timestamp, int delta, int theta, int lowAlpha, int highAlpha,
+			int lowBeta, int highBeta, int lowGamma, int midGamma) {
+		int code = EventType.ASIC_EEG_POWER.getHexValue();
+		if(!prepare(code, headsetId)) return;
+		ByteBuffer frame = frame(code, headsetId, timestamp, 32);
+		frame.putInt(delta).putInt(theta).putInt(lowAlpha).putInt(highAlpha)
+			.putInt(lowBeta).putInt(highBeta).putInt(lowGamma).putInt(midGamma);
+		send(frame, code, headsetId);
+	}
+
+	@Override
+	public void onHeadsetStatus(int headsetId, long timestamp, EventType status, int reportedHeadsetId) {
+		int code = status.getHexValue();
+		if(!prepare(code, headsetId)) return;
+		ByteBuffer frame = frame(code, headsetId, timestamp, 2);
+		frame.putShort((short) reportedHeadsetId);
+		send(frame, code, headsetId);
+	}
+
+	private void sendByte(int code, int headsetId, long timestamp, int value) {
+		if(!prepare(code, headsetId)) return;
+		ByteBuffer frame = frame(code, headsetId, timestamp, 1);
+		frame.put((byte) value);
+		send(frame, code, headsetId);
+	}
+
+	/**
+	 * Announces the headset if it's new.
+	 * @return whether any client wants the value, so it's worth encoding
+	 */
+	private boolean prepare(int code, int headsetId) {
+		if(!open) return false;
+		ByteBuffer[] current = announcements;
+		if(headsetId >= current.length || null == current[headsetId]) announce(headsetId);
+		for(ClientConnection client: clients) {
+			if(client.wants(code, headsetId)) return true;
+		}
+		return false;
+	}
+
+	private void announce(int headsetId) {
+		synchronized(announceLock) {
+			ByteBuffer[] current = announcements;
+			if(headsetId < current.length && null != current[headsetId]) return;
+			String address = registry.getAddress(headsetId);
+			byte[] bytes = (null == address ? "" : address).getBytes(StandardCharsets.US_ASCII);
+			ByteBuffer frame = frame(FrameFormat.HEADSET, headsetId, System.currentTimeMillis(), 1 + bytes.length);
+			frame.put((byte) bytes.length).put(bytes);
+			frame.flip();
+			if(headsetId >= current.length) {
+				current = Arrays.copyOf(current, Math.max(headsetId + 1, current.length * 2));
+			}
+			current[headsetId] = frame;
+			announcements = current;
+			for(ClientConnection client: clients) {
+				// The new headset may be one the client subscribed to by address before it was known
+				client.setSubscription(client.getSubscription().resolve(registry));
+				queue(client, frame);
+			}
+		}
+	}
+
+	private static ByteBuffer frame(int code, int headsetId, long timestamp, int payloadLength) {
+		ByteBuffer frame = ByteBuffer.allocate(FrameFormat.HEADER_LENGTH + payloadLength);
+		frame.putShort((short)(FrameFormat.HEADER_LENGTH - 2 + payloadLength))
+			.put((byte) code)
+			.putShort((short) headsetId)
+			.putLong(timestamp);
+		return frame;
+	}
+
+	private void send(ByteBuffer frame, int code, int headsetId) {
+		frame.flip();
+		for(ClientConnection client: clients) {
+			if(client.wants(code, headsetId)) queue(client, frame);
+		}
+	}
+
+	private void queue(ClientConnection client, ByteBuffer frame) {
+		if(!client.offer(frame)) {
+			// A slow client may never become writable again, so hand it to the selector to disconnect
+			pending.add(client);
+			selector.wakeup();
+			return;
+		}
+		// Only the first frame since the last flush wakes the selector; later ones ride along
+		if(client.writeScheduled.compareAndSet(false, true)) {
+			pending.add(client);
+			selector.wakeup();
+		}
+	}
+
+	private void serve() {
+		try {
+			while(open) {
+				selector.select();
+				ClientConnection client;
+				while(null != (client = pending.poll())) {
+					write(client);
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid()) continue;
+					if(key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					client = (ClientConnection) key.attachment();
+					if(key.isReadable()) read(client);
+					if(key.isValid() && key.isWritable()) write(client);
+				}
+			}
+		} catch (IOException e) {
+			if(open) LOG.error("Event server stopped: " + e.getMessage(), e);
+		} finally {
+			for(ClientConnection client: clients) {
+				disconnect(client);
+			}
+		}
+	}
+
+	/**
+	 * Accepts one client. A failure only costs that client, e.g. when the process is out of file descriptors;
+	 * the server keeps serving everyone else.
+	 */
+	private void accept() {
+		SocketChannel channel = null;
+		ClientConnection client;
+		try {
+			channel = serverChannel.accept();
+			if(null == channel) return;
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			client = new ClientConnection(channel, maxQueuedFrames);
+			channel.register(selector, SelectionKey.OP_READ, client);
+			LOG.info("Event client connected from " + channel.getRemoteAddress());
+		} catch (IOException e) {
+			LOG.warn("Could not accept event client: " + e.getMessage());
+			if(null != channel) {
+				try {
+					channel.close();
+				} catch (IOException closeFailure) {
+					LOG.debug("Could not close rejected event client: " + closeFailure.getMessage());
+				}
+			}
+			return;
+		}
+		synchronized(announceLock) {
+			for(ByteBuffer announcement: announcements) {
+				if(null != announcement) queue(client, announcement);
+			}
+			clients.add(client);
+		}
+	}
+
+	private void read(ClientConnection client) {
+		try {
+			if(client.channel.read(client.readBuffer) < 0) {
+				disconnect(client);
+				return;
+			}
+			ByteBuffer buffer = client.readBuffer;
+			buffer.flip();
+			while(buffer.remaining() >= 2) {
+				int length = buffer.getShort(buffer.position()) & 0xFFFF;
+				if(length > FrameFormat.MAX_CLIENT_FRAME_LENGTH) throw new IOException("Client frame too long: " + length);
+				if(buffer.remaining() < 2 + length) break;
+				buffer.position(buffer.position() + 2);
+				ByteBuffer frame = buffer.slice();
+				frame.limit(length);
+				buffer.position(buffer.position() + length);
+				Subscription subscription = parseSubscription(frame);
+				// Resolved under the lock so a headset announced meanwhile isn't missed
+				synchronized(announceLock) {
+					client.setSubscription(subscription.resolve(registry));
+				}
+			}
+			buffer.compact();
+		} catch (IOException | RuntimeException e) {
+			LOG.info("Dropping event client: " + e.getMessage());
+			disconnect(client);
+		}
+	}
+
+	private Subscription parseSubscription(ByteBuffer frame) throws IOException {
+		if((frame.get() & 0xFF) != FrameFormat.SUBSCRIBE) throw new IOException("Unknown client frame");
+		boolean[] codes = null;
+		int codeCount = frame.get() & 0xFF;
+		if(codeCount > 0) {
+			codes = new boolean[256];
+			for(int i = 0; i < codeCount; i++) {
+				codes[frame.get() & 0xFF] = true;
+			}
+		}
+		boolean[] headsets = null;
+		String[] addresses = null;
+		int addressCount = frame.get() & 0xFF;
+		if(addressCount > 0) {
+			// Every address starts out unresolved; resolve() looks up the ones the registry already knows
+			headsets = new boolean[0];
+			addresses = new String[addressCount];
+			for(int i = 0; i < addressCount; i++) {
+				byte[] address = new byte[frame.get() & 0xFF];
+				frame.get(address);
+				addresses[i] = new String(address, StandardCharsets.US_ASCII);
+			}
+		}
+		return new Subscription(codes, headsets, addresses);
+	}
+
+	private void write(ClientConnection client) {
+		if(client.isOverflowed()) {
+			if(disconnect(client)) {
+				slowDisconnects.incrementAndGet();
+				LOG.info("Disconnected event client that fell " + maxQueuedFrames + " frames behind");
+			}
+			return;
+		}
+		SelectionKey key = client.channel.keyFor(selector);
+		if(null == key || !key.isValid()) return;
+		try {
+			if(client.flush()) {
+				key.interestOps(SelectionKey.OP_READ);
+				client.writeScheduled.set(false);
+				// A frame queued after the flush finished but before the flag was cleared would be stranded
+				if(client.hasQueued() && client.writeScheduled.compareAndSet(false, true)) pending.add(client);
+			} else {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		} catch (IOException e) {
+			LOG.info("Dropping event client: " + e.getMessage());
+			disconnect(client);
+		}
+	}
+
+	/**
+	 * @return false if the client had already been disconnected
+	 */
+	private boolean disconnect(ClientConnection client) {
+		boolean removed = clients.remove(client);
+		try {
+			client.channel.close();
+		} catch (IOException e) {
+			LOG.debug("Could not close event client: " + e.getMessage());
+		}
+		return removed;
+	}
+
+	/**
+	 * Disconnects every client and stops listening.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if(!open) return;
+		open = false;
+		selector.wakeup();
+		try {
+			thread.join(5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			serverChannel.close();
+		} finally {
+			selector.close();
+		}
+	}
+}
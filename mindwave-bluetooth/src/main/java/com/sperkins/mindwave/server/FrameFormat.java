@@ -0,0 +1,38 @@
+package com.sperkins.mindwave.server;
+
+/**
+ * Wire format of the {@link EventServer}. All values are big-endian.
+ * <pre>
+ * server to client, one frame per value:
+ *          short  frame length, counting the bytes after this field
+ *          byte   code: the ThinkGear code of the value's {@link com.sperkins.mindwave.event.EventType}, or {@link #HEADSET}
+ *          short  headset ID, as assigned by the server
+ *          long   timestamp, milliseconds since the epoch
+ *          payload, by code:
+ *            0x02 poor signal, 0x04 attention, 0x05 meditation: byte, unsigned
+ *            0x80 raw sample: short
+ *            0x83 EEG power: 8 ints, delta through mid gamma, unscaled
+ *            0xD0 to 0xD4 headset status: short reported headset ID
+ *            {@link #HEADSET}: byte address length, followed by that many US-ASCII bytes
+ *
+ * client to server, at any time; the latest subscription replaces the previous one:
+ *          short  frame length, counting the bytes after this field
+ *          byte   {@link #SUBSCRIBE}
+ *          byte   code count, followed by that many codes; 0 subscribes to every code
+ *          byte   address count, followed by that many addresses, each a length byte and US-ASCII bytes; 0 subscribes to every headset
+ * </pre>
+ * A {@link #HEADSET} frame announces each headset's address before its first value, whatever the subscription,
+ * so clients can map IDs to addresses. Until a client subscribes it receives everything.
+ */
+public final class FrameFormat {
+	/** Code of a frame announcing a headset's ID and address. */
+	public static final int HEADSET = 0xFE;
+	/** Code of a client's subscription frame. */
+	public static final int SUBSCRIBE = 0x01;
+	/** Bytes from the start of a frame to its payload. */
+	public static final int HEADER_LENGTH = 13;
+	/** Length of the largest frame a client may send. */
+	public static final int MAX_CLIENT_FRAME_LENGTH = 4096;
+
+	private FrameFormat() {}
+}
@@ -0,0 +1,57 @@
+package com.sperkins.mindwave.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+
+/**
+ * Which codes and headsets a client wants, as lookup tables. Immutable; a new subscription replaces the old one.
+ * Addresses the registry doesn't know yet are kept as strings until {@link #resolve(HeadsetRegistry)} finds them,
+ * so a client can't add headsets to the registry.
+ */
+class Subscription {
+	static final Subscription ALL = new Subscription(null, null, null);
+
+	// Indexed by code; null means every code
+	private final boolean[] codes;
+	// Indexed by headset ID; null means every headset
+	private final boolean[] headsets;
+	// Subscribed addresses without an ID yet; null if there are none
+	private final String[] unresolved;
+
+	Subscription(boolean[] codes, boolean[] headsets, String[] unresolved) {
+		this.codes = codes;
+		this.headsets = headsets;
+		this.unresolved = unresolved;
+	}
+
+	boolean wants(int code, int headsetId) {
+		if(code == FrameFormat.HEADSET) return true;
+		if(null != codes && !codes[code]) return false;
+		return null == headsets || (headsetId < headsets.length && headsets[headsetId]);
+	}
+
+	/**
+	 * @return this subscription with every address the registry now knows moved into the headset table, or this
+	 * subscription itself if none are
+	 */
+	Subscription resolve(HeadsetRegistry registry) {
+		if(null == unresolved) return this;
+		boolean[] resolved = headsets;
+		List<String> remaining = new ArrayList<String>();
+		for(String address: unresolved) {
+			int headsetId = registry.getId(address);
+			if(headsetId < 0) {
+				remaining.add(address);
+				continue;
+			}
+			if(resolved == headsets) resolved = headsets.clone();
+			if(headsetId >= resolved.length) resolved = Arrays.copyOf(resolved, headsetId + 1);
+			resolved[headsetId] = true;
+		}
+		if(resolved == headsets) return this;
+		return new Subscription(codes, resolved, remaining.isEmpty() ? null : remaining.toArray(new String[remaining.size()]));
+	}
+}
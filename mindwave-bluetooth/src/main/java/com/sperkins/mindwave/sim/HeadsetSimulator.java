@@ -0,0 +1,80 @@
+package com.sperkins.mindwave.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sperkins.mindwave.socket.BluetoothConnection;
+import com.sperkins.mindwave.socket.BluetoothSocket;
+
+/**
+ * Creates any number of simulated headsets as in-process {@link BluetoothConnection}s, so {@link BluetoothSocket}
+ * can run its real reader model against far more headsets than are on hand:
+ * <pre>
+ * HeadsetSimulator simulator = new HeadsetSimulator();
+ * for(BluetoothConnection connection: simulator.addHeadsets(64, new SimulatedHeadsetConfig().setChecksumFailureRate(0.01))) {
+ *     socket.start(connection);
+ * }
+ * </pre>
+ * Each headset gets a distinct address and seed, so the streams differ but every run is reproducible.
+ */
+public class HeadsetSimulator {
+	private final List<SimulatedHeadsetTransport> transports = new ArrayList<SimulatedHeadsetTransport>();
+	private final List<BluetoothConnection> connections = new ArrayList<BluetoothConnection>();
+
+	public synchronized BluetoothConnection addHeadset(SimulatedHeadsetConfig config) {
+		int index = transports.size();
+		SimulatedHeadsetTransport transport = new SimulatedHeadsetTransport(config, index);
+		BluetoothConnection connection = new BluetoothConnection(addressFor(index), transport);
+		transports.add(transport);
+		connections.add(connection);
+		return connection;
+	}
+
+	public synchronized List<BluetoothConnection> addHeadsets(int count, SimulatedHeadsetConfig config) {
+		List<BluetoothConnection> added = new ArrayList<BluetoothConnection>(count);
+		for(int i = 0; i < count; i++) {
+			added.add(addHeadset(config));
+		}
+		return added;
+	}
+
+	/**
+	 * @return a simulated MAC address; the last three bytes are the headset's index
+	 */
+	public static String addressFor(int index) {
+		return String.format("5A5A5A%06X", index);
+	}
+
+	public synchronized List<BluetoothConnection> getConnections() {
+		return new ArrayList<BluetoothConnection>(connections);
+	}
+
+	public synchronized List<SimulatedHeadsetTransport> getTransports() {
+		return new ArrayList<SimulatedHeadsetTransport>(transports);
+	}
+
+	public synchronized long getPacketsGenerated() {
+		long total = 0;
+		for(SimulatedHeadsetTransport transport: transports) {
+			total += transport.getPacketsGenerated();
+		}
+		return total;
+	}
+
+	public synchronized long getBytesGenerated() {
+		long total = 0;
+		for(SimulatedHeadsetTransport transport: transports) {
+			total += transport.getBytesGenerated();
+		}
+		return total;
+	}
+
+	/**
+	 * Ends every simulated stream.
+	 */
+	public synchronized void closeAll() {
+		for(SimulatedHeadsetTransport transport: transports) {
+			transport.close();
+		}
+	}
+}
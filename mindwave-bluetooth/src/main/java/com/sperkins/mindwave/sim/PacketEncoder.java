@@ -0,0 +1,82 @@
+package com.sperkins.mindwave.sim;
+
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.socket.DecodedPacket;
+import com.sperkins.mindwave.socket.PacketFramer;
+
+/**
+ * Writes valid ThinkGear packets into a caller-supplied buffer. Each method returns the offset just past the
+ * packet it wrote. Nothing is allocated, so the encoder can generate traffic as fast as the parser consumes it.
+ */
+public final class PacketEncoder {
+	/** SYNC SYNC LENGTH + payload + CHECKSUM for a single raw sample */
+	public static final int RAW_PACKET_LENGTH = 8;
+	/** SYNC SYNC LENGTH + payload + CHECKSUM for poor signal, EEG power, attention and meditation */
+	public static final int ESENSE_PACKET_LENGTH = 36;
+	/** SYNC SYNC LENGTH + payload + CHECKSUM for a headset status row */
+	public static final int STATUS_PACKET_LENGTH = 8;
+
+	private PacketEncoder() {}
+
+	/**
+	 * Writes one 16-bit raw wave sample, big-endian.
+	 */
+	public static int writeRaw(byte[] buffer, int offset, int sample) {
+		int p = offset + 3;
+		buffer[p++] = (byte) EventType.SIXTEEN_BIT_RAW_WAVE.getHexValue();
+		buffer[p++] = 2;
+		buffer[p++] = (byte)(sample >> 8);
+		buffer[p++] = (byte) sample;
+		return frame(buffer, offset, p - offset - 3);
+	}
+
+	/**
+	 * Writes the once-per-second packet a headset sends: poor signal, ASIC EEG power, attention and meditation.
+	 * @param eeg eight band powers, delta through mid gamma. Each is encoded as three bytes in the byte order
+	 * {@link com.sperkins.mindwave.socket.PacketDecoder} expects.
+	 */
+	public static int writeESense(byte[] buffer, int offset, int poorSignal, int attention, int meditation, int[] eeg) {
+		int p = offset + 3;
+		buffer[p++] = (byte) EventType.POOR_SIGNAL_QUALITY.getHexValue();
+		buffer[p++] = (byte) poorSignal;
+		buffer[p++] = (byte) EventType.ASIC_EEG_POWER.getHexValue();
+		buffer[p++] = (byte)(DecodedPacket.EEG_BAND_COUNT * 3);
+		for(int band = 0; band < DecodedPacket.EEG_BAND_COUNT; band++) {
+			buffer[p++] = (byte) eeg[band];
+			buffer[p++] = (byte)(eeg[band] >> 8);
+			buffer[p++] = (byte)(eeg[band] >> 16);
+		}
+		buffer[p++] = (byte) EventType.ATTENTION.getHexValue();
+		buffer[p++] = (byte) attention;
+		buffer[p++] = (byte) EventType.MEDITATION.getHexValue();
+		buffer[p++] = (byte) meditation;
+		return frame(buffer, offset, p - offset - 3);
+	}
+
+	/**
+	 * Writes a headset status row such as {@link EventType#HEADSET_CONNECTED}.
+	 */
+	public static int writeHeadsetStatus(byte[] buffer, int offset, EventType status, int headsetId) {
+		int p = offset + 3;
+		buffer[p++] = (byte) status.getHexValue();
+		buffer[p++] = 2;
+		buffer[p++] = (byte)(headsetId >> 8);
+		buffer[p++] = (byte) headsetId;
+		return frame(buffer, offset, p - offset - 3);
+	}
+
+	/**
+	 * Writes the SYNC bytes, length and checksum around a payload already written at <code>offset + 3</code>.
+	 */
+	public static int frame(byte[] buffer, int offset, int payloadLength) {
+		buffer[offset] = PacketFramer.SYNC;
+		buffer[offset + 1] = PacketFramer.SYNC;
+		buffer[offset + 2] = (byte) payloadLength;
+		int sum = 0;
+		for(int i = offset + 3, end = offset + 3 + payloadLength; i < end; i++) {
+			sum += buffer[i];
+		}
+		buffer[offset + 3 + payloadLength] = (byte) ~sum;
+		return offset + payloadLength + 4;
+	}
+}
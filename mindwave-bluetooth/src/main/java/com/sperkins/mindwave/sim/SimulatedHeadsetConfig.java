@@ -0,0 +1,210 @@
+package com.sperkins.mindwave.sim;
+
+import java.util.Arrays;
+
+import com.sperkins.mindwave.event.EventType;
+
+/**
+ * Settings for one simulated headset. Setters return <code>this</code> so settings can be chained.
+ */
+public class SimulatedHeadsetConfig {
+	private int rawSampleRate = 512;
+	private long eSenseIntervalMillis = 1000;
+	private boolean realTime = true;
+	private double corruptionRate;
+	private double checksumFailureRate;
+	private long disconnectAfterPackets;
+	private long disconnectAfterMillis;
+	private long seed = 42;
+	private long[] statusMillis = new long[0];
+	private EventType[] statuses = new EventType[0];
+	private EventType disconnectStatus;
+
+	public SimulatedHeadsetConfig() {}
+
+	public SimulatedHeadsetConfig(SimulatedHeadsetConfig other) {
+		this.rawSampleRate = other.rawSampleRate;
+		this.eSenseIntervalMillis = other.eSenseIntervalMillis;
+		this.realTime = other.realTime;
+		this.corruptionRate = other.corruptionRate;
+		this.checksumFailureRate = other.checksumFailureRate;
+		this.disconnectAfterPackets = other.disconnectAfterPackets;
+		this.disconnectAfterMillis = other.disconnectAfterMillis;
+		this.seed = other.seed;
+		this.statusMillis = other.statusMillis;
+		this.statuses = other.statuses;
+		this.disconnectStatus = other.disconnectStatus;
+	}
+
+	public int getRawSampleRate() {
+		return rawSampleRate;
+	}
+
+	/**
+	 * @param rawSampleRate raw wave packets per second; 0 disables raw packets
+	 */
+	public SimulatedHeadsetConfig setRawSampleRate(int rawSampleRate) {
+		if(rawSampleRate < 0) throw new IllegalArgumentException("rawSampleRate cannot be negative");
+		this.rawSampleRate = rawSampleRate;
+		return this;
+	}
+
+	public long getESenseIntervalMillis() {
+		return eSenseIntervalMillis;
+	}
+
+	/**
+	 * @param eSenseIntervalMillis time between poor signal/EEG/attention/meditation packets; 0 disables them
+	 */
+	public SimulatedHeadsetConfig setESenseIntervalMillis(long eSenseIntervalMillis) {
+		if(eSenseIntervalMillis < 0) throw new IllegalArgumentException("eSenseIntervalMillis cannot be negative");
+		this.eSenseIntervalMillis = eSenseIntervalMillis;
+		return this;
+	}
+
+	public boolean isRealTime() {
+		return realTime;
+	}
+
+	/**
+	 * @param realTime true to release packets on the configured schedule, false to generate them as fast as they are read
+	 */
+	public SimulatedHeadsetConfig setRealTime(boolean realTime) {
+		this.realTime = realTime;
+		return this;
+	}
+
+	public double getCorruptionRate() {
+		return corruptionRate;
+	}
+
+	/**
+	 * @param corruptionRate probability, 0 to 1, that a packet has one random byte overwritten
+	 */
+	public SimulatedHeadsetConfig setCorruptionRate(double corruptionRate) {
+		this.corruptionRate = checkProbability(corruptionRate);
+		return this;
+	}
+
+	public double getChecksumFailureRate() {
+		return checksumFailureRate;
+	}
+
+	/**
+	 * @param checksumFailureRate probability, 0 to 1, that a packet is sent with a wrong checksum
+	 */
+	public SimulatedHeadsetConfig setChecksumFailureRate(double checksumFailureRate) {
+		this.checksumFailureRate = checkProbability(checksumFailureRate);
+		return this;
+	}
+
+	public long getDisconnectAfterPackets() {
+		return disconnectAfterPackets;
+	}
+
+	/**
+	 * @param disconnectAfterPackets end the stream after this many packets; 0 never disconnects
+	 */
+	public SimulatedHeadsetConfig setDisconnectAfterPackets(long disconnectAfterPackets) {
+		this.disconnectAfterPackets = disconnectAfterPackets;
+		return this;
+	}
+
+	public long getDisconnectAfterMillis() {
+		return disconnectAfterMillis;
+	}
+
+	/**
+	 * @param disconnectAfterMillis end the stream this far into it; 0 never disconnects. In real time this is
+	 * measured from the first read. Otherwise it is simulated stream time: the stream ends after this many
+	 * milliseconds' worth of packets at the configured rates, however quickly they are read.
+	 */
+	public SimulatedHeadsetConfig setDisconnectAfterMillis(long disconnectAfterMillis) {
+		this.disconnectAfterMillis = disconnectAfterMillis;
+		return this;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed seed for the signal and fault generators, so runs can be reproduced
+	 */
+	public SimulatedHeadsetConfig setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Schedules a headset status packet, such as {@link EventType#STANDBY_SCAN} or {@link EventType#REQUEST_DENIED},
+	 * this far into the stream. Time is measured as for {@link #setDisconnectAfterMillis(long)}. The stream always
+	 * starts with {@link EventType#HEADSET_CONNECTED}.
+	 */
+	public SimulatedHeadsetConfig addStatus(long atMillis, EventType status) {
+		if(atMillis < 0) throw new IllegalArgumentException("atMillis cannot be negative");
+		checkStatus(status);
+		int index = statusMillis.length;
+		while(index > 0 && statusMillis[index - 1] > atMillis) index--;
+		long[] millis = new long[statusMillis.length + 1];
+		EventType[] types = new EventType[statuses.length + 1];
+		System.arraycopy(statusMillis, 0, millis, 0, index);
+		System.arraycopy(statuses, 0, types, 0, index);
+		millis[index] = atMillis;
+		types[index] = status;
+		System.arraycopy(statusMillis, index, millis, index + 1, statusMillis.length - index);
+		System.arraycopy(statuses, index, types, index + 1, statuses.length - index);
+		// Replaced rather than changed, so copies made earlier keep their own schedule
+		statusMillis = millis;
+		statuses = types;
+		return this;
+	}
+
+	/**
+	 * @return the times of the scheduled statuses, in order
+	 */
+	public long[] getStatusMillis() {
+		return Arrays.copyOf(statusMillis, statusMillis.length);
+	}
+
+	/**
+	 * @return the scheduled statuses, in the order of {@link #getStatusMillis()}
+	 */
+	public EventType[] getStatuses() {
+		return Arrays.copyOf(statuses, statuses.length);
+	}
+
+	EventType getStatus(int index) {
+		return statuses[index];
+	}
+
+	long getStatusNanos(int index) {
+		return index < statusMillis.length ? statusMillis[index] * 1000000L : Long.MAX_VALUE;
+	}
+
+	public EventType getDisconnectStatus() {
+		return disconnectStatus;
+	}
+
+	/**
+	 * @param disconnectStatus a status packet to send as the stream ends after {@link #setDisconnectAfterPackets(long)}
+	 * or {@link #setDisconnectAfterMillis(long)}, e.g. {@link EventType#HEADSET_DISCONNECTED}; null sends none
+	 */
+	public SimulatedHeadsetConfig setDisconnectStatus(EventType disconnectStatus) {
+		if(null != disconnectStatus) checkStatus(disconnectStatus);
+		this.disconnectStatus = disconnectStatus;
+		return this;
+	}
+
+	private static void checkStatus(EventType status) {
+		if(null == status) throw new NullPointerException("status cannot be null");
+		if(status.getHexValue() < EventType.HEADSET_CONNECTED.getHexValue() || status.getHexValue() > EventType.STANDBY_SCAN.getHexValue()) {
+			throw new IllegalArgumentException(status + " is not a headset status");
+		}
+	}
+
+	private static double checkProbability(double p) {
+		if(p < 0 || p > 1) throw new IllegalArgumentException("probability must be between 0 and 1");
+		return p;
+	}
+}
@@ -0,0 +1,201 @@
+package com.sperkins.mindwave.sim;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.socket.DecodedPacket;
+import com.sperkins.mindwave.socket.HeadsetTransport;
+
+/**
+ * Transport that behaves like a streaming headset. Packets are generated on demand inside {@link #read(ByteBuffer)},
+ * so a simulated headset costs no threads of its own: the socket's reader thread does all the work, exactly as it
+ * would when blocked on a real RFCOMM stream.
+ *
+ * The stream starts with a {@link EventType#HEADSET_CONNECTED} packet, followed by raw wave packets,
+ * once-per-interval eSense packets and any scheduled status packets interleaved in timestamp order. It can end
+ * with a status packet such as {@link EventType#HEADSET_DISCONNECTED}. Faults are injected as configured in
+ * {@link SimulatedHeadsetConfig}.
+ */
+public class SimulatedHeadsetTransport implements HeadsetTransport {
+	private static final int PENDING_CAPACITY = 4096;
+
+	private final SimulatedHeadsetConfig config;
+	private final int headsetId;
+	private final Random random;
+	private final byte[] pending = new byte[PENDING_CAPACITY];
+	private final int[] eeg = new int[DecodedPacket.EEG_BAND_COUNT];
+	private int pendingStart;
+	private int pendingEnd;
+
+	private final long rawPeriodNanos;
+	private final long eSensePeriodNanos;
+	private long startNanos = -1;
+	private long nextRawNanos;
+	private long nextESenseNanos;
+	private int statusIndex;
+	private long nextStatusNanos;
+	private long rawSampleIndex;
+	private int attention = 50;
+	private int meditation = 50;
+
+	private volatile boolean open = true;
+	private boolean ended;
+	private boolean ending;
+	private volatile long packetsGenerated;
+	private volatile long packetsCorrupted;
+	private volatile long checksumsBroken;
+	private volatile long bytesGenerated;
+
+	public SimulatedHeadsetTransport(SimulatedHeadsetConfig config, int headsetId) {
+		this.config = new SimulatedHeadsetConfig(config);
+		this.headsetId = headsetId;
+		this.random = new Random(config.getSeed() * 31 + headsetId);
+		this.rawPeriodNanos = config.getRawSampleRate() > 0 ? 1000000000L / config.getRawSampleRate() : Long.MAX_VALUE;
+		this.eSensePeriodNanos = config.getESenseIntervalMillis() > 0 ? config.getESenseIntervalMillis() * 1000000L : Long.MAX_VALUE;
+		this.nextESenseNanos = eSensePeriodNanos == Long.MAX_VALUE ? Long.MAX_VALUE : 0;
+		if(rawPeriodNanos == Long.MAX_VALUE) nextRawNanos = Long.MAX_VALUE;
+		this.nextStatusNanos = this.config.getStatusNanos(0);
+	}
+
+	@Override
+	public int read(ByteBuffer dst) {
+		if(!open || ended) return -1;
+		if(startNanos < 0) {
+			startNanos = System.nanoTime();
+			pendingEnd = PacketEncoder.writeHeadsetStatus(pending, 0, EventType.HEADSET_CONNECTED, headsetId);
+			packetsGenerated++;
+		}
+		if(pendingStart == pendingEnd) {
+			if(ending || !generate()) {
+				EventType disconnectStatus = config.getDisconnectStatus();
+				if(ending || !open || null == disconnectStatus) {
+					ended = true;
+					return -1;
+				}
+				pendingStart = 0;
+				pendingEnd = PacketEncoder.writeHeadsetStatus(pending, 0, disconnectStatus, headsetId);
+				packetsGenerated++;
+				// The stream ends once the status packet has been read
+				ending = true;
+			}
+		}
+		int count = Math.min(dst.remaining(), pendingEnd - pendingStart);
+		dst.put(pending, pendingStart, count);
+		pendingStart += count;
+		bytesGenerated += count;
+		return count;
+	}
+
+	/**
+	 * Fills the pending buffer with the packets that are due.
+	 * @return false if the stream should end
+	 */
+	private boolean generate() {
+		pendingStart = 0;
+		pendingEnd = 0;
+		long disconnectAfterNanos = config.getDisconnectAfterMillis() * 1000000L;
+
+		long now;
+		if(config.isRealTime()) {
+			long due = Math.min(Math.min(nextRawNanos, nextESenseNanos), nextStatusNanos);
+			if(due == Long.MAX_VALUE) return false;
+			if(disconnectAfterNanos > 0) due = Math.min(due, disconnectAfterNanos);
+			while(open && (now = System.nanoTime() - startNanos) < due) {
+				LockSupport.parkNanos(due - now);
+			}
+			now = System.nanoTime() - startNanos;
+		} else {
+			now = Long.MAX_VALUE;
+		}
+		if(!open) return false;
+
+		while(pendingEnd + PacketEncoder.ESENSE_PACKET_LENGTH <= pending.length) {
+			if(config.getDisconnectAfterPackets() > 0 && packetsGenerated >= config.getDisconnectAfterPackets()) break;
+			long next = Math.min(Math.min(nextRawNanos, nextESenseNanos), nextStatusNanos);
+			if(next > now || next == Long.MAX_VALUE) break;
+			if(disconnectAfterNanos > 0 && next >= disconnectAfterNanos) break;
+
+			int packetStart = pendingEnd;
+			if(nextStatusNanos == next) {
+				pendingEnd = PacketEncoder.writeHeadsetStatus(pending, pendingEnd, config.getStatus(statusIndex), headsetId);
+				nextStatusNanos = config.getStatusNanos(++statusIndex);
+			} else if(nextESenseNanos <= nextRawNanos) {
+				pendingEnd = writeESense(pendingEnd);
+				nextESenseNanos += eSensePeriodNanos;
+			} else {
+				pendingEnd = PacketEncoder.writeRaw(pending, pendingEnd, nextSample());
+				nextRawNanos += rawPeriodNanos;
+			}
+			injectFaults(packetStart, pendingEnd);
+			packetsGenerated++;
+		}
+		return pendingEnd > 0;
+	}
+
+	private int writeESense(int offset) {
+		attention = clamp(attention + random.nextInt(11) - 5, 0, 100);
+		meditation = clamp(meditation + random.nextInt(11) - 5, 0, 100);
+		int poorSignal = random.nextInt(20) == 0 ? 200 : 0;
+		for(int band = 0; band < eeg.length; band++) {
+			eeg[band] = random.nextInt(1 << 20);
+		}
+		return PacketEncoder.writeESense(pending, offset, poorSignal, attention, meditation, eeg);
+	}
+
+	private int nextSample() {
+		double t = (double) rawSampleIndex++ / Math.max(1, config.getRawSampleRate());
+		double value = 300 * Math.sin(2 * Math.PI * 10 * t) + 100 * Math.sin(2 * Math.PI * 21 * t) + 50 * random.nextGaussian();
+		return clamp((int) value, Short.MIN_VALUE, Short.MAX_VALUE);
+	}
+
+	private void injectFaults(int start, int end) {
+		if(config.getChecksumFailureRate() > 0 && random.nextDouble() < config.getChecksumFailureRate()) {
+			pending[end - 1] ^= 0x5A;
+			checksumsBroken++;
+		} else if(config.getCorruptionRate() > 0 && random.nextDouble() < config.getCorruptionRate()) {
+			pending[start + random.nextInt(end - start)] = (byte) random.nextInt(256);
+			packetsCorrupted++;
+		}
+	}
+
+	private static int clamp(int value, int min, int max) {
+		return value < min ? min : (value > max ? max : value);
+	}
+
+	@Override
+	public void write(ByteBuffer src) {
+		src.position(src.limit());
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() {
+		open = false;
+	}
+
+	public int getHeadsetId() {
+		return headsetId;
+	}
+
+	public long getPacketsGenerated() {
+		return packetsGenerated;
+	}
+
+	public long getPacketsCorrupted() {
+		return packetsCorrupted;
+	}
+
+	public long getChecksumsBroken() {
+		return checksumsBroken;
+	}
+
+	public long getBytesGenerated() {
+		return bytesGenerated;
+	}
+}
@@ -0,0 +1,140 @@
+package com.sperkins.mindwave.socket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sperkins.mindwave.event.Event;
+
+/**
+ * Hands decoded packets from reader threads to consumer threads that invoke the listeners, so a slow listener
+ * can't stall reads from a headset.
+ *
+ * Each consumer thread owns one preallocated ring of packet slots. Readers claim a slot with a single atomic
+ * increment, copy their packet into it and publish it; nothing is allocated per packet. A headset is always
+ * published to the same ring, so its events reach listeners in order.
+ */
+class AsyncEventBus {
+	private final static Logger LOG = LoggerFactory.getLogger(AsyncEventBus.class.getName());
+
+	interface Handler {
+		void onPacket(int headsetId, String deviceAddress, DecodedPacket packet, List<Event> events);
+	}
+
+	private final Ring[] rings;
+	private final Handler handler;
+	private final WaitStrategy waitStrategy;
+	private volatile boolean running = true;
+
+	AsyncEventBus(int consumerThreads, int ringSize, WaitStrategy waitStrategy, Handler handler) {
+		if(consumerThreads < 1) throw new IllegalArgumentException("consumerThreads must be at least 1");
+		if(ringSize < 2 || Integer.bitCount(ringSize) != 1) throw new IllegalArgumentException("ringSize must be a power of two");
+		this.handler = handler;
+		this.waitStrategy = waitStrategy;
+		this.rings = new Ring[consumerThreads];
+		for(int i = 0; i < consumerThreads; i++) {
+			rings[i] = new Ring(ringSize, i);
+		}
+	}
+
+	void start() {
+		for(Ring ring: rings) {
+			ring.consumer.start();
+		}
+	}
+
+	/**
+	 * Copies <code>packet</code> into the ring for <code>shard</code>, waiting while that ring is full.
+	 * @return false if the bus has been shut down
+	 */
+	boolean publish(int shard, int headsetId, String deviceAddress, DecodedPacket packet) {
+		Ring ring = rings[(shard & Integer.MAX_VALUE) % rings.length];
+		long sequence = ring.claimed.getAndIncrement();
+		long wrapPoint = sequence - ring.slots.length;
+		int idle = 0;
+		while(wrapPoint >= ring.consumed.get()) {
+			if(!running) return false;
+			idle = waitStrategy.idle(idle);
+		}
+		int index = (int)(sequence & ring.mask);
+		Slot slot = ring.slots[index];
+		slot.headsetId = headsetId;
+		slot.deviceAddress = deviceAddress;
+		slot.packet.copyFrom(packet);
+		ring.published.lazySet(index, sequence);
+		return true;
+	}
+
+	/**
+	 * Stops the consumers once they have drained everything published so far.
+	 */
+	void shutdown() {
+		running = false;
+		for(Ring ring: rings) {
+			try {
+				ring.consumer.join(1000);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private static class Slot {
+		int headsetId;
+		String deviceAddress;
+		final DecodedPacket packet = new DecodedPacket();
+	}
+
+	private class Ring {
+		final Slot[] slots;
+		final long mask;
+		final AtomicLongArray published;
+		final AtomicLong claimed = new AtomicLong();
+		final AtomicLong consumed = new AtomicLong();
+		final Thread consumer;
+
+		Ring(int size, int index) {
+			slots = new Slot[size];
+			published = new AtomicLongArray(size);
+			for(int i = 0; i < size; i++) {
+				slots[i] = new Slot();
+				published.set(i, -1);
+			}
+			mask = size - 1;
+			consumer = new Thread("mindwave-dispatch-" + index) {
+				@Override
+				public void run() {
+					consume();
+				}
+			};
+			consumer.setDaemon(true);
+		}
+
+		void consume() {
+			List<Event> events = new ArrayList<Event>();
+			long next = 0;
+			int idle = 0;
+			while(true) {
+				int index = (int)(next & mask);
+				if(published.get(index) != next) {
+					if(!running) return;
+					idle = waitStrategy.idle(idle);
+					continue;
+				}
+				idle = 0;
+				Slot slot = slots[index];
+				try {
+					handler.onPacket(slot.headsetId, slot.deviceAddress, slot.packet, events);
+				} catch(RuntimeException e) {
+					LOG.error("Listener failed for " + slot.deviceAddress, e);
+				}
+				consumed.lazySet(++next);
+			}
+		}
+	}
+}
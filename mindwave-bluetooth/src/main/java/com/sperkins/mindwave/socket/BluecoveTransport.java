@@ -0,0 +1,88 @@
+package com.sperkins.mindwave.socket;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.microedition.io.StreamConnection;
+
+/**
+ * Transport over the streams of a BlueCove RFCOMM connection. Reads go straight into the
+ * caller's buffer with a single bulk read per call.
+ */
+public class BluecoveTransport implements HeadsetTransport {
+	private final StreamConnection streamConnection;
+	private final DataInputStream inputStream;
+	private volatile DataOutputStream outputStream;
+	private byte[] scratch;
+	private volatile boolean open = true;
+
+	public BluecoveTransport(StreamConnection streamConnection) throws IOException {
+		this.streamConnection = streamConnection;
+		this.inputStream = new DataInputStream(streamConnection.openDataInputStream());
+		this.outputStream = new DataOutputStream(streamConnection.openOutputStream());
+	}
+
+	public BluecoveTransport(DataInputStream inputStream, DataOutputStream outputStream) {
+		this.streamConnection = null;
+		this.inputStream = inputStream;
+		this.outputStream = outputStream;
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		int read;
+		if(dst.hasArray()) {
+			read = inputStream.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+			if(read > 0) dst.position(dst.position() + read);
+		} else {
+			if(null == scratch) scratch = new byte[PacketFramer.DEFAULT_CAPACITY];
+			read = inputStream.read(scratch, 0, Math.min(scratch.length, dst.remaining()));
+			if(read > 0) dst.put(scratch, 0, read);
+		}
+		return read;
+	}
+
+	@Override
+	public void write(ByteBuffer src) throws IOException {
+		if(null == outputStream) throw new IOException("Connection has no output stream");
+		if(src.hasArray()) {
+			outputStream.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+			src.position(src.limit());
+		} else {
+			while(src.hasRemaining()) {
+				outputStream.write(src.get());
+			}
+		}
+		outputStream.flush();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() throws IOException {
+		open = false;
+		try {
+			inputStream.close();
+			if(null != outputStream) outputStream.close();
+		} finally {
+			if(null != streamConnection) streamConnection.close();
+		}
+	}
+
+	public DataInputStream getInputStream() {
+		return inputStream;
+	}
+
+	public DataOutputStream getOutputStream() {
+		return outputStream;
+	}
+
+	void setOutputStream(DataOutputStream outputStream) {
+		this.outputStream = outputStream;
+	}
+}
@@ -2,33 +2,81 @@ package com.sperkins.mindwave.socket;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+import com.sperkins.mindwave.event.EventType;
 
 public class BluetoothConnection {
 	private String deviceAddress;
+	private int headsetId;
+	private volatile HeadsetTransport transport;
 	private DataInputStream inputStream;
 	private DataOutputStream outputStream;
-	
+
 	public BluetoothConnection(String deviceAddress, DataInputStream inputStream) {
-		this.deviceAddress = deviceAddress;
-		this.inputStream = inputStream;
+		this(deviceAddress, new BluecoveTransport(inputStream, null));
+	}
+
+	public BluetoothConnection(String deviceAddress, HeadsetTransport transport) {
+		if(null == transport) throw new NullPointerException("transport cannot be null");
+		setBluetoothAddress(deviceAddress);
+		setTransport(transport);
 	}
 	public String getDeviceAddress() {
 		return deviceAddress;
 	}
 	public void setBluetoothAddress(String deviceAddress) {
 		this.deviceAddress = deviceAddress;
+		this.headsetId = HeadsetRegistry.getInstance().register(deviceAddress);
 	}
+	/**
+	 * @return the compact ID {@link HeadsetRegistry} assigned to this connection's device address
+	 */
+	public int getHeadsetId() {
+		return headsetId;
+	}
+	public HeadsetTransport getTransport() {
+		return transport;
+	}
+	public void setTransport(HeadsetTransport transport) {
+		this.transport = transport;
+		if(transport instanceof BluecoveTransport) {
+			this.inputStream = ((BluecoveTransport)transport).getInputStream();
+			this.outputStream = ((BluecoveTransport)transport).getOutputStream();
+		} else {
+			this.inputStream = null;
+			this.outputStream = null;
+		}
+	}
+	/**
+	 * @return the BlueCove input stream, or null if this connection uses a different transport
+	 */
 	public DataInputStream getInputStream() {
 		return inputStream;
 	}
 	public void setInputStream(DataInputStream inputStream) {
-		this.inputStream = inputStream;
+		setTransport(new BluecoveTransport(inputStream, outputStream));
 	}
+	/**
+	 * @return the BlueCove output stream, or null if this connection uses a different transport
+	 */
 	public DataOutputStream getOutputStream() {
 		return outputStream;
 	}
 	public void setOutputStream(DataOutputStream outputStream) {
 		this.outputStream = outputStream;
+		if(transport instanceof BluecoveTransport) {
+			((BluecoveTransport)transport).setOutputStream(outputStream);
+		}
+	}
+
+	/**
+	 * Asks the headset to disconnect by sending it the DISCONNECT command. Needs nothing from BlueCove, so
+	 * streams over other transports can end without it on the classpath.
+	 */
+	public void disconnect() throws IOException {
+		transport.write(ByteBuffer.wrap(new byte[] { (byte) EventType.DISCONNECT.getHexValue() }));
 	}
-	
 }
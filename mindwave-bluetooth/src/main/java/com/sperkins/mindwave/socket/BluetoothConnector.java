@@ -3,12 +3,24 @@ package com.sperkins.mindwave.socket;
 /**
  * Discovers and connects to Bluetooth devices.
  */
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.bluetooth.BluetoothStateException;
 import javax.bluetooth.DeviceClass;
@@ -24,22 +36,31 @@ import javax.microedition.io.StreamConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.sperkins.mindwave.event.EventType;
-
 public class BluetoothConnector  {
 	private static LocalDevice bluetoothAdapter;
 	
-	private final Object inquiryCompletedLock = new Object();
-	private final Object serviceSearchCompletedLock = new Object();
-	
-	private final List<RemoteDevice> remoteDevices = new ArrayList<RemoteDevice>();
-	private final List<ServiceRecord> serviceRecords = new ArrayList<ServiceRecord>();
-	
 	private static final Logger LOG = LoggerFactory.getLogger(BluetoothConnector.class);
 	
 	private static final BluetoothConnector INSTANCE = new BluetoothConnector();
 	
-	private static LocalDevice getLocalDevice() throws BluetoothStateException {
+	public static final long DEFAULT_SERVICE_SEARCH_TIMEOUT_MILLIS = 15000;
+	
+	private final AtomicInteger workerCounter = new AtomicInteger();
+	private final ExecutorService workers = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "mindwave-connector-" + workerCounter.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	private volatile long serviceSearchTimeoutMillis = DEFAULT_SERVICE_SEARCH_TIMEOUT_MILLIS;
+	private Semaphore serviceSearchPermits;
+	// Shared with every other connector, so their writes to the file don't overwrite each other
+	private volatile DiscoveryCache discoveryCache = DiscoveryCache.openDefault();
+	private volatile boolean alwaysDiscover;
+	
+	private static synchronized LocalDevice getLocalDevice() throws BluetoothStateException {
 		if(null == bluetoothAdapter) {
 			bluetoothAdapter = LocalDevice.getLocalDevice();
 			LOG.debug("Local device address: " + bluetoothAdapter.getBluetoothAddress());
@@ -67,107 +88,246 @@ public class BluetoothConnector  {
 	 * The current connect() implementation only attempts to connect to headsets previously paired with this device 
 	 * to avoid long delays while scanning for new devices. All previously-paired devices will be connected unless you 
 	 * use connect(String) to specify a device ID (MAC address). 
+	 * 
+	 * Devices are searched and connected concurrently; this method returns once every device has either connected or failed.
+	 * Use {@link #connectAsync()} to start using each headset as soon as it is ready.
 	 */
 	public List<BluetoothConnection> connect() throws BluetoothStateException, InterruptedException {
 		List<BluetoothConnection> connections = new ArrayList<BluetoothConnection>();
+		for(Future<BluetoothConnection> future: connectAsync()) {
+			try {
+				connections.add(future.get());
+			} catch (ExecutionException e) {
+				// Already logged by the worker
+			}
+		}
+		return connections;
+	}
+	
+	/**
+	 * Opens every headset in the {@link DiscoveryCache} directly with its cached connection URL, then finds any other
+	 * devices like {@link #connect()} and searches each of them for its serial port service. Each device is opened on a
+	 * worker thread of its own, and cached headsets start connecting before discovery begins. While the cache holds
+	 * any headset, no inquiry is run, so a warm start never waits for one; call {@link #setAlwaysDiscover(boolean)} to
+	 * look for new headsets as well. A cached headset is only searched again if its cached URL fails. Up to
+	 * <code>bluetooth.sd.trans.max</code> service searches run at once, as many as the Bluetooth stack allows; each
+	 * one is cancelled if it takes longer than {@link #getServiceSearchTimeoutMillis()}.
+	 * @return one future per device, completed with its connection or with the reason it couldn't be connected
+	 */
+	public List<CompletableFuture<BluetoothConnection>> connectAsync() throws BluetoothStateException, InterruptedException {
 		DiscoveryAgent discoveryAgent = getLocalDevice().getDiscoveryAgent();
-		DiscoveryListener discoveryListener = new BluetoothDeviceDiscoveryListener();
-
+		DiscoveryCache cache = discoveryCache;
+		Map<String, String> cachedUrls = null == cache ? new HashMap<String, String>() : cache.getConnectionUrls();
+		UUID[] desiredServiceUuids = serialPortUuids();
+		
+		List<CompletableFuture<BluetoothConnection>> futures = new ArrayList<CompletableFuture<BluetoothConnection>>();
+		for(Map.Entry<String, String> cached: cachedUrls.entrySet()) {
+			futures.add(connectLater(discoveryAgent, new KnownRemoteDevice(cached.getKey()), desiredServiceUuids, cached.getValue()));
+		}
+		for(RemoteDevice remoteDevice: findDevices(discoveryAgent, cachedUrls.isEmpty() || alwaysDiscover)) {
+			if(!cachedUrls.containsKey(remoteDevice.getBluetoothAddress())) {
+				futures.add(connectLater(discoveryAgent, remoteDevice, desiredServiceUuids, null));
+			}
+		}
+		return futures;
+	}
+	
+	private CompletableFuture<BluetoothConnection> connectLater(final DiscoveryAgent discoveryAgent, final RemoteDevice remoteDevice, final UUID[] desiredServiceUuids, final String cachedUrl) {
+		final CompletableFuture<BluetoothConnection> future = new CompletableFuture<BluetoothConnection>();
+		workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					future.complete(connect(discoveryAgent, remoteDevice, desiredServiceUuids, cachedUrl));
+				} catch (Exception e) {
+					LOG.error("Could not connect to " + remoteDevice.getBluetoothAddress() + ": " + e.getMessage());
+					future.completeExceptionally(e);
+				}
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * @return the devices already paired with this device or, if there are none, the Mindwave headsets an inquiry finds
+	 * @param allowInquiry false to only return paired devices, which doesn't wait on the radio
+	 */
+	private List<RemoteDevice> findDevices(DiscoveryAgent discoveryAgent, boolean allowInquiry) throws BluetoothStateException, InterruptedException {
+		List<RemoteDevice> remoteDevices = new ArrayList<RemoteDevice>();
+		
 		// Gets all devices already paired with this device
 		RemoteDevice[] preknownRemoteDevices = discoveryAgent.retrieveDevices(DiscoveryAgent.PREKNOWN);
 		if(null != preknownRemoteDevices) remoteDevices.addAll(Arrays.asList(preknownRemoteDevices));
-		if(remoteDevices.isEmpty()) {
-	
-			synchronized(inquiryCompletedLock) {
-	            boolean started = discoveryAgent.startInquiry(DiscoveryAgent.LIAC, discoveryListener);
-	            
-	            if (started) {
-	            	LOG.debug("Querying devices...");
-	                inquiryCompletedLock.wait();
-	                LOG.debug(remoteDevices.size() +  " available devices found");
-	            }
-			} // end synchronized block
+		if(remoteDevices.isEmpty() && allowInquiry) {
+			InquiryListener inquiryListener = new InquiryListener();
+			boolean started = discoveryAgent.startInquiry(DiscoveryAgent.LIAC, inquiryListener);
+			if (started) {
+				LOG.debug("Querying devices...");
+				inquiryListener.completed.await();
+				remoteDevices.addAll(inquiryListener.devices);
+				LOG.debug(remoteDevices.size() +  " available devices found");
+			}
 		} else {
 			LOG.debug(remoteDevices.size() +  " preknown devices found");
 		}
+		return remoteDevices;
+	}
+	
+	private static UUID[] serialPortUuids() {
+		return new UUID[] { new UUID(BluetoothServiceUuids.SERIAL_PORT.getHexValue()) };
+	}
+	
+	/**
+	 * Opens <code>cachedUrl</code> if there is one, falling back to a service search if there isn't or it fails.
+	 */
+	private BluetoothConnection connect(DiscoveryAgent discoveryAgent, RemoteDevice remoteDevice, UUID[] desiredServiceUuids, String cachedUrl) throws IOException, InterruptedException {
+		String deviceAddress = remoteDevice.getBluetoothAddress();
+		DiscoveryCache cache = discoveryCache;
+		if(null != cachedUrl) {
+			try {
+				StreamConnection connection = (StreamConnection)Connector.open(cachedUrl, Connector.READ_WRITE, true);
+				LOG.info("Connected to " + deviceAddress + " using its cached connection URL");
+				if(null != cache) cache.put(deviceAddress, cachedUrl);
+				return new BluetoothConnection(deviceAddress, new BluecoveTransport(connection));
+			} catch (IOException e) {
+				LOG.info("Cached connection URL for " + deviceAddress + " failed (" + e.getMessage() + "), searching its services again");
+				if(null != cache) cache.remove(deviceAddress);
+			}
+		}
 		
-		UUID serialPortUuid = new UUID(BluetoothServiceUuids.SERIAL_PORT.getHexValue());
-		UUID[] desiredServiceUuids = new UUID[] { serialPortUuid };
+		LOG.debug("Locating services on device " + deviceAddress);
+		List<ServiceRecord> serviceRecords = searchServices(discoveryAgent, remoteDevice, desiredServiceUuids);
+		LOG.debug(serviceRecords.size() + " service records found on " + deviceAddress);
 		
-		for(RemoteDevice remoteDevice: remoteDevices) {
-			LOG.debug("Locating services on device " + remoteDevice.getBluetoothAddress());
-			synchronized(serviceSearchCompletedLock) {
-				int result = discoveryAgent.searchServices(null, desiredServiceUuids, remoteDevice, discoveryListener);
-				if( DiscoveryListener.SERVICE_SEARCH_DEVICE_NOT_REACHABLE == result) {
-					LOG.debug("Encountered paired headset " + remoteDevice.getBluetoothAddress() + " but it could not be reached");
-					continue;
-				}
-				serviceSearchCompletedLock.wait();
-				
-				
-				LOG.debug(serviceRecords.size() + " service records found");
-				
-				if(null != serviceRecords && serviceRecords.size() > 0) {
-					for(ServiceRecord serviceRecord: serviceRecords) {
-						String connectionUrl = serviceRecord.getConnectionURL(ServiceRecord.NOAUTHENTICATE_NOENCRYPT, false); // I have no idea what these args are
-						StreamConnection connection;
-						try {
-							connection = (StreamConnection)Connector.open(connectionUrl);
-							DataInputStream inputStream = new DataInputStream(connection.openDataInputStream());
-							BluetoothConnection bluetoothConnection = new BluetoothConnection(remoteDevice.getBluetoothAddress(), inputStream);
-							bluetoothConnection.setOutputStream(new DataOutputStream(connection.openOutputStream()));
-							connections.add(bluetoothConnection);
-							LOG.info("Connected to " + remoteDevice.getBluetoothAddress());
-						} catch (IOException e) {
-							LOG.error("Could not connect to " + remoteDevice.getBluetoothAddress() + ": " + e.getMessage());
-							e.printStackTrace();
-						}
-					}
-				}
+		IOException failure = new IOException("No serial port service found on " + deviceAddress);
+		for(ServiceRecord serviceRecord: serviceRecords) {
+			String connectionUrl = serviceRecord.getConnectionURL(ServiceRecord.NOAUTHENTICATE_NOENCRYPT, false);
+			if(null == connectionUrl) continue;
+			try {
+				StreamConnection connection = (StreamConnection)Connector.open(connectionUrl, Connector.READ_WRITE, true);
+				LOG.info("Connected to " + deviceAddress);
+				if(null != cache) cache.put(deviceAddress, connectionUrl);
+				return new BluetoothConnection(deviceAddress, new BluecoveTransport(connection));
+			} catch (IOException e) {
+				failure = e;
 			}
 		}
-			
-		return connections;
-
+		throw failure;
+	}
+	
+	/**
+	 * Runs one SDP search with a listener of its own, so concurrent searches never see each other's records.
+	 */
+	private List<ServiceRecord> searchServices(DiscoveryAgent discoveryAgent, RemoteDevice remoteDevice, UUID[] desiredServiceUuids) throws IOException, InterruptedException {
+		String deviceAddress = remoteDevice.getBluetoothAddress();
+		Semaphore permits = getServiceSearchPermits();
+		permits.acquire();
+		try {
+			ServiceSearch search = new ServiceSearch();
+			int transId = discoveryAgent.searchServices(null, desiredServiceUuids, remoteDevice, search);
+			if(!search.completed.await(serviceSearchTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				discoveryAgent.cancelServiceSearch(transId);
+				throw new IOException("Service search on " + deviceAddress + " timed out after " + serviceSearchTimeoutMillis + "ms");
+			}
+			switch(search.responseCode) {
+			case DiscoveryListener.SERVICE_SEARCH_COMPLETED:
+			case DiscoveryListener.SERVICE_SEARCH_NO_RECORDS:
+				return search.records;
+			case DiscoveryListener.SERVICE_SEARCH_DEVICE_NOT_REACHABLE:
+				throw new IOException("Encountered paired headset " + deviceAddress + " but it could not be reached");
+			default:
+				throw new IOException("Service search on " + deviceAddress + " failed with response code " + search.responseCode);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+	
+	private synchronized Semaphore getServiceSearchPermits() throws BluetoothStateException {
+		if(null == serviceSearchPermits) {
+			getLocalDevice();
+			int max = 1;
+			try {
+				max = Math.max(1, Integer.parseInt(LocalDevice.getProperty("bluetooth.sd.trans.max")));
+			} catch (NumberFormatException e) {
+				LOG.debug("bluetooth.sd.trans.max is not set, running one service search at a time");
+			}
+			serviceSearchPermits = new Semaphore(max, true);
+		}
+		return serviceSearchPermits;
+	}
+	
+	public long getServiceSearchTimeoutMillis() {
+		return serviceSearchTimeoutMillis;
+	}
+	
+	/**
+	 * @param serviceSearchTimeoutMillis how long to wait for one device's SDP search before cancelling it
+	 */
+	public void setServiceSearchTimeoutMillis(long serviceSearchTimeoutMillis) {
+		if(serviceSearchTimeoutMillis < 1) throw new IllegalArgumentException("serviceSearchTimeoutMillis must be positive");
+		this.serviceSearchTimeoutMillis = serviceSearchTimeoutMillis;
 	}
 
-	private int port = 1;
+	/**
+	 * Connects to one headset, using its cached connection URL if there is one and otherwise the serial port channel
+	 * its service record advertises.
+	 */
 	public BluetoothConnection connect(String deviceAddress) throws IOException {
-		String uri = "btspp://" + deviceAddress + ":" + (port++) + ";authenticate=false;encrypt=false;master=true;";
-		DataInputStream inputStream = Connector.openDataInputStream(uri);
-		DataOutputStream outputStream = Connector.openDataOutputStream(uri);
-		
-		// Update existing connection if one exists
-		BluetoothConnection connection = new BluetoothConnection(deviceAddress, inputStream);
-		connection.setOutputStream(outputStream);
-		return connection;
+		DiscoveryCache cache = discoveryCache;
+		String cachedUrl = null == cache ? null : cache.getConnectionUrl(deviceAddress);
+		try {
+			return connect(getLocalDevice().getDiscoveryAgent(), new KnownRemoteDevice(deviceAddress), serialPortUuids(), cachedUrl);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while connecting to " + deviceAddress);
+		}
+	}
+	
+	public DiscoveryCache getDiscoveryCache() {
+		return discoveryCache;
+	}
+	
+	/**
+	 * @param discoveryCache where resolved connection URLs are remembered; null to always run discovery
+	 */
+	public void setDiscoveryCache(DiscoveryCache discoveryCache) {
+		this.discoveryCache = discoveryCache;
+	}
+	
+	public boolean isAlwaysDiscover() {
+		return alwaysDiscover;
+	}
+	
+	/**
+	 * @param alwaysDiscover true to run an inquiry for new headsets even when cached ones are known; cached headsets
+	 * still start connecting first, but {@link #connectAsync()} only returns once the inquiry has finished
+	 */
+	public void setAlwaysDiscover(boolean alwaysDiscover) {
+		this.alwaysDiscover = alwaysDiscover;
 	}
 	
 	public static void disconnect(BluetoothConnection connection) throws IOException {
-		connection.getOutputStream().write(EventType.DISCONNECT.getHexValue());
+		connection.disconnect();
 	}
 	
-	class BluetoothDeviceDiscoveryListener implements DiscoveryListener {
+	/**
+	 * Collects the Mindwave headsets found by one inquiry.
+	 */
+	static class InquiryListener implements DiscoveryListener {
+		final List<RemoteDevice> devices = new CopyOnWriteArrayList<RemoteDevice>();
+		final CountDownLatch completed = new CountDownLatch(1);
+		
 		@Override
-		public void servicesDiscovered(int transId, ServiceRecord[] serviceRecordsArray) {
-			LOG.debug("Services discovered, transId=" + transId);
-			serviceRecords.addAll(Arrays.asList(serviceRecordsArray));
-		}
+		public void servicesDiscovered(int transId, ServiceRecord[] serviceRecordsArray) {}
 		
 		@Override
-		public void serviceSearchCompleted(int transId, int responseCode) {
-			LOG.debug("Search completed, transId=" + transId + ", responseCode=" + responseCode);
-			synchronized(serviceSearchCompletedLock) {
-				serviceSearchCompletedLock.notifyAll();
-			}
-		}
+		public void serviceSearchCompleted(int transId, int responseCode) {}
 		
 		@Override
 		public void inquiryCompleted(int discoveryType) {
 			LOG.debug("Inquiry completed");
-			synchronized(inquiryCompletedLock){
-                inquiryCompletedLock.notifyAll();
-            }
+			completed.countDown();
 		}
 		
 		@Override
@@ -176,7 +336,7 @@ public class BluetoothConnector  {
 				LOG.debug("Device discovered: " + remoteDevice.getBluetoothAddress() + "/" + remoteDevice.getFriendlyName(false));
 				LOG.debug("Device class: " + deviceClass.getMajorDeviceClass() + ":" + deviceClass.getMinorDeviceClass());
 				LOG.debug("Services classes: " + deviceClass.getServiceClasses());
-				if(remoteDevice.getFriendlyName(false).equals("MindWave Mobile")) remoteDevices.add(remoteDevice);
+				if(remoteDevice.getFriendlyName(false).equals("MindWave Mobile")) devices.add(remoteDevice);
 			} catch (IOException e) {
 				LOG.error("Could not get friendly name for device " + remoteDevice.getBluetoothAddress() + ": " + e.getMessage());
 				e.printStackTrace();
@@ -185,5 +345,42 @@ public class BluetoothConnector  {
 		}
 		
 	}
+	
+	/**
+	 * A device known only by its address, e.g. from the discovery cache.
+	 */
+	static class KnownRemoteDevice extends RemoteDevice {
+		KnownRemoteDevice(String deviceAddress) {
+			super(deviceAddress);
+		}
+	}
+	
+	/**
+	 * Tracks a single service search transaction.
+	 */
+	static class ServiceSearch implements DiscoveryListener {
+		final List<ServiceRecord> records = new CopyOnWriteArrayList<ServiceRecord>();
+		final CountDownLatch completed = new CountDownLatch(1);
+		volatile int responseCode;
+		
+		@Override
+		public void servicesDiscovered(int transId, ServiceRecord[] serviceRecordsArray) {
+			LOG.debug("Services discovered, transId=" + transId);
+			records.addAll(Arrays.asList(serviceRecordsArray));
+		}
+		
+		@Override
+		public void serviceSearchCompleted(int transId, int responseCode) {
+			LOG.debug("Search completed, transId=" + transId + ", responseCode=" + responseCode);
+			this.responseCode = responseCode;
+			completed.countDown();
+		}
+		
+		@Override
+		public void inquiryCompleted(int discoveryType) {}
+		
+		@Override
+		public void deviceDiscovered(RemoteDevice remoteDevice, DeviceClass deviceClass) {}
+	}
 
-}
\ No newline at end of file
+}
@@ -12,20 +12,44 @@ package com.sperkins.mindwave.socket;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.channels.SelectableChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sperkins.mindwave.HeadsetRegistry;
 import com.sperkins.mindwave.event.Event;
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveDataListener;
 import com.sperkins.mindwave.event.MindwaveEventListener;
+import com.sperkins.mindwave.metrics.HeadsetMetrics;
+import com.sperkins.mindwave.metrics.MetricsRegistry;
 
 public class BluetoothSocket  {
 	private final static Logger LOG = LoggerFactory.getLogger(BluetoothSocket.class.getName()); 
-	private final List<MindwaveEventListener> listeners = new ArrayList<MindwaveEventListener>();
-	private List<BluetoothConnection> connections;
-	private List<BluetoothStreamParseThread> streamThreads;
+	private final ListenerRouter router = new ListenerRouter();
+	private final List<MindwaveDataListener> dataListeners = new CopyOnWriteArrayList<MindwaveDataListener>();
+	private final List<BluetoothConnection> connections = new CopyOnWriteArrayList<BluetoothConnection>();
+	private final List<HeadsetStream> streams = new CopyOnWriteArrayList<HeadsetStream>();
+
+	private final AtomicInteger streamCounter = new AtomicInteger();
+	private volatile AsyncEventBus eventBus;
+	private volatile MetricsRegistry metricsRegistry = MetricsRegistry.getInstance();
+	private ExecutionMode executionMode = ExecutionMode.THREAD_PER_HEADSET;
+	private int eventLoopThreads = 1;
+	private EventLoopGroup eventLoops;
+	private volatile ReconnectSupervisor reconnectSupervisor = new ReconnectSupervisor();
+	private final HeadsetStateCache stateCache = new HeadsetStateCache();
 
 	private boolean running = true;
 	
@@ -36,30 +60,151 @@ public class BluetoothSocket  {
 	}
 
 	public void addListener(MindwaveEventListener listener) {
-		getListeners().add(listener);
+		router.add(listener, -1);
 	}
-	
+
+	/**
+	 * Subscribes a listener to some event types only, from every headset. Packets whose values no listener
+	 * wants are never turned into events; subscribing to everything but raw waves saves hundreds of
+	 * allocations per second per headset.
+	 */
+	public void addListener(MindwaveEventListener listener, EventType... types) {
+		router.add(listener, -1, types);
+	}
+
+	/**
+	 * Subscribes a listener to events from one headset only.
+	 * @param types the event types to receive; all of them if none are given
+	 */
+	public void addListener(MindwaveEventListener listener, String deviceAddress, EventType... types) {
+		if(null == deviceAddress) throw new NullPointerException("deviceAddress cannot be null");
+		router.add(listener, HeadsetRegistry.getInstance().register(deviceAddress), types);
+	}
+
+	/**
+	 * Removes all of the listener's subscriptions.
+	 */
 	public void removeListener(MindwaveEventListener listener) {
-		getListeners().remove(listener);
+		router.remove(listener);
 	}
-	
+
+	/**
+	 * @return every subscribed listener, once each, as an unmodifiable snapshot
+	 */
 	protected List<MindwaveEventListener> getListeners() {
-		return listeners;
+		return router.getRoutes().getListeners();
+	}
+	
+	/**
+	 * Registers a primitive listener. Data listeners are called before {@link MindwaveEventListener}s
+	 * for each packet and never cause {@link Event} objects to be created.
+	 */
+	public void addDataListener(MindwaveDataListener listener) {
+		if(null == listener) throw new NullPointerException("listener cannot be null");
+		dataListeners.add(listener);
+	}
+	
+	public void removeDataListener(MindwaveDataListener listener) {
+		dataListeners.remove(listener);
+	}
+	
+	/**
+	 * @return whether any listener wants a value from <code>packet</code>
+	 */
+	private boolean wantsPacket(int headsetId, DecodedPacket packet) {
+		if(packet.isEmpty()) return false;
+		return !dataListeners.isEmpty() || (packet.getFields() & router.getRoutes().fieldsFor(headsetId)) != 0;
 	}
 	
 	protected void notifyListeners(Event event) {
-		for(MindwaveEventListener listener: getListeners()) {
-			listener.onEvent(event);
-		}
+		router.getRoutes().route(HeadsetRegistry.getInstance().getId(event.getDeviceAddress()), event);
 	}
 	
 	protected void notifyListeners(List<Event> events) {
 		if(null == events || events.isEmpty()) return;
+		ListenerRouter.Routes routes = router.getRoutes();
 		for(Event event: events) {
-			for(MindwaveEventListener listener: getListeners()) {
-				listener.onEvent(event);
-			}
+			routes.route(HeadsetRegistry.getInstance().getId(event.getDeviceAddress()), event);
+		}
+	}
+	
+	/**
+	 * Raises the values decoded from one packet to listeners. Events are only materialized
+	 * for values that at least one {@link MindwaveEventListener} has subscribed to.
+	 * @param events reusable scratch list owned by the calling thread
+	 */
+	protected void notifyListeners(int headsetId, String deviceAddress, DecodedPacket packet, List<Event> events) {
+		if(packet.isEmpty()) return;
+		for(MindwaveDataListener listener: dataListeners) {
+			packet.toDataListener(headsetId, listener);
+		}
+		ListenerRouter.Routes routes = router.getRoutes();
+		int wanted = routes.fieldsFor(headsetId);
+		if((packet.getFields() & wanted) == 0) return;
+		events.clear();
+		packet.toEvents(deviceAddress, wanted, events);
+		for(Event event: events) {
+			routes.route(headsetId, event);
 		}
+		events.clear();
+	}
+
+	/**
+	 * Calls the listeners for one packet and records how long they took.
+	 */
+	private void dispatch(int headsetId, String deviceAddress, DecodedPacket packet, List<Event> events) {
+		MetricsRegistry registry = metricsRegistry;
+		if(null == registry || packet.isEmpty()) {
+			notifyListeners(headsetId, deviceAddress, packet, events);
+			return;
+		}
+		long started = System.nanoTime();
+		notifyListeners(headsetId, deviceAddress, packet, events);
+		long elapsed = System.nanoTime() - started;
+		registry.forHeadset(headsetId).recordDispatch(elapsed);
+	}
+
+	/**
+	 * @return the latest values from every headset this socket has streamed, for polling
+	 */
+	public HeadsetStateCache getStateCache() {
+		return stateCache;
+	}
+
+	public MetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+
+	/**
+	 * Sets where per-headset metrics are recorded; {@link MetricsRegistry#getInstance()} by default.
+	 * Null turns metrics off. Headsets that are already streaming keep recording framing counters
+	 * into the registry they started with.
+	 */
+	public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+		this.metricsRegistry = metricsRegistry;
+	}
+
+	/**
+	 * Switches to asynchronous dispatch. Reader threads copy each decoded packet into a preallocated ring buffer
+	 * and <code>consumerThreads</code> dispatch threads invoke the listeners, so the cost of a listener no longer
+	 * slows down reads from any headset. Events from one headset are always delivered in order by the same
+	 * dispatch thread. Must be called before any headset is started; {@link #stop()} shuts the dispatch threads
+	 * down and returns the socket to synchronous dispatch.
+	 * @param consumerThreads number of dispatch threads, each with its own ring
+	 * @param ringSize packets each ring can hold; must be a power of two. Readers wait while their ring is full.
+	 * @param waitStrategy how idle dispatch threads and readers facing a full ring wait
+	 */
+	public synchronized void enableAsyncDispatch(int consumerThreads, int ringSize, WaitStrategy waitStrategy) {
+		if(!streams.isEmpty()) throw new IllegalStateException("Asynchronous dispatch must be enabled before streaming starts");
+		if(null != eventBus) throw new IllegalStateException("Asynchronous dispatch is already enabled");
+		AsyncEventBus bus = new AsyncEventBus(consumerThreads, ringSize, waitStrategy, new AsyncEventBus.Handler() {
+			@Override
+			public void onPacket(int headsetId, String deviceAddress, DecodedPacket packet, List<Event> events) {
+				dispatch(headsetId, deviceAddress, packet, events);
+			}
+		});
+		bus.start();
+		eventBus = bus;
 	}
 
 	/**
@@ -69,11 +214,29 @@ public class BluetoothSocket  {
 	 * @throws NullPointerException if there are no previously-paired headsets in range
 	 */
 	public void start() throws IOException, InterruptedException {
-		connections = BluetoothConnector.getConnections();
-		if(null == connections || connections.isEmpty()) {
+		// Each headset starts streaming as soon as it is connected rather than once every headset is
+		List<CompletableFuture<BluetoothConnection>> pending = BluetoothConnector.getInstance().connectAsync();
+		List<CompletableFuture<Void>> streaming = new ArrayList<CompletableFuture<Void>>();
+		for(CompletableFuture<BluetoothConnection> future: pending) {
+			streaming.add(future.thenAccept(new Consumer<BluetoothConnection>() {
+				@Override
+				public void accept(BluetoothConnection connection) {
+					start(connection);
+				}
+			}));
+		}
+		int started = 0;
+		for(CompletableFuture<Void> future: streaming) {
+			try {
+				future.get();
+				started++;
+			} catch (ExecutionException e) {
+				// The connector has logged why
+			}
+		}
+		if(started == 0) {
 			throw new NullPointerException("No Bluetooth connections found!");
 		}
-		startStreaming();
 	}
 
 	/**
@@ -83,19 +246,29 @@ public class BluetoothSocket  {
 	public void stop() {
 		LOG.debug("Stopping Bluetooth socket!");
 		if (running) {
-			if(null != streamThreads) {
-				for(BluetoothStreamParseThread thread: streamThreads) {
-					thread.stopThread();
-				}
+			for(HeadsetStream stream: streams) {
+				stream.stop();
 			}
 			for(BluetoothConnection connection: connections) {
 				try {
 					LOG.debug("Closing connection to " + connection.getDeviceAddress());
-					connection.getInputStream().close();
+					connection.getTransport().close();
 				} catch (IOException e) {
-					LOG.error("Exception while closing headset input stream", e);
+					LOG.error("Exception while closing headset transport", e);
 				}
 			}
+			synchronized(this) {
+				if(null != eventLoops) {
+					eventLoops.shutdown();
+					eventLoops = null;
+				}
+				streams.clear();
+			}
+			AsyncEventBus bus = eventBus;
+			if(null != bus) {
+				eventBus = null;
+				bus.shutdown();
+			}
 
 		}
 		running = false;
@@ -107,9 +280,7 @@ public class BluetoothSocket  {
 	 * This method returns a list copy of the established connections.
 	 */
 	public List<BluetoothConnection> getConnections() {
-		List<BluetoothConnection> list = new ArrayList<>();
-		list.addAll(connections);
-		return list;
+		return new ArrayList<BluetoothConnection>(connections);
 	}
 	
 	public BluetoothConnection getConnectionByHeadsetId(String headsetId) {
@@ -131,7 +302,7 @@ public class BluetoothSocket  {
 		BluetoothConnection connection = getConnectionByHeadsetId(headsetId);
 		if(null != connection) {
 			try {
-				BluetoothConnector.disconnect(connection);
+				connection.disconnect();
 			} catch (IOException e) {
 				LOG.error("Could not disconnect headset ID " + headsetId, e);
 			}
@@ -153,63 +324,125 @@ public class BluetoothSocket  {
 		}
 	}
 	
-	public BluetoothStreamParseThread start(BluetoothConnection connection) {
+	/**
+	 * Starts streaming from a single connection. The connection doesn't have to come from {@link BluetoothConnector};
+	 * any {@link HeadsetTransport} can be used, e.g. a {@link ChannelTransport} over /dev/rfcomm0.
+	 * @return the headset's stream, which can be used to stop it or wait for it to end
+	 */
+	public HeadsetStream start(BluetoothConnection connection) {
 		if(null == connection) throw new NullPointerException("connection cannot be null");
-		BluetoothStreamParseThread t = new BluetoothStreamParseThread(connection);
-		t.start();
-		streamThreads.add(t);
-		return t;
+		if(!connections.contains(connection)) connections.add(connection);
+		running = true;
+		HeadsetStream stream = new HeadsetStream(connection);
+		streams.add(stream);
+		launch(stream);
+		return stream;
 	}
 	
-	private void startStreaming() {
-		if (null != connections && !connections.isEmpty()) {
-			// Connect a packet parser to each device
-			streamThreads = new ArrayList<BluetoothStreamParseThread>();
-			for(BluetoothConnection connection: connections) {
-				start(connection);
+	private synchronized void launch(HeadsetStream stream) {
+		if(ExecutionMode.EVENT_LOOP == executionMode) {
+			HeadsetTransport transport = stream.getConnection().getTransport();
+			SelectableChannel channel = transport instanceof SelectableTransport ? ((SelectableTransport) transport).getSelectableChannel() : null;
+			if(null != channel) {
+				try {
+					if(null == eventLoops) eventLoops = new EventLoopGroup(eventLoopThreads);
+					stream.setEventLoop(eventLoops.register(stream, channel));
+					stream.watch();
+					return;
+				} catch (IOException e) {
+					LOG.error("Could not add " + stream.getConnection().getDeviceAddress() + " to an event loop, giving it a reader thread instead", e);
+				}
+			} else {
+				LOG.info(stream.getConnection().getDeviceAddress() + " doesn't have a selectable transport, giving it a reader thread instead");
 			}
+		}
+		Thread thread;
+		if(ExecutionMode.VIRTUAL_THREAD_PER_HEADSET == executionMode && VirtualThreads.isSupported()) {
+			thread = VirtualThreads.factory().newThread(stream);
 		} else {
-			LOG.debug("Stopping data stream thread");
-			running = false;
+			thread = new Thread(stream, "mindwave-reader-" + stream.getConnection().getDeviceAddress());
 		}
+		thread.start();
+		stream.watch();
 	}
-
+	
+	public ReconnectSupervisor getReconnectSupervisor() {
+		return reconnectSupervisor;
+	}
+	
 	/**
-	 * You can expect a large number of packets to fail checksum validation. You should not attempt to parse packets that fail validation.
-	 * @param payload
-	 * @param expectedChecksum
-	 * @return
+	 * Sets the supervisor that reconnects headsets whose link is lost. Headsets already streaming keep the
+	 * supervisor they started with.
+	 * @param reconnectSupervisor null to let each stream end as soon as its transport fails
 	 */
-	private boolean validateChecksum(byte[] payload, byte expectedChecksum) {
-		int checkSumTotal = 0;
-		for (int x = 0; x < payload.length; x++) {        
-		    checkSumTotal += payload[x];
-		}
-		
-		// Ignore high bits
-		checkSumTotal &= 0xFF;
-		// Take one's complement
-		checkSumTotal = ~checkSumTotal &0xFF;
-		// Ignore high bits again for some reason
-		byte checkSum = (byte)(checkSumTotal & 0xFF);
-		
-		if(checkSum != expectedChecksum) {
-			LOG.debug(String.format("CHECKSUM FAILED! Expected checksum %02X, got checksum %02X", expectedChecksum, checkSum));
-			return false;
+	public void setReconnectSupervisor(ReconnectSupervisor reconnectSupervisor) {
+		this.reconnectSupervisor = reconnectSupervisor;
+	}
+	
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+	
+	/**
+	 * Chooses how headsets are assigned to threads. Must be called before any headset is started.
+	 * Event-loop mode uses up to four loop threads, one per processor; use
+	 * {@link #setExecutionMode(ExecutionMode, int)} to pick the number yourself.
+	 */
+	public void setExecutionMode(ExecutionMode executionMode) {
+		setExecutionMode(executionMode, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	}
+	
+	/**
+	 * @param eventLoopThreads the number of event-loop threads for {@link ExecutionMode#EVENT_LOOP}; ignored by the other modes
+	 */
+	public synchronized void setExecutionMode(ExecutionMode executionMode, int eventLoopThreads) {
+		if(null == executionMode) throw new NullPointerException("executionMode cannot be null");
+		if(eventLoopThreads < 1) throw new IllegalArgumentException("eventLoopThreads must be at least 1");
+		if(!streams.isEmpty()) throw new IllegalStateException("The execution mode must be set before streaming starts");
+		if(ExecutionMode.VIRTUAL_THREAD_PER_HEADSET == executionMode && !VirtualThreads.isSupported()) {
+			LOG.warn("Virtual threads need Java 21 or later; each headset will get a platform thread");
 		}
-		
-		return true;
+		this.executionMode = executionMode;
+		this.eventLoopThreads = eventLoopThreads;
 	}
 	
-	class BluetoothStreamParseThread extends Thread {
-		private BluetoothConnection connection;
-		private boolean keepGoing = true;
+	/**
+	 * Parsing state for one headset: its framer, the reusable decoded packet and its metrics. Driven either by a
+	 * reader thread of its own blocking in {@link #run()} or by an event loop calling {@link #readAvailable()}.
+	 */
+	public class HeadsetStream implements Runnable {
+		private final BluetoothConnection connection;
+		private final int streamIndex = streamCounter.getAndIncrement();
+		// Reused for every packet so that steady-state streaming doesn't allocate
+		private final PacketFramer framer = new PacketFramer();
+		private final DecodedPacket packet = new DecodedPacket();
+		private final List<Event> events = new ArrayList<Event>();
+		private final HeadsetMetrics metrics;
+		private final CountDownLatch finished = new CountDownLatch(1);
+		private volatile boolean keepGoing = true;
+		private final AtomicBoolean finishing = new AtomicBoolean();
+		private final ReconnectSupervisor supervisor = reconnectSupervisor;
+		private volatile EventLoopGroup.EventLoop eventLoop;
+		private volatile long lastPacketMillis = System.currentTimeMillis();
 		
-		public BluetoothStreamParseThread(BluetoothConnection connection) {
+		HeadsetStream(BluetoothConnection connection) {
 			this.connection = connection;
+			MetricsRegistry registry = metricsRegistry;
+			this.metrics = null == registry ? null : registry.forHeadset(connection.getHeadsetId());
+			framer.setMetrics(metrics);
+		}
+		
+		public BluetoothConnection getConnection() {
+			return connection;
 		}
 		
-		BluetoothConnector bluetoothConnector;
+		void setEventLoop(EventLoopGroup.EventLoop eventLoop) {
+			this.eventLoop = eventLoop;
+		}
+		
+		/**
+		 * Blocking read loop for the thread-per-headset modes.
+		 */
 		@Override
 		public void run() {
 			// If there are custom settings to be written to each headset, add them at this point
@@ -220,91 +453,154 @@ public class BluetoothSocket  {
 //				e1.printStackTrace();
 //			}
 			
-			final byte SYNC = (byte) 0xAA;
-			final int MAX_PAYLOAD_LENGTH = 169;
-			while (keepGoing) {
-				byte b;
-				int payloadLength = 0;
-				try {
-					// Each packet must start with two SYNC bytes in a row
-					try {
-						// Look for the first SYNC byte
-						if ((b = connection.getInputStream().readByte()) != SYNC) {
-							continue;
-						}
-					} catch(EOFException e) {
-						// EOFException will be thrown if headset is disconnected. Try to re-connect one time.
-						if(null == bluetoothConnector) bluetoothConnector = new BluetoothConnector();
-						connection = bluetoothConnector.connect(connection.getDeviceAddress());
-					}
-
-					// Look for the second SYNC byte
-					if ((b = connection.getInputStream().readByte()) != SYNC)
-						continue;
-
-					LOG.debug("New packet found");
-					payloadLength = (connection.getInputStream().readByte() & 0xFF);
-
-					// Ignore any packets that have a zero data length as there's no data to evaluate
-					if (payloadLength == 0) {
-						LOG.debug("Encountered 0-length payload; ignoring packet");
-						continue;
-					}
-
-					 // Ignore any that are more than 169 bytes, which is the maximum size a payload can be
-					if (payloadLength > MAX_PAYLOAD_LENGTH) {
-						LOG.debug("Invalid payload length: " + payloadLength);
-						continue;
-					}
-
-					// Read in the packet's payload
-					LOG.debug("Payload length: " + payloadLength);
-					byte[] payload = new byte[payloadLength];
-					connection.getInputStream().read(payload);
-
-					// Verify the checksum to ensure that the payload is not corrupt
-					byte packetCheckSum = connection.getInputStream().readByte();
-					if (!validateChecksum(payload, packetCheckSum)) {
-						continue;
-					}
-
-					// Parse the packet's payload data
-					List<Event> events = new MindwaveSerialPacket(connection.getDeviceAddress(), payload).getEvents();
-					if (null != events && !events.isEmpty()) notifyListeners(events);
-				} catch (IOException e) {
-					LOG.error("Could not read stream", e);
+			IOException failure = null;
+			try {
+				while (keepGoing) {
+					framer.readPacket(connection.getTransport());
+					onPacket();
 				}
+			} catch (IOException e) {
+				failure = e;
+			} finally {
+				ended(failure);
 			}
-			
-			// If we reach this point the thread is shutting down, so try to disconnect from the headset
+		}
+		
+		/**
+		 * Reads what a non-blocking transport has ready and handles every complete packet in it.
+		 * @return false once the stream has been stopped
+		 * @throws EOFException at end of stream
+		 */
+		boolean readAvailable() throws IOException {
+			// Bounded so one busy headset can't starve the others on its loop
+			for(int reads = 0; reads < 8 && keepGoing; reads++) {
+				int read = framer.fill(connection.getTransport());
+				while(framer.nextPacket()) {
+					onPacket();
+				}
+				if(read < 0) throw new EOFException("End of headset stream");
+				if(read == 0) break;
+			}
+			return keepGoing;
+		}
+		
+		/**
+		 * Called by whatever drove the stream once it can't read any more. A failed link is handed to the
+		 * {@link ReconnectSupervisor} if there is one that can reconnect it; otherwise the stream finishes.
+		 * @param cause why reading stopped, or null if it was stopped on purpose
+		 */
+		void ended(IOException cause) {
+			if(keepGoing && null != cause && null != supervisor && supervisor.linkLost(this, cause)) return;
+			if(keepGoing && null != cause) {
+				LOG.info("End of stream from " + connection.getDeviceAddress() + ": " + cause.getMessage());
+			}
+			finish();
+		}
+		
+		/**
+		 * Swaps a new transport in after a reconnect and starts reading again.
+		 */
+		void resume(HeadsetTransport transport) {
+			connection.setTransport(transport);
+			framer.reset();
+			if(null != metrics) metrics.incrementReconnects();
+			lastPacketMillis = System.currentTimeMillis();
+			launch(this);
+		}
+		
+		void watch() {
+			if(null != supervisor) supervisor.watch(this);
+		}
+		
+		long getLastPacketMillis() {
+			return lastPacketMillis;
+		}
+		
+		boolean isStopRequested() {
+			return !keepGoing;
+		}
+		
+		/**
+		 * Raises a headset status that didn't come from the headset, such as a lost link.
+		 */
+		void emitStatus(EventType status) {
+			DecodedPacket statusPacket = new DecodedPacket();
+			statusPacket.setHeadsetStatus(status, 0);
+			statusPacket.setTimestamp(System.currentTimeMillis());
+			stateCache.update(connection.getHeadsetId(), statusPacket);
+			AsyncEventBus bus = eventBus;
+			if(null == bus) {
+				dispatch(connection.getHeadsetId(), connection.getDeviceAddress(), statusPacket, new ArrayList<Event>());
+			} else if(wantsPacket(connection.getHeadsetId(), statusPacket)) {
+				bus.publish(streamIndex, connection.getHeadsetId(), connection.getDeviceAddress(), statusPacket);
+			}
+		}
+		
+		private void onPacket() {
+			// Parse the packet's payload data
+			if(null == metrics) {
+				PacketDecoder.decode(framer.getBuffer(), framer.getPayloadOffset(), framer.getPayloadLength(), packet);
+			} else {
+				long started = System.nanoTime();
+				PacketDecoder.decode(framer.getBuffer(), framer.getPayloadOffset(), framer.getPayloadLength(), packet);
+				metrics.recordDecode(System.nanoTime() - started, packet);
+			}
+			long now = System.currentTimeMillis();
+			HeadsetTransport transport = connection.getTransport();
+			packet.setTimestamp(transport instanceof TimestampedTransport ? ((TimestampedTransport) transport).getTimestamp() : now);
+			// Read by the stall watchdog; only written when the clock has moved on
+			if(now != lastPacketMillis) lastPacketMillis = now;
+			stateCache.update(connection.getHeadsetId(), packet);
+			AsyncEventBus bus = eventBus;
+			if(null == bus) {
+				dispatch(connection.getHeadsetId(), connection.getDeviceAddress(), packet, events);
+			} else if(wantsPacket(connection.getHeadsetId(), packet)) {
+				bus.publish(streamIndex, connection.getHeadsetId(), connection.getDeviceAddress(), packet);
+			}
+		}
+		
+		/**
+		 * Called when the stream ends for good; only the first call has any effect.
+		 */
+		void finish() {
+			if(!finishing.compareAndSet(false, true)) return;
+			keepGoing = false;
+			if(null != supervisor) supervisor.unwatch(this);
+			// The stream is shutting down, so try to disconnect from the headset
 			try {
-				BluetoothConnector.disconnect(connection);
+				connection.disconnect();
 			} catch (IOException e) {
 				LOG.debug("Could not disconnect from device " + connection.getDeviceAddress() + ": " + e.getMessage());
-				e.printStackTrace();
+			} finally {
+				finished.countDown();
 			}
 		}
 		
-		public void stopThread() {
+		/**
+		 * Asks the stream to end. A reader thread blocked in a read only notices once the read returns,
+		 * so close the transport as well to end it promptly.
+		 */
+		public void stop() {
 			keepGoing = false;
+			EventLoopGroup.EventLoop loop = eventLoop;
+			if(null != loop) loop.stop(this);
+			if(null != supervisor) supervisor.cancel(this);
 		}
 		
-		@Override
-		protected void finalize() throws Throwable {
-			super.finalize();
-			
-			if(null != connection) {
-				if(null != connection.getInputStream()) {
-					connection.getInputStream().close();
-				}
-				if(null != connection.getOutputStream()) {
-					try {
-						connection.getOutputStream().flush();
-					} catch(IOException e) { e.printStackTrace(); }
-					connection.getOutputStream().close();
-				}
-			}
+		public boolean isRunning() {
+			return finished.getCount() > 0;
+		}
+		
+		/**
+		 * Waits for the stream to end.
+		 * @return true if it ended within <code>timeoutMillis</code>
+		 */
+		public boolean join(long timeoutMillis) throws InterruptedException {
+			return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
 		}
 		
+		public void join() throws InterruptedException {
+			finished.await();
+		}
 	}
-}
\ No newline at end of file
+}
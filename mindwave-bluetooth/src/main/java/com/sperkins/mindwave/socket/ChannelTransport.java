@@ -0,0 +1,110 @@
+package com.sperkins.mindwave.socket;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Transport over NIO channels, with no BlueCove stream layers in between. On Linux a headset bound
+ * with <code>rfcomm bind</code> can be read through its device file:
+ * <pre>
+ * BluetoothConnection connection = new BluetoothConnection("091A2B3C4D5E", ChannelTransport.open(Paths.get("/dev/rfcomm0")));
+ * socket.start(connection);
+ * </pre>
+ * Heap buffers are filled from a direct staging buffer, so the channel always reads into native memory.
+ * Transports over a socket or pipe channel can be serviced by an {@link ExecutionMode#EVENT_LOOP} thread.
+ */
+public class ChannelTransport implements SelectableTransport {
+	private final ReadableByteChannel readChannel;
+	private final WritableByteChannel writeChannel;
+	private final ByteBuffer staging;
+
+	public ChannelTransport(ReadableByteChannel readChannel, WritableByteChannel writeChannel) {
+		this(readChannel, writeChannel, PacketFramer.DEFAULT_CAPACITY);
+	}
+
+	public ChannelTransport(ReadableByteChannel readChannel, WritableByteChannel writeChannel, int stagingCapacity) {
+		if(null == readChannel) throw new NullPointerException("readChannel cannot be null");
+		this.readChannel = readChannel;
+		this.writeChannel = writeChannel;
+		this.staging = ByteBuffer.allocateDirect(stagingCapacity);
+	}
+
+	/**
+	 * Opens a device file such as /dev/rfcomm0 for reading and writing.
+	 */
+	public static ChannelTransport open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		return new ChannelTransport(channel, channel);
+	}
+
+	/**
+	 * Opens a file or named pipe for reading only. Commands sent to the headset will fail.
+	 */
+	public static ChannelTransport openReadOnly(Path path) throws IOException {
+		return new ChannelTransport(FileChannel.open(path, StandardOpenOption.READ), null);
+	}
+
+	/**
+	 * Connects to a TCP endpoint, e.g. a serial-to-network bridge.
+	 */
+	public static ChannelTransport connect(SocketAddress address) throws IOException {
+		SocketChannel channel = SocketChannel.open(address);
+		return new ChannelTransport(channel, channel);
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if(dst.isDirect()) return readChannel.read(dst);
+
+		staging.clear();
+		if(dst.remaining() < staging.capacity()) staging.limit(dst.remaining());
+		int read = readChannel.read(staging);
+		if(read > 0) {
+			staging.flip();
+			dst.put(staging);
+		}
+		return read;
+	}
+
+	@Override
+	public void write(ByteBuffer src) throws IOException {
+		if(null == writeChannel) throw new IOException("Transport is read-only");
+		while(src.hasRemaining()) {
+			writeChannel.write(src);
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return readChannel.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			readChannel.close();
+		} finally {
+			if(null != writeChannel && writeChannel != readChannel) writeChannel.close();
+		}
+	}
+
+	public ReadableByteChannel getReadChannel() {
+		return readChannel;
+	}
+
+	/**
+	 * @return the read channel if it is selectable (sockets and pipes are, files and device files aren't), otherwise null
+	 */
+	@Override
+	public SelectableChannel getSelectableChannel() {
+		return readChannel instanceof SelectableChannel ? (SelectableChannel) readChannel : null;
+	}
+}
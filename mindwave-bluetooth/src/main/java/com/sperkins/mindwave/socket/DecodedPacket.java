@@ -0,0 +1,241 @@
+package com.sperkins.mindwave.socket;
+
+import java.util.List;
+
+import com.sperkins.mindwave.event.AttentionEvent;
+import com.sperkins.mindwave.event.EegEvent;
+import com.sperkins.mindwave.event.Event;
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.HeadsetStatusEvent;
+import com.sperkins.mindwave.event.MeditationEvent;
+import com.sperkins.mindwave.event.MindwaveDataListener;
+import com.sperkins.mindwave.event.PoorSignalEvent;
+import com.sperkins.mindwave.event.RawEvent;
+
+/**
+ * Reusable, primitive-backed holder for the values decoded from one ThinkGear payload.
+ * A single instance is filled by {@link PacketDecoder} over and over again, so steady-state
+ * decoding does not allocate. Use {@link #has(int)} to find out which values the last
+ * payload contained.
+ *
+ * Instances are not thread-safe and must not be retained by listeners; copy the values out instead.
+ */
+public class DecodedPacket {
+	public static final int POOR_SIGNAL = 1;
+	public static final int ATTENTION = 1 << 1;
+	public static final int MEDITATION = 1 << 2;
+	public static final int RAW = 1 << 3;
+	public static final int EEG = 1 << 4;
+	public static final int HEADSET_STATUS = 1 << 5;
+
+	public static final int EEG_BAND_COUNT = 8;
+
+	private int fields;
+	private long timestamp;
+	private int poorSignal;
+	private int attention;
+	private int meditation;
+	private final byte[] rawBytes = new byte[PacketDecoder.MAX_PAYLOAD_LENGTH];
+	private int rawLength;
+	private final int[] eeg = new int[EEG_BAND_COUNT];
+	private EventType headsetStatus;
+	private int headsetStatusId;
+	private int unknownCodes;
+
+	public void clear() {
+		fields = 0;
+		rawLength = 0;
+		headsetStatus = null;
+		unknownCodes = 0;
+	}
+
+	public boolean has(int field) {
+		return (fields & field) != 0;
+	}
+
+	public int getFields() {
+		return fields;
+	}
+
+	public boolean isEmpty() {
+		return fields == 0;
+	}
+
+	/**
+	 * @return the time the packet was read, in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	public int getPoorSignal() {
+		return poorSignal;
+	}
+
+	public int getAttention() {
+		return attention;
+	}
+
+	public int getMeditation() {
+		return meditation;
+	}
+
+	/**
+	 * @return the signed 16-bit raw wave sample (big-endian per the ThinkGear protocol)
+	 */
+	public int getRawSample() {
+		if(rawLength < 2) return rawLength == 1 ? rawBytes[0] : 0;
+		return (short)((rawBytes[0] << 8) | (rawBytes[1] & 0xFF));
+	}
+
+	public int getRawLength() {
+		return rawLength;
+	}
+
+	public byte getRawByte(int index) {
+		return rawBytes[index];
+	}
+
+	/**
+	 * @param band 0 (delta) through 7 (mid gamma)
+	 * @return the unscaled 24-bit band power reported by the headset
+	 */
+	public int getEeg(int band) {
+		return eeg[band];
+	}
+
+	public EventType getHeadsetStatus() {
+		return headsetStatus;
+	}
+
+	public int getHeadsetStatusId() {
+		return headsetStatusId;
+	}
+
+	/**
+	 * @return the number of rows in the payload whose code was not recognized
+	 */
+	public int getUnknownCodes() {
+		return unknownCodes;
+	}
+
+	void setPoorSignal(int poorSignal) {
+		this.poorSignal = poorSignal;
+		fields |= POOR_SIGNAL;
+	}
+
+	void setAttention(int attention) {
+		this.attention = attention;
+		fields |= ATTENTION;
+	}
+
+	void setMeditation(int meditation) {
+		this.meditation = meditation;
+		fields |= MEDITATION;
+	}
+
+	void setRaw(byte[] source, int offset, int length) {
+		System.arraycopy(source, offset, rawBytes, 0, length);
+		rawLength = length;
+		fields |= RAW;
+	}
+
+	void setEeg(int band, int value) {
+		eeg[band] = value;
+		fields |= EEG;
+	}
+
+	void setHeadsetStatus(EventType headsetStatus, int headsetStatusId) {
+		this.headsetStatus = headsetStatus;
+		this.headsetStatusId = headsetStatusId;
+		fields |= HEADSET_STATUS;
+	}
+
+	void addUnknownCode() {
+		unknownCodes++;
+	}
+
+	/**
+	 * Copies every value from <code>other</code> into this packet.
+	 */
+	public void copyFrom(DecodedPacket other) {
+		fields = other.fields;
+		timestamp = other.timestamp;
+		poorSignal = other.poorSignal;
+		attention = other.attention;
+		meditation = other.meditation;
+		rawLength = other.rawLength;
+		System.arraycopy(other.rawBytes, 0, rawBytes, 0, other.rawLength);
+		System.arraycopy(other.eeg, 0, eeg, 0, EEG_BAND_COUNT);
+		headsetStatus = other.headsetStatus;
+		headsetStatusId = other.headsetStatusId;
+		unknownCodes = other.unknownCodes;
+	}
+
+	/**
+	 * Delivers the decoded values to a primitive listener, in the same order as {@link #toEvents(String, List)}.
+	 */
+	public void toDataListener(int headsetId, MindwaveDataListener listener) {
+		if(has(HEADSET_STATUS)) {
+			listener.onHeadsetStatus(headsetId, timestamp, headsetStatus, headsetStatusId);
+		}
+		if(has(POOR_SIGNAL)) {
+			listener.onPoorSignal(headsetId, timestamp, poorSignal);
+		}
+		if(has(EEG)) {
+			listener.onEegPower(headsetId, timestamp, eeg[0], eeg[1], eeg[2], eeg[3], eeg[4], eeg[5], eeg[6], eeg[7]);
+		}
+		if(has(ATTENTION)) {
+			listener.onAttention(headsetId, timestamp, attention);
+		}
+		if(has(MEDITATION)) {
+			listener.onMeditation(headsetId, timestamp, meditation);
+		}
+		if(has(RAW)) {
+			listener.onRawSample(headsetId, timestamp, getRawSample());
+		}
+	}
+
+	/**
+	 * Materializes the decoded values as {@link Event} objects for {@link com.sperkins.mindwave.event.MindwaveEventListener}s.
+	 * This is the only part of the decoding path that allocates.
+	 * @param deviceAddress the address of the headset that sent the packet
+	 * @param events the list to add events to
+	 */
+	public void toEvents(String deviceAddress, List<Event> events) {
+		toEvents(deviceAddress, fields, events);
+	}
+
+	/**
+	 * Materializes only some of the decoded values, so nothing is allocated for values no one wants.
+	 * @param wanted the field flags to materialize
+	 */
+	public void toEvents(String deviceAddress, int wanted, List<Event> events) {
+		int fields = this.fields & wanted;
+		if((fields & HEADSET_STATUS) != 0) {
+			events.add(new HeadsetStatusEvent(deviceAddress, String.valueOf(headsetStatusId), headsetStatus));
+		}
+		if((fields & POOR_SIGNAL) != 0) {
+			events.add(new PoorSignalEvent(deviceAddress, poorSignal));
+		}
+		if((fields & EEG) != 0) {
+			events.add(new EegEvent(deviceAddress, eeg[0] / 10000, eeg[1] / 10000, eeg[2] / 10000, eeg[3] / 10000,
+					eeg[4] / 10000, eeg[5] / 10000, eeg[6] / 10000, eeg[7] / 10000));
+		}
+		if((fields & ATTENTION) != 0) {
+			events.add(new AttentionEvent(deviceAddress, attention));
+		}
+		if((fields & MEDITATION) != 0) {
+			events.add(new MeditationEvent(deviceAddress, meditation));
+		}
+		if((fields & RAW) != 0) {
+			int[] values = new int[rawLength];
+			for(int i = 0; i < rawLength; i++) values[i] = rawBytes[i];
+			events.add(new RawEvent(deviceAddress, values));
+		}
+	}
+}
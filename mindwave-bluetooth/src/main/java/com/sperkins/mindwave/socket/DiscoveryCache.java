@@ -0,0 +1,190 @@
+package com.sperkins.mindwave.socket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the RFCOMM connection URL resolved for each headset, so a warm start can open the headset directly
+ * instead of repeating device discovery and an SDP service search. Entries are kept in a properties file as
+ * <code>address=url|resolvedMillis</code>. Entries older than the validity window are ignored, and are dropped
+ * when the file is loaded or next written.
+ * Every change is written straight back to disk, replacing the whole file, so all users of a file must share
+ * one cache: get it from {@link #open(Path)} rather than constructing a second one.
+ */
+public class DiscoveryCache {
+	private final static Logger LOG = LoggerFactory.getLogger(DiscoveryCache.class.getName());
+
+	public static final long DEFAULT_VALIDITY_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+	private static final ConcurrentMap<Path, DiscoveryCache> SHARED = new ConcurrentHashMap<Path, DiscoveryCache>();
+
+	private final Path file;
+	private final long validityMillis;
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+	/**
+	 * @return the shared cache in <code>~/.mindwave-bluetooth/discovery.properties</code>
+	 */
+	public static DiscoveryCache openDefault() {
+		return open(Paths.get(System.getProperty("user.home"), ".mindwave-bluetooth", "discovery.properties"));
+	}
+
+	/**
+	 * @return the one cache for <code>file</code> in this JVM, created with the default validity window the first time
+	 */
+	public static DiscoveryCache open(Path file) {
+		if(null == file) throw new NullPointerException("file cannot be null");
+		Path key = file.toAbsolutePath().normalize();
+		DiscoveryCache cache = SHARED.get(key);
+		if(null == cache) {
+			DiscoveryCache created = new DiscoveryCache(key, DEFAULT_VALIDITY_MILLIS);
+			cache = SHARED.putIfAbsent(key, created);
+			if(null == cache) cache = created;
+		}
+		return cache;
+	}
+
+	/**
+	 * Creates a cache of its own, e.g. with a different validity window. It doesn't see changes made through any
+	 * other cache on the same file, and its writes overwrite theirs.
+	 * @param file where entries are kept; created on the first change
+	 * @param validityMillis how long a resolved URL is trusted before the headset is searched again
+	 */
+	public DiscoveryCache(Path file, long validityMillis) {
+		if(null == file) throw new NullPointerException("file cannot be null");
+		if(validityMillis < 1) throw new IllegalArgumentException("validityMillis must be positive");
+		this.file = file;
+		this.validityMillis = validityMillis;
+		load();
+	}
+
+	/**
+	 * @return the cached connection URL for <code>deviceAddress</code>, or null if there is none or it has expired
+	 */
+	public synchronized String getConnectionUrl(String deviceAddress) {
+		Entry entry = entries.get(deviceAddress);
+		if(null == entry || isExpired(entry)) return null;
+		return entry.connectionUrl;
+	}
+
+	/**
+	 * @return the connection URL of every headset with a valid entry, by address
+	 */
+	public synchronized Map<String, String> getConnectionUrls() {
+		Map<String, String> urls = new LinkedHashMap<String, String>();
+		for(Map.Entry<String, Entry> entry: entries.entrySet()) {
+			if(!isExpired(entry.getValue())) urls.put(entry.getKey(), entry.getValue().connectionUrl);
+		}
+		return urls;
+	}
+
+	/**
+	 * Records a URL that has just been used successfully, restarting its validity window.
+	 */
+	public synchronized void put(String deviceAddress, String connectionUrl) {
+		Entry previous = entries.remove(deviceAddress);
+		entries.put(deviceAddress, new Entry(connectionUrl, System.currentTimeMillis()));
+		if(null == previous || !previous.connectionUrl.equals(connectionUrl) || isHalfExpired(previous)) save();
+	}
+
+	/**
+	 * Forgets <code>deviceAddress</code>, e.g. after its cached URL failed to connect.
+	 */
+	public synchronized void remove(String deviceAddress) {
+		if(null != entries.remove(deviceAddress)) save();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		save();
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public long getValidityMillis() {
+		return validityMillis;
+	}
+
+	private boolean isExpired(Entry entry) {
+		return System.currentTimeMillis() - entry.resolvedMillis > validityMillis;
+	}
+
+	// Refreshing the timestamp of a URL that keeps working only needs a write now and then
+	private boolean isHalfExpired(Entry entry) {
+		return System.currentTimeMillis() - entry.resolvedMillis > validityMillis / 2;
+	}
+
+	private void load() {
+		Properties properties = new Properties();
+		try(InputStream in = Files.newInputStream(file)) {
+			properties.load(in);
+		} catch (NoSuchFileException e) {
+			return;
+		} catch (IOException e) {
+			LOG.warn("Could not read discovery cache " + file + ", starting with an empty cache", e);
+			return;
+		}
+		for(String deviceAddress: properties.stringPropertyNames()) {
+			String value = properties.getProperty(deviceAddress);
+			int separator = value.lastIndexOf('|');
+			try {
+				Entry entry = new Entry(value.substring(0, separator), Long.parseLong(value.substring(separator + 1)));
+				if(!isExpired(entry)) entries.put(deviceAddress, entry);
+			} catch (RuntimeException e) {
+				LOG.debug("Ignoring malformed discovery cache entry for " + deviceAddress + ": " + value);
+			}
+		}
+	}
+
+	private void save() {
+		// Expired entries are never used again, so they aren't written back either
+		Iterator<Entry> iterator = entries.values().iterator();
+		while(iterator.hasNext()) {
+			if(isExpired(iterator.next())) iterator.remove();
+		}
+		Properties properties = new Properties();
+		for(Map.Entry<String, Entry> entry: entries.entrySet()) {
+			properties.setProperty(entry.getKey(), entry.getValue().connectionUrl + "|" + entry.getValue().resolvedMillis);
+		}
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			if(null != parent) Files.createDirectories(parent);
+			// Write a sibling file and move it into place so a crash never leaves half a cache behind
+			Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+			try(OutputStream out = Files.newOutputStream(temp)) {
+				properties.store(out, "mindwave-bluetooth discovery cache: address=connection URL|resolved millis");
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOG.warn("Could not write discovery cache " + file, e);
+		}
+	}
+
+	private static class Entry {
+		final String connectionUrl;
+		final long resolvedMillis;
+
+		Entry(String connectionUrl, long resolvedMillis) {
+			this.connectionUrl = connectionUrl;
+			this.resolvedMillis = resolvedMillis;
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package com.sperkins.mindwave.socket;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sperkins.mindwave.socket.BluetoothSocket.HeadsetStream;
+
+/**
+ * A fixed set of threads, each reading from any number of non-blocking headset channels through one Selector.
+ * A headset is assigned to the loop with the fewest headsets and stays there, so its packets are always
+ * handled in order by the same thread. Framing state lives in each headset's {@link HeadsetStream}.
+ */
+class EventLoopGroup {
+	private final static Logger LOG = LoggerFactory.getLogger(EventLoopGroup.class.getName());
+
+	// Check for channels closed behind the loop's back this often
+	private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+	private final EventLoop[] loops;
+
+	EventLoopGroup(int threads) throws IOException {
+		if(threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+		loops = new EventLoop[threads];
+		for(int i = 0; i < threads; i++) {
+			loops[i] = new EventLoop(i);
+		}
+		for(EventLoop loop: loops) {
+			loop.start();
+		}
+	}
+
+	/**
+	 * Switches <code>channel</code> to non-blocking mode and hands the stream to the least busy loop.
+	 */
+	synchronized EventLoop register(HeadsetStream stream, SelectableChannel channel) throws IOException {
+		EventLoop target = loops[0];
+		for(EventLoop loop: loops) {
+			if(loop.streamCount.get() < target.streamCount.get()) target = loop;
+		}
+		channel.configureBlocking(false);
+		target.register(stream, channel);
+		return target;
+	}
+
+	int getThreadCount() {
+		return loops.length;
+	}
+
+	/**
+	 * Stops every loop. Streams still registered are finished on their loop's thread before it exits.
+	 */
+	void shutdown() {
+		for(EventLoop loop: loops) {
+			loop.running = false;
+			loop.selector.wakeup();
+		}
+		for(EventLoop loop: loops) {
+			try {
+				loop.join(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	static class EventLoop extends Thread {
+		private final Selector selector;
+		private final Queue<Registration> registrations = new ConcurrentLinkedQueue<Registration>();
+		private final Queue<HeadsetStream> stops = new ConcurrentLinkedQueue<HeadsetStream>();
+		// Only touched by the loop thread
+		private final Map<HeadsetStream, SelectionKey> keys = new HashMap<HeadsetStream, SelectionKey>();
+		private final AtomicInteger streamCount = new AtomicInteger();
+		private volatile boolean running = true;
+		private long lastSweep = System.currentTimeMillis();
+
+		EventLoop(int index) throws IOException {
+			super("mindwave-event-loop-" + index);
+			setDaemon(true);
+			selector = Selector.open();
+		}
+
+		void register(HeadsetStream stream, SelectableChannel channel) {
+			streamCount.incrementAndGet();
+			registrations.add(new Registration(stream, channel));
+			selector.wakeup();
+		}
+
+		/**
+		 * Asks the loop to drop <code>stream</code>; it is finished on the loop thread.
+		 */
+		void stop(HeadsetStream stream) {
+			stops.add(stream);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while(running) {
+					selector.select(SWEEP_INTERVAL_MILLIS);
+					acceptRegistrations();
+					processStops();
+					Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+					while(selected.hasNext()) {
+						SelectionKey key = selected.next();
+						selected.remove();
+						read(key, (HeadsetStream) key.attachment());
+					}
+					long now = System.currentTimeMillis();
+					if(now - lastSweep >= SWEEP_INTERVAL_MILLIS) {
+						lastSweep = now;
+						sweepClosedChannels();
+					}
+				}
+			} catch (IOException e) {
+				LOG.error("Event loop " + getName() + " failed", e);
+			} finally {
+				acceptRegistrations();
+				for(HeadsetStream stream: keys.keySet()) {
+					stream.finish();
+				}
+				keys.clear();
+				try {
+					selector.close();
+				} catch (IOException e) {
+					LOG.debug("Could not close selector: " + e.getMessage());
+				}
+			}
+		}
+
+		private void read(SelectionKey key, HeadsetStream stream) {
+			boolean open;
+			try {
+				open = key.isValid() && stream.readAvailable();
+			} catch (IOException e) {
+				remove(stream, e);
+				return;
+			} catch (RuntimeException e) {
+				// A failing listener must not take every other headset on this loop down with it
+				LOG.error("Listener failed for " + stream.getConnection().getDeviceAddress(), e);
+				open = key.isValid();
+			}
+			if(!open) remove(stream, null);
+		}
+
+		private void acceptRegistrations() {
+			Registration registration;
+			while(null != (registration = registrations.poll())) {
+				try {
+					SelectionKey key = registration.channel.register(selector, SelectionKey.OP_READ, registration.stream);
+					keys.put(registration.stream, key);
+				} catch (ClosedChannelException e) {
+					LOG.info("Channel for " + registration.stream.getConnection().getDeviceAddress() + " closed before it could be registered");
+					streamCount.decrementAndGet();
+					registration.stream.finish();
+				}
+			}
+		}
+
+		private void processStops() {
+			HeadsetStream stream;
+			while(null != (stream = stops.poll())) {
+				if(keys.containsKey(stream)) remove(stream, null);
+			}
+		}
+
+		private void sweepClosedChannels() {
+			Iterator<Map.Entry<HeadsetStream, SelectionKey>> entries = keys.entrySet().iterator();
+			while(entries.hasNext()) {
+				Map.Entry<HeadsetStream, SelectionKey> entry = entries.next();
+				if(!entry.getValue().channel().isOpen()) {
+					entries.remove();
+					streamCount.decrementAndGet();
+					entry.getKey().ended(new ClosedChannelException());
+				}
+			}
+		}
+
+		/**
+		 * Takes a stream off this loop. It may be reconnected and registered again, possibly with another loop.
+		 * @param cause the read failure, or null if the stream was stopped
+		 */
+		private void remove(HeadsetStream stream, IOException cause) {
+			SelectionKey key = keys.remove(stream);
+			if(null == key) return;
+			key.cancel();
+			streamCount.decrementAndGet();
+			stream.ended(cause);
+		}
+	}
+
+	private static class Registration {
+		final HeadsetStream stream;
+		final SelectableChannel channel;
+
+		Registration(HeadsetStream stream, SelectableChannel channel) {
+			this.stream = stream;
+			this.channel = channel;
+		}
+	}
+}
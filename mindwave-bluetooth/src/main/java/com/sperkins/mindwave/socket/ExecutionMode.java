@@ -0,0 +1,27 @@
+package com.sperkins.mindwave.socket;
+
+/**
+ * How {@link BluetoothSocket} assigns threads to headsets.
+ */
+public enum ExecutionMode {
+	/**
+	 * One platform thread per headset, blocked in a read. Works with every transport and is the default.
+	 */
+	THREAD_PER_HEADSET,
+
+	/**
+	 * One virtual thread per headset on Java 21 and later; platform threads on older JVMs. Blocking reads
+	 * stay simple while the number of OS threads stays flat. Reads that block inside native code, like
+	 * BlueCove's, pin their carrier thread, so this mode pays off mostly for socket transports.
+	 */
+	VIRTUAL_THREAD_PER_HEADSET,
+
+	/**
+	 * A small fixed pool of event-loop threads, each multiplexing many headsets over a Selector.
+	 * Only transports implementing {@link SelectableTransport} with a selectable channel can join an event loop;
+	 * any other transport, including BlueCove streams and /dev/rfcomm device files, falls back to a reader thread of
+	 * its own, so the thread count only stays flat for headsets reached over sockets or pipes. Listeners run on the event-loop thread
+	 * unless asynchronous dispatch is enabled, so a slow listener delays every headset on that loop.
+	 */
+	EVENT_LOOP
+}
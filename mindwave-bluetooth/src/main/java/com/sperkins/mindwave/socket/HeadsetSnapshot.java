@@ -0,0 +1,124 @@
+package com.sperkins.mindwave.socket;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+import com.sperkins.mindwave.event.EventType;
+
+/**
+ * The latest values one headset has reported, as copied out of a {@link HeadsetStateCache}. Every value in a
+ * snapshot comes from the same moment. Snapshots are meant to be kept and refilled, so polling doesn't allocate.
+ */
+public class HeadsetSnapshot {
+	private static final EventType[] EVENT_TYPES = EventType.values();
+
+	int headsetId = -1;
+	long version;
+	long timestamp;
+	int fields;
+	int poorSignal;
+	int attention;
+	int meditation;
+	final int[] eeg = new int[DecodedPacket.EEG_BAND_COUNT];
+	int headsetStatus = -1;
+	int headsetStatusId;
+
+	public int getHeadsetId() {
+		return headsetId;
+	}
+
+	/**
+	 * @return the headset's MAC address, looked up in the default {@link HeadsetRegistry}
+	 */
+	public String getDeviceAddress() {
+		return HeadsetRegistry.getInstance().getAddress(headsetId);
+	}
+
+	/**
+	 * @return how many updates the headset's state had had; unchanged between two reads means nothing new arrived
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return when the newest value arrived, in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @param field one of the {@link DecodedPacket} field flags
+	 * @return whether the headset has ever reported that value
+	 */
+	public boolean has(int field) {
+		return (fields & field) != 0;
+	}
+
+	public int getPoorSignal() {
+		return poorSignal;
+	}
+
+	public int getAttention() {
+		return attention;
+	}
+
+	public int getMeditation() {
+		return meditation;
+	}
+
+	/**
+	 * @param band 0 (delta) through 7 (mid gamma)
+	 * @return the unscaled band power reported by the headset
+	 */
+	public int getEeg(int band) {
+		return eeg[band];
+	}
+
+	public int getDelta() {
+		return eeg[0];
+	}
+
+	public int getTheta() {
+		return eeg[1];
+	}
+
+	public int getLowAlpha() {
+		return eeg[2];
+	}
+
+	public int getHighAlpha() {
+		return eeg[3];
+	}
+
+	public int getLowBeta() {
+		return eeg[4];
+	}
+
+	public int getHighBeta() {
+		return eeg[5];
+	}
+
+	public int getLowGamma() {
+		return eeg[6];
+	}
+
+	public int getMidGamma() {
+		return eeg[7];
+	}
+
+	/**
+	 * @return the last connection status, e.g. {@link EventType#HEADSET_DISCONNECTED}, or null if none has been seen
+	 */
+	public EventType getHeadsetStatus() {
+		return headsetStatus < 0 ? null : EVENT_TYPES[headsetStatus];
+	}
+
+	public int getHeadsetStatusId() {
+		return headsetStatusId;
+	}
+
+	@Override
+	public String toString() {
+		return getDeviceAddress() + " @" + timestamp + ": attention " + attention + ", meditation " + meditation + ", poor signal " + poorSignal;
+	}
+}
@@ -0,0 +1,149 @@
+package com.sperkins.mindwave.socket;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latest attention, meditation, signal quality, EEG bands and connection status of every headset, for consumers
+ * that poll instead of listening:
+ * <pre>
+ * HeadsetSnapshot snapshot = new HeadsetSnapshot();
+ * if(socket.getStateCache().read(headsetId, snapshot)) {
+ *     gauge.setValue(snapshot.getAttention());
+ * }
+ * </pre>
+ * Each headset's values sit in one {@link AtomicLongArray} guarded by a sequence lock. The reader thread
+ * makes the sequence odd, writes the values and makes it even again. Readers copy the values and retry if
+ * the sequence was odd or changed meanwhile, so they never block the reader thread, never see half an
+ * update and never allocate. Raw-only packets don't touch the cache, so it is written about once a second
+ * per headset.
+ */
+public class HeadsetStateCache {
+	private static final int SEQUENCE = 0;
+	private static final int TIMESTAMP = 1;
+	private static final int FIELDS = 2;
+	private static final int POOR_SIGNAL = 3;
+	private static final int ATTENTION = 4;
+	private static final int MEDITATION = 5;
+	private static final int EEG = 6;
+	private static final int HEADSET_STATUS = EEG + DecodedPacket.EEG_BAND_COUNT;
+	private static final int HEADSET_STATUS_ID = HEADSET_STATUS + 1;
+	private static final int SLOTS = HEADSET_STATUS_ID + 1;
+
+	private static final int CACHED_FIELDS = DecodedPacket.POOR_SIGNAL | DecodedPacket.ATTENTION | DecodedPacket.MEDITATION
+			| DecodedPacket.EEG | DecodedPacket.HEADSET_STATUS;
+
+	private volatile AtomicLongArray[] states = new AtomicLongArray[16];
+
+	/**
+	 * Records the cached values in <code>packet</code>, if there are any.
+	 */
+	void update(int headsetId, DecodedPacket packet) {
+		int fields = packet.getFields() & CACHED_FIELDS;
+		if(fields == 0) return;
+		AtomicLongArray state = stateFor(headsetId);
+
+		// Normally only the headset's reader thread writes, but a reconnect can overlap it briefly
+		long sequence;
+		do {
+			sequence = state.get(SEQUENCE);
+		} while((sequence & 1) != 0 || !state.compareAndSet(SEQUENCE, sequence, sequence + 1));
+
+		state.set(TIMESTAMP, packet.getTimestamp());
+		state.set(FIELDS, state.get(FIELDS) | fields);
+		if(packet.has(DecodedPacket.POOR_SIGNAL)) state.set(POOR_SIGNAL, packet.getPoorSignal());
+		if(packet.has(DecodedPacket.ATTENTION)) state.set(ATTENTION, packet.getAttention());
+		if(packet.has(DecodedPacket.MEDITATION)) state.set(MEDITATION, packet.getMeditation());
+		if(packet.has(DecodedPacket.EEG)) {
+			for(int band = 0; band < DecodedPacket.EEG_BAND_COUNT; band++) {
+				state.set(EEG + band, packet.getEeg(band));
+			}
+		}
+		if(packet.has(DecodedPacket.HEADSET_STATUS)) {
+			state.set(HEADSET_STATUS, packet.getHeadsetStatus().ordinal());
+			state.set(HEADSET_STATUS_ID, packet.getHeadsetStatusId());
+		}
+
+		state.set(SEQUENCE, sequence + 2);
+	}
+
+	/**
+	 * Copies a headset's latest values into <code>into</code>.
+	 * @return false, leaving <code>into</code> untouched, if the headset hasn't reported anything yet
+	 */
+	public boolean read(int headsetId, HeadsetSnapshot into) {
+		AtomicLongArray[] current = states;
+		if(headsetId < 0 || headsetId >= current.length || null == current[headsetId]) return false;
+		AtomicLongArray state = current[headsetId];
+		for(int attempt = 1; ; attempt++) {
+			long sequence = state.get(SEQUENCE);
+			if((sequence & 1) == 0) {
+				if(sequence == 0) return false;
+				into.timestamp = state.get(TIMESTAMP);
+				into.fields = (int) state.get(FIELDS);
+				into.poorSignal = (int) state.get(POOR_SIGNAL);
+				into.attention = (int) state.get(ATTENTION);
+				into.meditation = (int) state.get(MEDITATION);
+				for(int band = 0; band < DecodedPacket.EEG_BAND_COUNT; band++) {
+					into.eeg[band] = (int) state.get(EEG + band);
+				}
+				into.headsetStatus = (into.fields & DecodedPacket.HEADSET_STATUS) == 0 ? -1 : (int) state.get(HEADSET_STATUS);
+				into.headsetStatusId = (int) state.get(HEADSET_STATUS_ID);
+				if(state.get(SEQUENCE) == sequence) {
+					into.headsetId = headsetId;
+					into.version = sequence >>> 1;
+					return true;
+				}
+			}
+			// An update takes nanoseconds, so only back off if the writer seems to have been descheduled
+			if(attempt % 64 == 0) Thread.yield();
+		}
+	}
+
+	/**
+	 * Copies every headset that has reported something into <code>into</code>, in headset ID order. Null
+	 * elements are filled with new snapshots, so pass the same array each time to poll without allocating.
+	 * @return the number of snapshots filled; stops early if <code>into</code> is too short
+	 */
+	public int readAll(HeadsetSnapshot[] into) {
+		AtomicLongArray[] current = states;
+		int filled = 0;
+		for(int headsetId = 0; headsetId < current.length && filled < into.length; headsetId++) {
+			if(null == current[headsetId]) continue;
+			if(null == into[filled]) into[filled] = new HeadsetSnapshot();
+			if(read(headsetId, into[filled])) filled++;
+		}
+		return filled;
+	}
+
+	/**
+	 * @return the number of headsets that have reported something, i.e. how large an array {@link #readAll(HeadsetSnapshot[])} needs
+	 */
+	public int size() {
+		AtomicLongArray[] current = states;
+		int size = 0;
+		for(AtomicLongArray state: current) {
+			if(null != state && state.get(SEQUENCE) != 0) size++;
+		}
+		return size;
+	}
+
+	private AtomicLongArray stateFor(int headsetId) {
+		AtomicLongArray[] current = states;
+		if(headsetId < current.length) {
+			AtomicLongArray state = current[headsetId];
+			if(null != state) return state;
+		}
+		synchronized(this) {
+			current = states;
+			if(headsetId >= current.length) {
+				current = Arrays.copyOf(current, Math.max(headsetId + 1, current.length * 2));
+			}
+			if(null == current[headsetId]) {
+				current[headsetId] = new AtomicLongArray(SLOTS);
+			}
+			states = current;
+			return current[headsetId];
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.sperkins.mindwave.socket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Carries the byte stream between a headset and {@link BluetoothSocket}. The socket only ever reads
+ * from a transport in bulk, so the packet parser runs at the same speed against any byte source.
+ *
+ * Implementations shipped with the library:
+ * <ul>
+ * <li>{@link BluecoveTransport} - BlueCove RFCOMM streams, as opened by {@link BluetoothConnector}</li>
+ * <li>{@link ChannelTransport} - NIO channels: device files such as /dev/rfcomm0, named pipes and sockets</li>
+ * <li>{@link LoopbackTransport} - an in-memory pipe fed by the application</li>
+ * </ul>
+ */
+public interface HeadsetTransport extends Closeable {
+	/**
+	 * Reads up to <code>dst.remaining()</code> bytes into <code>dst</code>. Blocking transports block
+	 * until at least one byte is available.
+	 * @return the number of bytes read, or -1 at end of stream
+	 */
+	public int read(ByteBuffer dst) throws IOException;
+
+	/**
+	 * Writes all remaining bytes of <code>src</code> to the headset.
+	 */
+	public void write(ByteBuffer src) throws IOException;
+
+	public boolean isOpen();
+}
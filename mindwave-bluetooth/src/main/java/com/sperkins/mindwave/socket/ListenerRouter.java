@@ -0,0 +1,189 @@
+package com.sperkins.mindwave.socket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.sperkins.mindwave.event.Event;
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveEventListener;
+
+/**
+ * Routes events to the {@link MindwaveEventListener}s subscribed to their type and headset.
+ *
+ * Subscriptions are compiled into an immutable {@link Routes} table, indexed by headset ID and event type, which
+ * is swapped in whole whenever a listener is added or removed. Dispatch reads the current table without locking
+ * and only touches the listeners that want each event. The table also knows which {@link DecodedPacket} fields
+ * anybody wants, per headset, so packets nobody listens to are never turned into events.
+ */
+class ListenerRouter {
+	private static final EventType[] TYPES = EventType.values();
+	private static final MindwaveEventListener[] NONE = new MindwaveEventListener[0];
+
+	private final List<Subscription> subscriptions = new ArrayList<Subscription>();
+	private volatile Routes routes = new Routes(Collections.<Subscription>emptyList());
+
+	/**
+	 * @param headsetId the only headset to route from, or -1 for all of them
+	 * @param types the event types to route; null or empty for all of them
+	 */
+	synchronized void add(MindwaveEventListener listener, int headsetId, EventType... types) {
+		if(null == listener) throw new NullPointerException("listener cannot be null");
+		Set<EventType> routed = null == types || types.length == 0 ? EnumSet.allOf(EventType.class) : EnumSet.noneOf(EventType.class);
+		if(null != types) {
+			for(EventType type: types) {
+				routed.add(type);
+				// Raw and EEG events each report one of their two codes whichever the headset sent
+				if(type == EventType.SIXTEEN_BIT_RAW_WAVE) routed.add(EventType.EIGHT_BIT_RAW_WAVE);
+				if(type == EventType.EEG_POWER) routed.add(EventType.ASIC_EEG_POWER);
+			}
+		}
+		subscriptions.add(new Subscription(listener, headsetId, routed));
+		routes = new Routes(subscriptions);
+	}
+
+	/**
+	 * Removes every subscription of <code>listener</code>.
+	 */
+	synchronized void remove(MindwaveEventListener listener) {
+		boolean removed = false;
+		for(int i = subscriptions.size() - 1; i >= 0; i--) {
+			if(subscriptions.get(i).listener.equals(listener)) {
+				subscriptions.remove(i);
+				removed = true;
+			}
+		}
+		if(removed) routes = new Routes(subscriptions);
+	}
+
+	Routes getRoutes() {
+		return routes;
+	}
+
+	/**
+	 * @return the {@link DecodedPacket} field flag whose value becomes events of <code>type</code>, or 0
+	 */
+	static int fieldFor(EventType type) {
+		switch(type) {
+		case POOR_SIGNAL_QUALITY:
+			return DecodedPacket.POOR_SIGNAL;
+		case ATTENTION:
+			return DecodedPacket.ATTENTION;
+		case MEDITATION:
+			return DecodedPacket.MEDITATION;
+		case EIGHT_BIT_RAW_WAVE:
+		case SIXTEEN_BIT_RAW_WAVE:
+			return DecodedPacket.RAW;
+		case EEG_POWER:
+		case ASIC_EEG_POWER:
+			return DecodedPacket.EEG;
+		case HEADSET_CONNECTED:
+		case HEADSET_NOT_FOUND:
+		case HEADSET_DISCONNECTED:
+		case REQUEST_DENIED:
+		case STANDBY_SCAN:
+			return DecodedPacket.HEADSET_STATUS;
+		default:
+			return 0;
+		}
+	}
+
+	private static class Subscription {
+		final MindwaveEventListener listener;
+		final int headsetId;
+		final Set<EventType> types;
+
+		Subscription(MindwaveEventListener listener, int headsetId, Set<EventType> types) {
+			this.listener = listener;
+			this.headsetId = headsetId;
+			this.types = types;
+		}
+	}
+
+	/**
+	 * One immutable generation of the routing table.
+	 */
+	static class Routes {
+		// Listeners for headsets without subscriptions of their own, by event type ordinal
+		private final MindwaveEventListener[][] anyHeadset;
+		// Listeners for headsets that have subscriptions of their own, by headset ID then type ordinal; may contain nulls
+		private final MindwaveEventListener[][][] byHeadset;
+		private final int anyHeadsetFields;
+		private final int[] headsetFields;
+		private final List<MindwaveEventListener> listeners;
+
+		Routes(List<Subscription> subscriptions) {
+			int maxHeadsetId = -1;
+			List<MindwaveEventListener> distinct = new ArrayList<MindwaveEventListener>();
+			for(Subscription subscription: subscriptions) {
+				maxHeadsetId = Math.max(maxHeadsetId, subscription.headsetId);
+				if(!distinct.contains(subscription.listener)) distinct.add(subscription.listener);
+			}
+			listeners = Collections.unmodifiableList(distinct);
+			anyHeadset = table(subscriptions, -1);
+			anyHeadsetFields = fields(anyHeadset);
+			byHeadset = new MindwaveEventListener[maxHeadsetId + 1][][];
+			headsetFields = new int[maxHeadsetId + 1];
+			for(int headsetId = 0; headsetId <= maxHeadsetId; headsetId++) {
+				for(Subscription subscription: subscriptions) {
+					if(subscription.headsetId == headsetId) {
+						byHeadset[headsetId] = table(subscriptions, headsetId);
+						headsetFields[headsetId] = fields(byHeadset[headsetId]);
+						break;
+					}
+				}
+			}
+		}
+
+		// Listeners per type, in subscription order, for one headset or for all of them
+		private static MindwaveEventListener[][] table(List<Subscription> subscriptions, int headsetId) {
+			MindwaveEventListener[][] table = new MindwaveEventListener[TYPES.length][];
+			for(EventType type: TYPES) {
+				List<MindwaveEventListener> routed = new ArrayList<MindwaveEventListener>();
+				for(Subscription subscription: subscriptions) {
+					boolean headsetMatches = subscription.headsetId == -1 || subscription.headsetId == headsetId;
+					if(headsetMatches && subscription.types.contains(type) && !routed.contains(subscription.listener)) {
+						routed.add(subscription.listener);
+					}
+				}
+				table[type.ordinal()] = routed.isEmpty() ? NONE : routed.toArray(new MindwaveEventListener[routed.size()]);
+			}
+			return table;
+		}
+
+		private static int fields(MindwaveEventListener[][] table) {
+			int fields = 0;
+			for(EventType type: TYPES) {
+				if(table[type.ordinal()].length > 0) fields |= fieldFor(type);
+			}
+			return fields;
+		}
+
+		/**
+		 * @return the {@link DecodedPacket} fields some listener wants from <code>headsetId</code>
+		 */
+		int fieldsFor(int headsetId) {
+			return headsetId >= 0 && headsetId < byHeadset.length && null != byHeadset[headsetId] ? headsetFields[headsetId] : anyHeadsetFields;
+		}
+
+		boolean isEmpty() {
+			return listeners.isEmpty();
+		}
+
+		/**
+		 * @param headsetId the ID of the headset that raised the event, or -1 to only reach listeners subscribed to all headsets
+		 */
+		void route(int headsetId, Event event) {
+			MindwaveEventListener[][] table = headsetId >= 0 && headsetId < byHeadset.length && null != byHeadset[headsetId] ? byHeadset[headsetId] : anyHeadset;
+			for(MindwaveEventListener listener: table[event.getEventType().ordinal()]) {
+				listener.onEvent(event);
+			}
+		}
+
+		List<MindwaveEventListener> getListeners() {
+			return listeners;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.sperkins.mindwave.socket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory transport. The application plays the headset by calling {@link #supply(byte[], int, int)}
+ * with raw ThinkGear bytes, and {@link BluetoothSocket} reads them back exactly as it would from a
+ * live headset. Bytes written to the "headset" are kept and can be retrieved with {@link #getWrittenBytes()}.
+ *
+ * Call {@link #endOfStream()} to let the reader drain the remaining bytes and then see end of stream.
+ */
+public class LoopbackTransport implements HeadsetTransport {
+	private final byte[] ring;
+	private int head;
+	private int size;
+	private boolean endOfStream;
+	private boolean closed;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+	public LoopbackTransport() {
+		this(64 * 1024);
+	}
+
+	public LoopbackTransport(int capacity) {
+		this.ring = new byte[capacity];
+	}
+
+	/**
+	 * Makes bytes available to the reader, blocking while the buffer is full.
+	 * @throws IOException if the transport has been closed or ended
+	 */
+	public void supply(byte[] bytes, int offset, int length) throws IOException {
+		lock.lock();
+		try {
+			while(length > 0) {
+				if(closed || endOfStream) throw new IOException("Loopback transport is closed");
+				while(size == ring.length) {
+					notFull.await();
+					if(closed) throw new IOException("Loopback transport is closed");
+				}
+				int tail = (head + size) % ring.length;
+				int count = Math.min(length, Math.min(ring.length - size, ring.length - tail));
+				System.arraycopy(bytes, offset, ring, tail, count);
+				size += count;
+				offset += count;
+				length -= count;
+				notEmpty.signal();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void supply(byte[] bytes) throws IOException {
+		supply(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Signals end of stream once the reader has consumed everything supplied so far.
+	 */
+	public void endOfStream() {
+		lock.lock();
+		try {
+			endOfStream = true;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		lock.lock();
+		try {
+			while(size == 0) {
+				if(closed || endOfStream) return -1;
+				notEmpty.await();
+			}
+			int count = Math.min(dst.remaining(), Math.min(size, ring.length - head));
+			dst.put(ring, head, count);
+			head = (head + count) % ring.length;
+			size -= count;
+			notFull.signal();
+			return count;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void write(ByteBuffer src) throws IOException {
+		synchronized(written) {
+			while(src.hasRemaining()) {
+				written.write(src.get());
+			}
+		}
+	}
+
+	/**
+	 * @return a copy of every byte the socket has written to this transport
+	 */
+	public byte[] getWrittenBytes() {
+		synchronized(written) {
+			return written.toByteArray();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		lock.lock();
+		try {
+			return !closed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			size = 0;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.sperkins.mindwave.socket;
+
+import com.sperkins.mindwave.event.EventType;
+
+/**
+ * Decodes ThinkGear payloads into a reusable {@link DecodedPacket} without allocating.
+ *
+ * Each payload is a series of data rows. Rows with a code below 0x80 carry a single value byte;
+ * rows with a code of 0x80 or above are followed by a length byte and that many value bytes.
+ * Rows with unrecognized codes are skipped using that rule rather than aborting the whole payload.
+ */
+public final class PacketDecoder {
+	/** The maximum size of a ThinkGear payload */
+	public static final int MAX_PAYLOAD_LENGTH = 169;
+
+	private static final byte EXCODE = (byte) 0x55;
+
+	private PacketDecoder() {}
+
+	/**
+	 * Does NOT validate checksum. Do that before decoding a payload.
+	 * @param payload buffer containing the payload
+	 * @param offset index of the first payload byte
+	 * @param length number of payload bytes
+	 * @param packet cleared, then filled with the decoded values
+	 * @return false if the payload is truncated or malformed. Values decoded before the problem was found are kept.
+	 */
+	public static boolean decode(byte[] payload, int offset, int length, DecodedPacket packet) {
+		packet.clear();
+		int i = offset;
+		int end = offset + length;
+		while(i < end) {
+			while(i < end && payload[i] == EXCODE) {
+				i++;
+			}
+			if(i >= end) return false;
+
+			// Ignore high bits of event type code
+			int code = payload[i++] & 0xFF;
+			int dataLength = 1;
+			if(code >= 0x80) {
+				if(i >= end) return false;
+				dataLength = payload[i++] & 0xFF;
+			}
+			if(i + dataLength > end) return false;
+
+			EventType eventType = EventType.fromHex(code);
+			if(null == eventType) {
+				packet.addUnknownCode();
+				i += dataLength;
+				continue;
+			}
+
+			switch(eventType) {
+			case POOR_SIGNAL_QUALITY:
+				packet.setPoorSignal(payload[i] & 0xFF);
+				break;
+			case ATTENTION:
+				packet.setAttention(payload[i] & 0xFF);
+				break;
+			case MEDITATION:
+				packet.setMeditation(payload[i] & 0xFF);
+				break;
+			case HEADSET_CONNECTED:
+			case HEADSET_NOT_FOUND:
+			case HEADSET_DISCONNECTED:
+			case REQUEST_DENIED:
+			case STANDBY_SCAN:
+				int reportedId = 0;
+				if(dataLength >= 2) {
+					reportedId = ((payload[i] & 0xFF) << 8) | (payload[i + 1] & 0xFF);
+				} else if(dataLength == 1) {
+					reportedId = payload[i] & 0xFF;
+				}
+				packet.setHeadsetStatus(eventType, reportedId);
+				break;
+			case SIXTEEN_BIT_RAW_WAVE:
+				packet.setRaw(payload, i, dataLength);
+				break;
+			case ASIC_EEG_POWER:
+				// Three bytes each in little-Endian format. Don't trust the documentation on this point.
+				int n = i;
+				for(int band = 0; band < DecodedPacket.EEG_BAND_COUNT && n + 3 <= i + dataLength; band++) {
+					packet.setEeg(band, (payload[n] & 0xFF) | ((payload[n + 1] & 0xFF) << 8) | ((payload[n + 2] & 0xFF) << 16));
+					n += 3;
+				}
+				break;
+			default:
+				break;
+			}
+			i += dataLength;
+		}
+		return true;
+	}
+}
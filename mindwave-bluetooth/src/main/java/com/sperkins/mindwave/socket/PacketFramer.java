@@ -0,0 +1,231 @@
+package com.sperkins.mindwave.socket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.sperkins.mindwave.metrics.HeadsetMetrics;
+
+/**
+ * Finds ThinkGear packets in a byte stream. Bytes are pulled from the stream in large chunks
+ * into a reused buffer and scanned in bulk for the SYNC SYNC pair, so a noisy link costs one
+ * read per chunk rather than one per byte.
+ *
+ * A packet is SYNC SYNC LENGTH PAYLOAD... CHECKSUM. Once {@link #nextPacket()} returns true the
+ * complete, checksum-validated payload is available at {@link #getPayloadOffset()} in
+ * {@link #getBuffer()} until the next call to {@link #fill(HeadsetTransport)} or {@link #nextPacket()}.
+ * Partial payloads are never returned.
+ *
+ * The buffer is compacted, never wrapped, so every payload is contiguous and can be decoded in place.
+ * Not thread-safe; use one framer per headset.
+ */
+public class PacketFramer {
+	public static final byte SYNC = (byte) 0xAA;
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	// SYNC SYNC LENGTH + payload + CHECKSUM
+	private static final int MAX_PACKET_LENGTH = PacketDecoder.MAX_PAYLOAD_LENGTH + 4;
+
+	private final byte[] buffer;
+	private final ByteBuffer readBuffer;
+	private int start;
+	private int end;
+	private int payloadOffset;
+	private int payloadLength;
+	private boolean inSync;
+
+	private long bytesRead;
+	private long packetsFramed;
+	private long syncLosses;
+	private long checksumFailures;
+	private long badLengths;
+	private HeadsetMetrics metrics;
+
+	public PacketFramer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PacketFramer(int capacity) {
+		if(capacity < MAX_PACKET_LENGTH) throw new IllegalArgumentException("capacity must be at least " + MAX_PACKET_LENGTH);
+		this.buffer = new byte[capacity];
+		this.readBuffer = ByteBuffer.wrap(buffer);
+	}
+
+	/**
+	 * Reads as many bytes as the transport will give in one call, up to the free space in the buffer.
+	 * @return the number of bytes read, or -1 at end of stream
+	 */
+	public int fill(HeadsetTransport transport) throws IOException {
+		compact();
+		readBuffer.limit(buffer.length);
+		readBuffer.position(end);
+		int read = transport.read(readBuffer);
+		if(read > 0) {
+			end += read;
+			bytesRead += read;
+			if(null != metrics) metrics.addBytesRead(read);
+		}
+		return read;
+	}
+
+	/**
+	 * Blocks until a complete, valid packet has been framed. Only use with blocking transports.
+	 * @throws EOFException if the stream ends first
+	 */
+	public void readPacket(HeadsetTransport transport) throws IOException {
+		while(!nextPacket()) {
+			if(fill(transport) < 0) throw new EOFException("End of headset stream");
+		}
+	}
+
+	/**
+	 * Scans the buffered bytes for the next valid packet.
+	 * @return true if a packet was framed, false if more bytes are needed
+	 */
+	public boolean nextPacket() {
+		while(true) {
+			int i = start;
+			// Only every other byte needs to be compared until a SYNC turns up in the second position
+			while(i + 1 < end) {
+				if(buffer[i + 1] != SYNC) {
+					i += 2;
+				} else if(buffer[i] != SYNC) {
+					i++;
+				} else {
+					break;
+				}
+			}
+			if(i + 1 >= end) {
+				// Keep a trailing SYNC, it may be the first half of the next pair
+				discard(end > start && buffer[end - 1] == SYNC ? end - 1 : end);
+				return false;
+			}
+			discard(i);
+			if(i + 2 >= end) return false;
+
+			int length = buffer[i + 2] & 0xFF;
+			if(length == (SYNC & 0xFF)) {
+				// SYNC SYNC SYNC; the pair starts one byte later
+				start = i + 1;
+				continue;
+			}
+			if(length == 0 || length > PacketDecoder.MAX_PAYLOAD_LENGTH) {
+				badLengths++;
+				if(null != metrics) metrics.incrementBadLengths();
+				loseSync(i + 2);
+				continue;
+			}
+			if(i + length + 4 > end) return false;
+
+			if(!validateChecksum(buffer, i + 3, length, buffer[i + 3 + length])) {
+				checksumFailures++;
+				if(null != metrics) metrics.incrementChecksumFailures();
+				// The real start of the next packet may lie inside the rejected payload
+				loseSync(i + 2);
+				continue;
+			}
+
+			payloadOffset = i + 3;
+			payloadLength = length;
+			start = i + length + 4;
+			packetsFramed++;
+			if(null != metrics) metrics.incrementPacketsFramed();
+			inSync = true;
+			return true;
+		}
+	}
+
+	/**
+	 * Drops any buffered bytes, e.g. after the underlying stream has been replaced.
+	 */
+	public void reset() {
+		start = 0;
+		end = 0;
+		payloadLength = 0;
+		inSync = false;
+	}
+
+	private void discard(int newStart) {
+		if(newStart > start && inSync) {
+			syncLosses++;
+			if(null != metrics) metrics.incrementSyncLosses();
+			inSync = false;
+		}
+		start = newStart;
+	}
+
+	private void loseSync(int newStart) {
+		if(inSync) {
+			syncLosses++;
+			if(null != metrics) metrics.incrementSyncLosses();
+			inSync = false;
+		}
+		start = newStart;
+	}
+
+	private void compact() {
+		if(start == end) {
+			start = 0;
+			end = 0;
+		} else if(buffer.length - end < MAX_PACKET_LENGTH) {
+			System.arraycopy(buffer, start, buffer, 0, end - start);
+			end -= start;
+			start = 0;
+		}
+	}
+
+	/**
+	 * You can expect a large number of packets to fail checksum validation. You should not attempt to parse packets that fail validation.
+	 * @return true if the one's complement of the low byte of the payload sum equals <code>expectedChecksum</code>
+	 */
+	public static boolean validateChecksum(byte[] buffer, int offset, int length, byte expectedChecksum) {
+		int checkSumTotal = 0;
+		for(int x = offset, last = offset + length; x < last; x++) {
+			checkSumTotal += buffer[x];
+		}
+		return (byte)(~checkSumTotal) == expectedChecksum;
+	}
+
+	/**
+	 * Also records everything this framer counts into <code>metrics</code>; null stops recording.
+	 */
+	public void setMetrics(HeadsetMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public HeadsetMetrics getMetrics() {
+		return metrics;
+	}
+
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	public int getPayloadOffset() {
+		return payloadOffset;
+	}
+
+	public int getPayloadLength() {
+		return payloadLength;
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	public long getPacketsFramed() {
+		return packetsFramed;
+	}
+
+	public long getSyncLosses() {
+		return syncLosses;
+	}
+
+	public long getChecksumFailures() {
+		return checksumFailures;
+	}
+
+	public long getBadLengths() {
+		return badLengths;
+	}
+}
@@ -0,0 +1,311 @@
+package com.sperkins.mindwave.socket;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.socket.BluetoothSocket.HeadsetStream;
+
+/**
+ * Keeps headset streams alive across lost links. When a stream's transport fails, or a watchdog sees no
+ * valid packet for {@link #getStallTimeoutMillis()}, the reader gives the stream up and the supervisor
+ * reconnects it from its own threads with jittered exponential backoff. Nothing waits or spins while a headset
+ * is gone. Once a new transport is open it replaces the dead one, the stream's framer is reset, and the stream
+ * is started again in the socket's execution mode.
+ *
+ * Listeners see a {@link EventType#HEADSET_DISCONNECTED} status when the link is lost,
+ * {@link EventType#HEADSET_CONNECTED} when it is back, and {@link EventType#HEADSET_NOT_FOUND} if the supervisor
+ * gives up. These statuses report a headset ID of 0.
+ *
+ * BlueCove connections are reconnected through {@link BluetoothConnector}. Streams over other transports end
+ * at end of stream, as replays and files should, unless a {@link TransportFactory} is set.
+ */
+public class ReconnectSupervisor {
+	private final static Logger LOG = LoggerFactory.getLogger(ReconnectSupervisor.class.getName());
+
+	private static final TransportFactory BLUECOVE = new TransportFactory() {
+		@Override
+		public HeadsetTransport open(BluetoothConnection connection) throws IOException {
+			return BluetoothConnector.getInstance().connect(connection.getDeviceAddress()).getTransport();
+		}
+	};
+
+	private long initialBackoffMillis = 500;
+	private long maxBackoffMillis = 30000;
+	private double backoffMultiplier = 2;
+	private int maxAttempts = 0;
+	private long stallTimeoutMillis = 5000;
+	private TransportFactory transportFactory;
+
+	private final ScheduledThreadPoolExecutor scheduler;
+	private final Set<HeadsetStream> watched = ConcurrentHashMap.<HeadsetStream>newKeySet();
+	private final Map<HeadsetStream, ScheduledFuture<?>> pending = new ConcurrentHashMap<HeadsetStream, ScheduledFuture<?>>();
+	private ScheduledFuture<?> watchdog;
+
+	public ReconnectSupervisor() {
+		final AtomicInteger counter = new AtomicInteger();
+		scheduler = new ScheduledThreadPoolExecutor(2, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "mindwave-reconnect-" + counter.getAndIncrement());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		// Threads are only kept while there is something to do
+		scheduler.setKeepAliveTime(30, TimeUnit.SECONDS);
+		scheduler.allowCoreThreadTimeOut(true);
+		scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	public long getInitialBackoffMillis() {
+		return initialBackoffMillis;
+	}
+
+	/**
+	 * @param initialBackoffMillis the delay before the first reconnect attempt; 500ms by default
+	 */
+	public ReconnectSupervisor setInitialBackoffMillis(long initialBackoffMillis) {
+		if(initialBackoffMillis < 1) throw new IllegalArgumentException("initialBackoffMillis must be positive");
+		this.initialBackoffMillis = initialBackoffMillis;
+		return this;
+	}
+
+	public long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+
+	/**
+	 * @param maxBackoffMillis the longest delay between attempts; 30 seconds by default
+	 */
+	public ReconnectSupervisor setMaxBackoffMillis(long maxBackoffMillis) {
+		if(maxBackoffMillis < 1) throw new IllegalArgumentException("maxBackoffMillis must be positive");
+		this.maxBackoffMillis = maxBackoffMillis;
+		return this;
+	}
+
+	public double getBackoffMultiplier() {
+		return backoffMultiplier;
+	}
+
+	/**
+	 * @param backoffMultiplier how much the delay grows after each failed attempt; 2 by default
+	 */
+	public ReconnectSupervisor setBackoffMultiplier(double backoffMultiplier) {
+		if(backoffMultiplier < 1) throw new IllegalArgumentException("backoffMultiplier must be at least 1");
+		this.backoffMultiplier = backoffMultiplier;
+		return this;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * @param maxAttempts attempts before giving up on a headset; 0, the default, keeps trying until the socket is stopped
+	 */
+	public ReconnectSupervisor setMaxAttempts(int maxAttempts) {
+		if(maxAttempts < 0) throw new IllegalArgumentException("maxAttempts cannot be negative");
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	public long getStallTimeoutMillis() {
+		return stallTimeoutMillis;
+	}
+
+	/**
+	 * A streaming headset sends hundreds of packets a second, so a few seconds without a single valid packet
+	 * means the link is dead even if the transport hasn't noticed. The stalled transport is closed, which makes
+	 * its reader give up and the stream reconnect. Only streams that can be reconnected are watched.
+	 * @param stallTimeoutMillis 5 seconds by default; 0 turns the watchdog off
+	 */
+	public synchronized ReconnectSupervisor setStallTimeoutMillis(long stallTimeoutMillis) {
+		if(stallTimeoutMillis < 0) throw new IllegalArgumentException("stallTimeoutMillis cannot be negative");
+		this.stallTimeoutMillis = stallTimeoutMillis;
+		if(null != watchdog) {
+			watchdog.cancel(false);
+			watchdog = null;
+		}
+		if(!watched.isEmpty()) startWatchdog();
+		return this;
+	}
+
+	public TransportFactory getTransportFactory() {
+		return transportFactory;
+	}
+
+	/**
+	 * @param transportFactory opens replacement transports for every stream; null, the default, only reconnects BlueCove connections
+	 */
+	public ReconnectSupervisor setTransportFactory(TransportFactory transportFactory) {
+		this.transportFactory = transportFactory;
+		return this;
+	}
+
+	/**
+	 * @return the number of headsets currently waiting to be reconnected
+	 */
+	public int getReconnectingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Starts watching a stream that is reading. Streams this supervisor couldn't reconnect, such as loopbacks,
+	 * pipes, replays and simulators without a {@link TransportFactory}, are left alone: a quiet one is
+	 * idle, not dead, and closing it would only end it.
+	 */
+	synchronized void watch(HeadsetStream stream) {
+		if(null == factoryFor(stream.getConnection())) return;
+		watched.add(stream);
+		if(null == watchdog) startWatchdog();
+	}
+
+	synchronized void unwatch(HeadsetStream stream) {
+		watched.remove(stream);
+		if(watched.isEmpty() && null != watchdog) {
+			watchdog.cancel(false);
+			watchdog = null;
+		}
+	}
+
+	private void startWatchdog() {
+		if(stallTimeoutMillis == 0) return;
+		long interval = Math.max(100, stallTimeoutMillis / 4);
+		watchdog = scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				checkForStalls();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	private void checkForStalls() {
+		long cutoff = System.currentTimeMillis() - stallTimeoutMillis;
+		for(HeadsetStream stream: watched) {
+			if(stream.getLastPacketMillis() < cutoff && watched.remove(stream)) {
+				LOG.warn("No data from " + stream.getConnection().getDeviceAddress() + " for " + stallTimeoutMillis + "ms, closing its transport");
+				closeQuietly(stream.getConnection().getTransport());
+			}
+		}
+	}
+
+	/**
+	 * Called by a stream whose transport has failed. If the stream can be reconnected, the first attempt is
+	 * scheduled and the caller must leave the stream alone.
+	 * @return false if the stream can't be reconnected and should finish
+	 */
+	boolean linkLost(final HeadsetStream stream, IOException cause) {
+		unwatch(stream);
+		final TransportFactory factory = factoryFor(stream.getConnection());
+		if(null == factory) return false;
+
+		LOG.warn("Lost the link to " + stream.getConnection().getDeviceAddress() + ": " + cause.getMessage() + "; reconnecting");
+		closeQuietly(stream.getConnection().getTransport());
+		stream.emitStatus(EventType.HEADSET_DISCONNECTED);
+		schedule(stream, factory, 0);
+		return true;
+	}
+
+	private TransportFactory factoryFor(BluetoothConnection connection) {
+		if(null != transportFactory) return transportFactory;
+		return connection.getTransport() instanceof BluecoveTransport ? BLUECOVE : null;
+	}
+
+	private void schedule(final HeadsetStream stream, final TransportFactory factory, final int attempt) {
+		long delay = backoff(attempt);
+		LOG.debug("Reconnect attempt " + (attempt + 1) + " for " + stream.getConnection().getDeviceAddress() + " in " + delay + "ms");
+		synchronized(stream) {
+			if(stream.isStopRequested()) {
+				stream.finish();
+				return;
+			}
+			pending.put(stream, scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					attempt(stream, factory, attempt);
+				}
+			}, delay, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	/**
+	 * @return the delay before attempt <code>attempt</code> (0-based): half the exponential backoff plus a random
+	 * share of the other half, so headsets that dropped together don't all retry in the same instant
+	 */
+	long backoff(int attempt) {
+		double exponential = initialBackoffMillis * Math.pow(backoffMultiplier, attempt);
+		long ceiling = (long) Math.min(maxBackoffMillis, exponential);
+		long half = Math.max(1, ceiling / 2);
+		return half + ThreadLocalRandom.current().nextLong(half);
+	}
+
+	private void attempt(HeadsetStream stream, TransportFactory factory, int attempt) {
+		synchronized(stream) {
+			pending.remove(stream);
+			if(stream.isStopRequested()) {
+				stream.finish();
+				return;
+			}
+		}
+		HeadsetTransport transport;
+		try {
+			transport = factory.open(stream.getConnection());
+		} catch (IOException e) {
+			LOG.info("Reconnect attempt " + (attempt + 1) + " for " + stream.getConnection().getDeviceAddress() + " failed: " + e.getMessage());
+			if(maxAttempts > 0 && attempt + 1 >= maxAttempts) {
+				LOG.warn("Giving up on " + stream.getConnection().getDeviceAddress() + " after " + maxAttempts + " attempts");
+				stream.emitStatus(EventType.HEADSET_NOT_FOUND);
+				stream.finish();
+			} else {
+				schedule(stream, factory, attempt + 1);
+			}
+			return;
+		} catch (RuntimeException e) {
+			LOG.error("Reconnecting " + stream.getConnection().getDeviceAddress() + " failed", e);
+			stream.finish();
+			return;
+		}
+		synchronized(stream) {
+			if(stream.isStopRequested()) {
+				closeQuietly(transport);
+				stream.finish();
+				return;
+			}
+		}
+		LOG.info("Reconnected to " + stream.getConnection().getDeviceAddress() + " after " + (attempt + 1) + " attempt(s)");
+		stream.emitStatus(EventType.HEADSET_CONNECTED);
+		stream.resume(transport);
+	}
+
+	/**
+	 * Called when a stream has been asked to stop. A pending reconnect is cancelled and the stream finished.
+	 */
+	void cancel(HeadsetStream stream) {
+		unwatch(stream);
+		ScheduledFuture<?> future;
+		synchronized(stream) {
+			future = pending.remove(stream);
+		}
+		if(null != future && future.cancel(false)) stream.finish();
+	}
+
+	private static void closeQuietly(HeadsetTransport transport) {
+		try {
+			transport.close();
+		} catch (IOException e) {
+			LOG.debug("Could not close transport: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.sperkins.mindwave.socket;
+
+import java.nio.channels.SelectableChannel;
+
+/**
+ * A transport that can be read without blocking, so an event loop can service it alongside many others.
+ * {@link #read(java.nio.ByteBuffer)} must return 0 rather than block once the channel has been switched to
+ * non-blocking mode.
+ */
+public interface SelectableTransport extends HeadsetTransport {
+	/**
+	 * @return the channel to select on for reads, or null if this instance can't be selected after all
+	 */
+	public SelectableChannel getSelectableChannel();
+}
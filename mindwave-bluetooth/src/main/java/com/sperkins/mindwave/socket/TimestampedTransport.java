@@ -0,0 +1,13 @@
+package com.sperkins.mindwave.socket;
+
+/**
+ * A transport that knows when its bytes originally arrived, such as a replayed capture. The socket stamps each
+ * packet with {@link #getTimestamp()} instead of the wall clock, so replayed values carry the times they were
+ * recorded at.
+ */
+public interface TimestampedTransport extends HeadsetTransport {
+	/**
+	 * @return when the bytes returned by the most recent read arrived, in milliseconds since the epoch
+	 */
+	public long getTimestamp();
+}
@@ -0,0 +1,15 @@
+package com.sperkins.mindwave.socket;
+
+import java.io.IOException;
+
+/**
+ * Opens a fresh transport to a headset whose link has been lost. Used by {@link ReconnectSupervisor}.
+ */
+public interface TransportFactory {
+	/**
+	 * @param connection the connection whose transport died; {@link BluetoothConnection#getTransport()} is the dead one
+	 * @return a new, open transport to the same headset
+	 * @throws IOException if the headset can't be reached right now; the supervisor will try again later
+	 */
+	public HeadsetTransport open(BluetoothConnection connection) throws IOException;
+}
@@ -0,0 +1,40 @@
+package com.sperkins.mindwave.socket;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads on JVMs that have them. Looked up reflectively because the library is built for Java 11,
+ * which has no Thread.ofVirtual(), and should still run there.
+ */
+final class VirtualThreads {
+	private static final ThreadFactory FACTORY = lookUpFactory();
+
+	private VirtualThreads() {}
+
+	static boolean isSupported() {
+		return null != FACTORY;
+	}
+
+	/**
+	 * @return a factory for virtual threads, or null if this JVM doesn't support them
+	 */
+	static ThreadFactory factory() {
+		return FACTORY;
+	}
+
+	private static ThreadFactory lookUpFactory() {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Object builder = ofVirtual.invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "mindwave-reader-", 0L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		} catch (RuntimeException e) {
+			// Thread.ofVirtual() throws UnsupportedOperationException when virtual threads are a disabled preview feature
+			return null;
+		}
+	}
+}
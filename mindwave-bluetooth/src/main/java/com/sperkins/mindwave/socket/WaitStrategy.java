@@ -0,0 +1,49 @@
+package com.sperkins.mindwave.socket;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits when the asynchronous event bus has nothing for it to do: a consumer waiting for
+ * events, or a reader waiting for free space in a full ring.
+ */
+public enum WaitStrategy {
+	/** Lowest latency; burns a whole core per waiting thread */
+	BUSY_SPIN {
+		@Override
+		int idle(int counter) {
+			return counter + 1;
+		}
+	},
+	/** Low latency; gives up the core to other runnable threads between checks */
+	YIELD {
+		@Override
+		int idle(int counter) {
+			Thread.yield();
+			return counter + 1;
+		}
+	},
+	/** Spins briefly, then yields, then parks. Costs tens of microseconds of latency but almost no CPU while idle. */
+	PARK {
+		@Override
+		int idle(int counter) {
+			if(counter < 100) {
+				// spin
+			} else if(counter < 200) {
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+			// Saturates, so a long idle spell can't wrap the counter back into the spinning phase
+			return counter < 200 ? counter + 1 : counter;
+		}
+	};
+
+	private static final long PARK_NANOS = 50000;
+
+	/**
+	 * Waits once.
+	 * @param counter the number of times the caller has already waited without progress
+	 * @return the new counter value
+	 */
+	abstract int idle(int counter);
+}
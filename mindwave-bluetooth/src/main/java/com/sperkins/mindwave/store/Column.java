@@ -0,0 +1,62 @@
+package com.sperkins.mindwave.store;
+
+/**
+ * The values a {@link SessionStore} keeps for each headset. Every column is its own time series with its own
+ * timestamps, so raw samples at 512 per second and eSense values once a second don't pad each other out.
+ */
+public enum Column {
+	RAW(2, 1 << 21),
+	POOR_SIGNAL(1, 1 << 16),
+	ATTENTION(1, 1 << 16),
+	MEDITATION(1, 1 << 16),
+	DELTA(4, 1 << 16),
+	THETA(4, 1 << 16),
+	LOW_ALPHA(4, 1 << 16),
+	HIGH_ALPHA(4, 1 << 16),
+	LOW_BETA(4, 1 << 16),
+	HIGH_BETA(4, 1 << 16),
+	LOW_GAMMA(4, 1 << 16),
+	MID_GAMMA(4, 1 << 16);
+
+	private static final Column[] VALUES = values();
+
+	private final int width;
+	private final int segmentCapacity;
+
+	private Column(int width, int segmentCapacity) {
+		this.width = width;
+		this.segmentCapacity = segmentCapacity;
+	}
+
+	/**
+	 * @return bytes per stored value: raw samples are signed 16-bit, eSense values unsigned 8-bit, EEG bands 32-bit
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return rows per segment file; about 68 minutes of raw samples, or 18 hours of once-a-second values
+	 */
+	public int getSegmentCapacity() {
+		return segmentCapacity;
+	}
+
+	/**
+	 * @param band 0 (delta) through 7 (mid gamma)
+	 */
+	public static Column eeg(int band) {
+		return VALUES[DELTA.ordinal() + band];
+	}
+
+	static Column fromOrdinal(int ordinal) {
+		return VALUES[ordinal];
+	}
+
+	/**
+	 * @return the directory name used for the column
+	 */
+	String getDirectoryName() {
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,12 @@
+package com.sperkins.mindwave.store;
+
+/**
+ * Receives the rows of a {@link SessionStore#query} in timestamp order.
+ */
+public interface ColumnVisitor {
+	/**
+	 * @param timestamp arrival time of the value, in milliseconds since the epoch
+	 * @param value the stored value; raw samples are signed, everything else is unsigned
+	 */
+	public void onValue(long timestamp, int value);
+}
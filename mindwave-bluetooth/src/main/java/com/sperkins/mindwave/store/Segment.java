@@ -0,0 +1,191 @@
+package com.sperkins.mindwave.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped segment file. See {@link SegmentFormat} for the layout. Appends come from one thread; any
+ * number of threads may read, and see rows up to the row count they read from the header. The row count is
+ * written with release and read with acquire semantics, so every row it counts is fully visible.
+ */
+class Segment implements Closeable {
+	private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final Column column;
+	private final int capacity;
+	private final int interval;
+	private final int width;
+	private final int indexOffset;
+	private final int timestampOffset;
+	private final int valueOffset;
+	private int rows;
+
+	private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) throws IOException {
+		this.path = path;
+		this.channel = channel;
+		this.buffer = buffer;
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if(buffer.getInt(0) != SegmentFormat.MAGIC) throw new IOException("Not a segment file: " + path);
+		if(buffer.getShort(4) != SegmentFormat.VERSION) throw new IOException("Unsupported segment version in " + path);
+		this.column = Column.fromOrdinal(buffer.get(SegmentFormat.COLUMN_OFFSET));
+		this.width = buffer.get(SegmentFormat.WIDTH_OFFSET);
+		this.capacity = buffer.getInt(SegmentFormat.CAPACITY_OFFSET);
+		this.interval = buffer.getInt(SegmentFormat.INTERVAL_OFFSET);
+		this.indexOffset = SegmentFormat.HEADER_LENGTH;
+		this.timestampOffset = indexOffset + 8 * SegmentFormat.indexEntries(capacity, interval);
+		this.valueOffset = timestampOffset + 8 * capacity;
+		this.rows = buffer.getInt(SegmentFormat.ROW_COUNT_OFFSET);
+	}
+
+	/**
+	 * Creates a new, empty segment file.
+	 */
+	static Segment create(Path path, Column column, int capacity, long firstTimestamp) throws IOException {
+		long length = SegmentFormat.fileLength(capacity, SegmentFormat.INDEX_INTERVAL, column.getWidth());
+		if(length > Integer.MAX_VALUE) throw new IllegalArgumentException("Segment capacity too large: " + capacity);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(0, SegmentFormat.MAGIC)
+				.putShort(4, SegmentFormat.VERSION)
+				.put(SegmentFormat.COLUMN_OFFSET, (byte) column.ordinal())
+				.put(SegmentFormat.WIDTH_OFFSET, (byte) column.getWidth())
+				.putInt(SegmentFormat.CAPACITY_OFFSET, capacity)
+				.putInt(SegmentFormat.INTERVAL_OFFSET, SegmentFormat.INDEX_INTERVAL)
+				.putInt(SegmentFormat.ROW_COUNT_OFFSET, 0)
+				.putLong(SegmentFormat.FIRST_TIMESTAMP_OFFSET, firstTimestamp)
+				.putLong(SegmentFormat.LAST_TIMESTAMP_OFFSET, firstTimestamp);
+			return new Segment(path, channel, buffer);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Maps an existing segment file for reading.
+	 */
+	static Segment open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			if(channel.size() < SegmentFormat.HEADER_LENGTH || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not a segment file: " + path);
+			}
+			return new Segment(path, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	boolean isFull() {
+		return rows == capacity;
+	}
+
+	/**
+	 * Adds a row. The caller makes sure the segment isn't full and timestamps don't go backwards.
+	 */
+	void append(long timestamp, int value) {
+		int row = rows;
+		if(row % interval == 0) buffer.putLong(indexOffset + 8 * (row / interval), timestamp);
+		buffer.putLong(timestampOffset + 8 * row, timestamp);
+		int position = valueOffset + width * row;
+		switch(width) {
+		case 1:
+			buffer.put(position, (byte) value);
+			break;
+		case 2:
+			buffer.putShort(position, (short) value);
+			break;
+		default:
+			buffer.putInt(position, value);
+			break;
+		}
+		buffer.putLong(SegmentFormat.LAST_TIMESTAMP_OFFSET, timestamp);
+		// Last, and with release semantics, so a reader never counts a row whose values aren't there yet
+		INTS.setRelease(buffer, SegmentFormat.ROW_COUNT_OFFSET, ++rows);
+	}
+
+	/**
+	 * @return the number of rows, re-read from the header so readers see a writer's progress
+	 */
+	int getRowCount() {
+		return (int) INTS.getAcquire(buffer, SegmentFormat.ROW_COUNT_OFFSET);
+	}
+
+	long getFirstTimestamp() {
+		return buffer.getLong(SegmentFormat.FIRST_TIMESTAMP_OFFSET);
+	}
+
+	long getLastTimestamp() {
+		return buffer.getLong(SegmentFormat.LAST_TIMESTAMP_OFFSET);
+	}
+
+	long timestampAt(int row) {
+		return buffer.getLong(timestampOffset + 8 * row);
+	}
+
+	int valueAt(int row) {
+		int position = valueOffset + width * row;
+		switch(width) {
+		case 1:
+			return buffer.get(position) & 0xFF;
+		case 2:
+			return buffer.getShort(position);
+		default:
+			return buffer.getInt(position);
+		}
+	}
+
+	/**
+	 * @return the first row whose timestamp is at or after <code>timestamp</code>, or <code>rowCount</code> if there is none
+	 */
+	int firstRowAtOrAfter(long timestamp, int rowCount) {
+		if(rowCount == 0 || buffer.getLong(indexOffset) >= timestamp) return 0;
+		// The last index entry before the timestamp; the row we want is in its interval or starts the next
+		int low = 0;
+		int high = (rowCount - 1) / interval;
+		while(low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if(buffer.getLong(indexOffset + 8 * middle) < timestamp) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		int row = low * interval;
+		int end = Math.min(rowCount, row + interval);
+		while(row < end && timestampAt(row) < timestamp) {
+			row++;
+		}
+		return row;
+	}
+
+	Column getColumn() {
+		return column;
+	}
+
+	Path getPath() {
+		return path;
+	}
+
+	void force() {
+		buffer.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,50 @@
+package com.sperkins.mindwave.store;
+
+/**
+ * Layout of a segment file, which holds up to <code>capacity</code> rows of one {@link Column} for one headset.
+ * All values are little-endian.
+ * <pre>
+ * header:     int    magic ("MWS1")
+ *             short  version
+ *             byte   column ordinal
+ *             byte   value width in bytes
+ *             int    capacity, in rows
+ *             int    index interval, in rows
+ *             int    row count, written after each row's values
+ *             int    reserved
+ *             long   timestamp of the first row, milliseconds since the epoch
+ *             long   timestamp of the last row
+ *             24 bytes reserved
+ * index:      long   timestamp of every index-interval-th row, capacity / interval entries rounded up
+ * timestamps: long   capacity entries, non-decreasing
+ * values:     width  capacity entries
+ * </pre>
+ * Regions are sized for the full capacity when the segment is created, so a partly written segment is a
+ * sparse file. A time range is found by a binary search of the small index followed by a scan of at most
+ * one interval of timestamps, and only the pages of the value region in that range are ever touched.
+ */
+public final class SegmentFormat {
+	public static final int MAGIC = 0x4D575331;
+	public static final short VERSION = 1;
+	public static final int HEADER_LENGTH = 64;
+	public static final int INDEX_INTERVAL = 256;
+	public static final String FILE_EXTENSION = ".seg";
+
+	static final int COLUMN_OFFSET = 6;
+	static final int WIDTH_OFFSET = 7;
+	static final int CAPACITY_OFFSET = 8;
+	static final int INTERVAL_OFFSET = 12;
+	static final int ROW_COUNT_OFFSET = 16;
+	static final int FIRST_TIMESTAMP_OFFSET = 24;
+	static final int LAST_TIMESTAMP_OFFSET = 32;
+
+	private SegmentFormat() {}
+
+	static int indexEntries(int capacity, int interval) {
+		return (capacity + interval - 1) / interval;
+	}
+
+	static long fileLength(int capacity, int interval, int width) {
+		return HEADER_LENGTH + 8L * indexEntries(capacity, interval) + 8L * capacity + (long) width * capacity;
+	}
+}
@@ -0,0 +1,162 @@
+package com.sperkins.mindwave.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sperkins.mindwave.HeadsetRegistry;
+import com.sperkins.mindwave.event.EventType;
+import com.sperkins.mindwave.event.MindwaveDataListener;
+
+/**
+ * Appends every value it receives to a {@link SessionStore}. Each headset has its own open segment per column,
+ * written through the mapping with a few stores per value, so recording doesn't allocate or make system calls
+ * except when a segment fills up. Values for a headset must arrive from one thread at a time, which is how the
+ * socket delivers them. Stop the socket before closing the recorder.
+ */
+public class SessionRecorder implements MindwaveDataListener, Closeable {
+	private final static Logger LOG = LoggerFactory.getLogger(SessionRecorder.class.getName());
+	private static final Column[] COLUMNS = Column.values();
+
+	private final SessionStore store;
+	private final HeadsetRegistry registry;
+	private volatile HeadsetColumns[] headsets = new HeadsetColumns[16];
+	private volatile boolean closed;
+
+	SessionRecorder(SessionStore store) {
+		this(store, HeadsetRegistry.getInstance());
+	}
+
+	SessionRecorder(SessionStore store, HeadsetRegistry registry) {
+		this.store = store;
+		this.registry = registry;
+	}
+
+	@Override
+	public void onRawSample(int headsetId, long timestamp, int sample) {
+		append(headsetId, Column.RAW, timestamp, sample);
+	}
+
+	@Override
+	public void onAttention(int headsetId, long timestamp, int attention) {
+		append(headsetId, Column.ATTENTION, timestamp, attention);
+	}
+
+	@Override
+	public void onMeditation(int headsetId, long timestamp, int meditation) {
+		append(headsetId, Column.MEDITATION, timestamp, meditation);
+	}
+
+	@Override
+	public void onPoorSignal(int headsetId, long timestamp, int poorSignal) {
+		append(headsetId, Column.POOR_SIGNAL, timestamp, poorSignal);
+	}
+
+	@Override
+	public void onEegPower(int headsetId, long timestamp, int delta, int theta, int lowAlpha, int highAlpha,
+			int lowBeta, int highBeta, int lowGamma, int midGamma) {
+		append(headsetId, Column.DELTA, timestamp, delta);
+		append(headsetId, Column.THETA, timestamp, theta);
+		append(headsetId, Column.LOW_ALPHA, timestamp, lowAlpha);
+		append(headsetId, Column.HIGH_ALPHA, timestamp, highAlpha);
+		append(headsetId, Column.LOW_BETA, timestamp, lowBeta);
+		append(headsetId, Column.HIGH_BETA, timestamp, highBeta);
+		append(headsetId, Column.LOW_GAMMA, timestamp, lowGamma);
+		append(headsetId, Column.MID_GAMMA, timestamp, midGamma);
+	}
+
+	@Override
+	public void onHeadsetStatus(int headsetId, long timestamp, EventType status, int reportedHeadsetId) {
+		// Not stored
+	}
+
+	private void append(int headsetId, Column column, long timestamp, int value) {
+		if(closed) return;
+		HeadsetColumns headset = headsetFor(headsetId);
+		int index = column.ordinal();
+		if(headset.failed[index]) return;
+		// Timestamps within a column never go backwards, even if the clock does
+		if(timestamp < headset.lastTimestamps[index]) timestamp = headset.lastTimestamps[index];
+		Segment segment = headset.segments[index];
+		try {
+			if(null == segment || segment.isFull()) {
+				if(null != segment) segment.close();
+				segment = newSegment(headsetId, column, timestamp);
+				headset.segments[index] = segment;
+			}
+			segment.append(timestamp, value);
+			headset.lastTimestamps[index] = timestamp;
+		} catch (IOException e) {
+			headset.failed[index] = true;
+			LOG.error("Could not record " + column + " for " + registry.getAddress(headsetId) + ", no more will be recorded: " + e.getMessage());
+		}
+	}
+
+	private Segment newSegment(int headsetId, Column column, long firstTimestamp) throws IOException {
+		Path directory = store.columnDirectory(registry.getAddress(headsetId), column);
+		Files.createDirectories(directory);
+		for(int attempt = 0; ; attempt++) {
+			String name = attempt == 0 ? String.valueOf(firstTimestamp) : firstTimestamp + "_" + attempt;
+			try {
+				return Segment.create(directory.resolve(name + SegmentFormat.FILE_EXTENSION), column, column.getSegmentCapacity(), firstTimestamp);
+			} catch (FileAlreadyExistsException e) {
+				// A previous recording started in the same millisecond
+			}
+		}
+	}
+
+	/**
+	 * Asks the operating system to write everything recorded so far to disk.
+	 */
+	public void flush() {
+		for(HeadsetColumns headset: headsets) {
+			if(null == headset) continue;
+			for(Segment segment: headset.segments) {
+				if(null != segment) segment.force();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		flush();
+		for(HeadsetColumns headset: headsets) {
+			if(null == headset) continue;
+			for(Segment segment: headset.segments) {
+				if(null != segment) segment.close();
+			}
+		}
+	}
+
+	private HeadsetColumns headsetFor(int headsetId) {
+		HeadsetColumns[] current = headsets;
+		if(headsetId < current.length) {
+			HeadsetColumns headset = current[headsetId];
+			if(null != headset) return headset;
+		}
+		synchronized(this) {
+			current = headsets;
+			if(headsetId >= current.length) {
+				current = Arrays.copyOf(current, Math.max(headsetId + 1, current.length * 2));
+			}
+			if(null == current[headsetId]) {
+				current[headsetId] = new HeadsetColumns();
+			}
+			headsets = current;
+			return current[headsetId];
+		}
+	}
+
+	private static class HeadsetColumns {
+		final Segment[] segments = new Segment[COLUMNS.length];
+		final long[] lastTimestamps = new long[COLUMNS.length];
+		final boolean[] failed = new boolean[COLUMNS.length];
+	}
+}
@@ -0,0 +1,164 @@
+package com.sperkins.mindwave.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Append-only, columnar archive of headset sessions. Each headset's values are kept per {@link Column} in
+ * memory-mapped segment files under <code>&lt;directory&gt;/&lt;address&gt;/&lt;column&gt;/</code>:
+ * <pre>
+ * SessionStore store = SessionStore.open(Paths.get("sessions"));
+ * socket.addDataListener(store.newRecorder());
+ * ...
+ * store.query("091A2B3C4D5E", Column.LOW_ALPHA, from, to, myVisitor);
+ * </pre>
+ * A query maps only the segments overlapping its time range, finds the first row through each segment's sparse
+ * time index and reads values straight out of the mapping, so it touches the pages of the columns and time
+ * range it asks for and nothing else. Queries may run while a recorder is still appending.
+ */
+public class SessionStore implements Closeable {
+	private final Path directory;
+	// Read-only mappings, kept because mapping a segment costs far more than a typical query
+	private final ConcurrentMap<Path, Segment> segments = new ConcurrentHashMap<Path, Segment>();
+
+	private SessionStore(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Opens a store, creating the directory if it doesn't exist.
+	 */
+	public static SessionStore open(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		return new SessionStore(directory);
+	}
+
+	/**
+	 * @return a new listener that appends every value it receives to this store; close it when recording ends
+	 */
+	public SessionRecorder newRecorder() {
+		return new SessionRecorder(this);
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the addresses of every headset with stored values
+	 */
+	public List<String> getDeviceAddresses() throws IOException {
+		List<String> addresses = new ArrayList<String>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for(Path path: stream) {
+				if(Files.isDirectory(path)) addresses.add(path.getFileName().toString());
+			}
+		}
+		Collections.sort(addresses);
+		return addresses;
+	}
+
+	/**
+	 * Visits the values of one column stored for one headset between two times, oldest first.
+	 * @param fromMillis start of the range, inclusive
+	 * @param toMillis end of the range, inclusive
+	 * @return the number of values visited
+	 */
+	public long query(String deviceAddress, Column column, long fromMillis, long toMillis, ColumnVisitor visitor) throws IOException {
+		if(null == visitor) throw new NullPointerException("visitor cannot be null");
+		long visited = 0;
+		for(Segment segment: segments(deviceAddress, column)) {
+			int rows = segment.getRowCount();
+			if(rows == 0 || segment.getLastTimestamp() < fromMillis) continue;
+			if(segment.getFirstTimestamp() > toMillis) break;
+			for(int row = segment.firstRowAtOrAfter(fromMillis, rows); row < rows; row++) {
+				long timestamp = segment.timestampAt(row);
+				if(timestamp > toMillis) return visited;
+				visitor.onValue(timestamp, segment.valueAt(row));
+				visited++;
+			}
+		}
+		return visited;
+	}
+
+	/**
+	 * @return the time of the earliest stored value of the column, or -1 if there is none
+	 */
+	public long getFirstTimestamp(String deviceAddress, Column column) throws IOException {
+		for(Segment segment: segments(deviceAddress, column)) {
+			if(segment.getRowCount() > 0) return segment.getFirstTimestamp();
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the time of the latest stored value of the column, or -1 if there is none
+	 */
+	public long getLastTimestamp(String deviceAddress, Column column) throws IOException {
+		List<Segment> found = segments(deviceAddress, column);
+		for(int i = found.size() - 1; i >= 0; i--) {
+			if(found.get(i).getRowCount() > 0) return found.get(i).getLastTimestamp();
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the column's segments for the headset, oldest first
+	 */
+	private List<Segment> segments(String deviceAddress, Column column) throws IOException {
+		Path columnDirectory = columnDirectory(deviceAddress, column);
+		if(!Files.isDirectory(columnDirectory)) return Collections.emptyList();
+		List<Segment> found = new ArrayList<Segment>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(columnDirectory, "*" + SegmentFormat.FILE_EXTENSION)) {
+			for(Path path: stream) {
+				Segment segment = segments.get(path);
+				if(null == segment) {
+					segment = Segment.open(path);
+					Segment raced = segments.putIfAbsent(path, segment);
+					if(null != raced) {
+						segment.close();
+						segment = raced;
+					}
+				}
+				found.add(segment);
+			}
+		}
+		Collections.sort(found, new Comparator<Segment>() {
+			@Override
+			public int compare(Segment a, Segment b) {
+				return Long.compare(a.getFirstTimestamp(), b.getFirstTimestamp());
+			}
+		});
+		return found;
+	}
+
+	Path columnDirectory(String deviceAddress, Column column) {
+		return directory.resolve(directoryName(deviceAddress)).resolve(column.getDirectoryName());
+	}
+
+	// Addresses are hex digits, possibly with separators that don't belong in a file name
+	private static String directoryName(String deviceAddress) {
+		if(null == deviceAddress) throw new NullPointerException("deviceAddress cannot be null");
+		return deviceAddress.replaceAll("[^A-Za-z0-9_-]", "_");
+	}
+
+	/**
+	 * Releases the store's read mappings. Recorders have to be closed separately.
+	 */
+	@Override
+	public void close() throws IOException {
+		for(Segment segment: segments.values()) {
+			segment.close();
+		}
+		segments.clear();
+	}
+}